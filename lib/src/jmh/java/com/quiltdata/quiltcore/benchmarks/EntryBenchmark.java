@@ -0,0 +1,61 @@
+package com.quiltdata.quiltcore.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.quiltdata.quiltcore.Entry;
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+
+/**
+ * Benchmarks hashing the contents of local files with {@link Entry#withHash()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EntryBenchmark {
+    @Param({ "1024", "1048576", "67108864" })
+    public int size;
+
+    private Path file;
+    private Entry entry;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("quiltcore-jmh", ".bin");
+        Random random = new Random(0);
+        byte[] buffer = new byte[1 << 20];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int written = 0; written < size; written += buffer.length) {
+                random.nextBytes(buffer);
+                out.write(buffer, 0, Math.min(buffer.length, size - written));
+            }
+        }
+        entry = new Entry(new LocalPhysicalKey(file), size, null, JsonNodeFactory.instance.objectNode());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Entry withHash() throws IOException {
+        return entry.withHash();
+    }
+}
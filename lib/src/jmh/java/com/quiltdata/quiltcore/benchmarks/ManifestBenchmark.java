@@ -0,0 +1,87 @@
+package com.quiltdata.quiltcore.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.quiltdata.quiltcore.Manifest;
+import com.quiltdata.quiltcore.SyntheticPackages;
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+import com.quiltdata.quiltcore.key.PhysicalKey;
+
+/**
+ * Benchmarks parsing, serializing, hashing and editing manifests of synthetic packages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ManifestBenchmark {
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int entries;
+
+    @Param({ "4" })
+    public int metadataFields;
+
+    private Path dir;
+    private PhysicalKey manifestKey;
+    private SyntheticPackages packages;
+    private Manifest manifest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("quiltcore-jmh");
+        Path file = dir.resolve("manifest.jsonl");
+        packages = SyntheticPackages.builder()
+            .setEntryCount(entries)
+            .setMetadataFields(metadataFields)
+            .build();
+        manifest = packages.writeManifest(file);
+        manifestKey = new LocalPhysicalKey(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(dir.resolve("manifest.jsonl"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public Manifest createFromFile() throws IOException, URISyntaxException {
+        return Manifest.createFromFile(manifestKey);
+    }
+
+    @Benchmark
+    public void serializeToOutputStream() throws IOException {
+        manifest.serializeToOutputStream(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public String calculateTopHash() throws IOException {
+        return manifest.calculateTopHash();
+    }
+
+    @Benchmark
+    public Manifest editWithToBuilder() {
+        Manifest.Builder builder = manifest.toBuilder();
+        for (int i = 0; i < 10; i++) {
+            String key = packages.logicalKey(i * (entries / 10));
+            builder.removeEntry(key);
+            builder.addEntry("edited/" + key, manifest.getEntries().get(key));
+        }
+        return builder.build();
+    }
+}
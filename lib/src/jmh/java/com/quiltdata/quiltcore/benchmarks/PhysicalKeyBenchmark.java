@@ -0,0 +1,64 @@
+package com.quiltdata.quiltcore.benchmarks;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.quiltdata.quiltcore.SyntheticPackages;
+import com.quiltdata.quiltcore.key.PhysicalKey;
+
+/**
+ * Benchmarks converting physical keys from and to URIs, as done for every entry of a manifest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PhysicalKeyBenchmark {
+    private static final int KEYS = 1024;
+
+    @Param({ "s3", "file" })
+    public String scheme;
+
+    private URI[] uris;
+    private PhysicalKey[] keys;
+
+    @Setup
+    public void setUp() {
+        SyntheticPackages packages = SyntheticPackages.builder().setEntryCount(KEYS).build();
+        uris = new URI[KEYS];
+        keys = new PhysicalKey[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            String path = "data/" + packages.logicalKey(i);
+            uris[i] = URI.create(scheme.equals("s3")
+                ? "s3://quilt-synthetic/" + path + "?versionId=" + Integer.toHexString(i * 7919)
+                : "file:///tmp/quilt-synthetic/" + path);
+            keys[i] = PhysicalKey.fromUri(uris[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void fromUri(Blackhole bh) {
+        for (URI uri : uris) {
+            bh.consume(PhysicalKey.fromUri(uri));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void toUri(Blackhole bh) {
+        for (PhysicalKey key : keys) {
+            bh.consume(key.toUri());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.quiltdata.quiltcore.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.quiltdata.quiltcore.ser.PythonFormat;
+
+/**
+ * Benchmarks formatting doubles the way Python does, as done for every float in a top hash.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PythonFormatBenchmark {
+    private static final int VALUES = 1024;
+
+    private double[] values;
+
+    @Setup
+    public void setUp() {
+        // A mix of magnitudes that use all three formats: small and large scientific, and plain.
+        Random random = new Random(0);
+        values = new double[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void formatDouble(Blackhole bh) {
+        for (double value : values) {
+            bh.consume(PythonFormat.formatDouble(value));
+        }
+    }
+}
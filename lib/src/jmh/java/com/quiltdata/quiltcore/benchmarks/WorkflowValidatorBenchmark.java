@@ -0,0 +1,101 @@
+package com.quiltdata.quiltcore.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.quiltdata.quiltcore.Entry;
+import com.quiltdata.quiltcore.Manifest;
+import com.quiltdata.quiltcore.Registry;
+import com.quiltdata.quiltcore.SyntheticPackages;
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+import com.quiltdata.quiltcore.workflows.ConfigurationException;
+import com.quiltdata.quiltcore.workflows.WorkflowException;
+import com.quiltdata.quiltcore.workflows.WorkflowValidator;
+
+/**
+ * Benchmarks validating synthetic packages against a workflow with metadata and entries schemas.
+ *
+ * <p>
+ * The {@code items} shape only constrains the items of the entries array, so entries are validated one
+ * at a time; the {@code array} shape adds an array keyword, so the entries are validated as a whole.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorkflowValidatorBenchmark {
+    private static final String ITEM_SCHEMA = "{\"type\": \"object\", \"required\": [\"logical_key\", \"size\"], \"properties\": {"
+        + "\"logical_key\": {\"type\": \"string\", \"pattern\": \"^dir\"},"
+        + "\"size\": {\"type\": \"integer\", \"minimum\": 0},"
+        + "\"meta\": {\"type\": \"object\", \"properties\": {"
+        + "\"field0\": {\"type\": \"string\"}, \"field3\": {\"type\": \"array\", \"items\": {\"type\": \"string\"}}}}}}";
+
+    private static final String METADATA_SCHEMA = "{\"type\": \"object\", \"required\": [\"field0\"], \"properties\": {"
+        + "\"field0\": {\"type\": \"string\"}, \"field1\": {\"type\": \"integer\"}, \"field4\": {\"type\": \"object\"}}}";
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int entries;
+
+    @Param({ "items", "array" })
+    public String shape;
+
+    private Path dir;
+    private WorkflowValidator validator;
+    private Map<String, Entry> manifestEntries;
+    private ObjectNode metadata;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ConfigurationException, WorkflowException {
+        dir = Files.createTempDirectory("quiltcore-jmh");
+        Path entriesSchema = dir.resolve("entries.json");
+        Path metadataSchema = dir.resolve("meta.json");
+        Files.writeString(entriesSchema, "{\"type\": \"array\", \"items\": " + ITEM_SCHEMA
+            + (shape.equals("array") ? ", \"uniqueItems\": false" : "") + "}");
+        Files.writeString(metadataSchema, METADATA_SCHEMA);
+
+        Path config = dir.resolve(".quilt/workflows/config.yml");
+        Files.createDirectories(config.getParent());
+        Files.writeString(config, "version: \"1\"\n"
+            + "workflows:\n  bench:\n    name: Benchmark\n    metadata_schema: meta\n    entries_schema: entries\n"
+            + "schemas:\n"
+            + "  meta:\n    url: " + metadataSchema.toUri() + "\n"
+            + "  entries:\n    url: " + entriesSchema.toUri() + "\n");
+
+        validator = new Registry(new LocalPhysicalKey(dir)).getWorkflowConfig().getWorkflowValidator("bench");
+
+        Manifest manifest = SyntheticPackages.builder().setEntryCount(entries).setMetadataFields(5).build().buildManifest();
+        manifestEntries = manifest.getEntries();
+        metadata = manifest.getMetadata();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void validate() throws WorkflowException {
+        validator.validate("bench/package", manifestEntries, metadata, "message");
+    }
+}
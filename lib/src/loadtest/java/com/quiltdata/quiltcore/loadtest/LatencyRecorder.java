@@ -0,0 +1,128 @@
+package com.quiltdata.quiltcore.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Records the latencies and outcomes of one operation of a load test.
+ *
+ * <p>
+ * All samples are kept, so percentiles are exact; load tests record at most a few thousand of them.
+ * </p>
+ */
+public class LatencyRecorder {
+    private final String operation;
+    private long[] samples = new long[64];
+    private int count = 0;
+    private int errors = 0;
+    private long bytes = 0;
+    private long totalNanos = 0;
+
+    /**
+     * Constructs a new recorder.
+     *
+     * @param operation The name of the operation.
+     */
+    public LatencyRecorder(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Returns the name of the operation.
+     *
+     * @return The name.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Records a successful operation.
+     *
+     * @param nanos The latency in nanoseconds.
+     * @param bytes The number of bytes the operation processed, or 0.
+     */
+    public synchronized void record(long nanos, long bytes) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        this.bytes += bytes;
+        totalNanos += nanos;
+    }
+
+    /**
+     * Records a failed operation. Its latency is not recorded.
+     */
+    public synchronized void recordError() {
+        errors++;
+    }
+
+    /**
+     * Returns the number of successful operations.
+     *
+     * @return The count.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of failed operations.
+     *
+     * @return The count.
+     */
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the latency at the given percentile, using the nearest-rank method.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency in nanoseconds, or 0 if nothing was recorded.
+     */
+    public synchronized long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return sorted[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+    /**
+     * Returns a row of the report.
+     *
+     * @param wallNanos The wall-clock duration of the run, over which throughput is computed.
+     * @return The formatted row.
+     */
+    public synchronized String format(long wallNanos) {
+        double seconds = wallNanos / 1e9;
+        return String.format(
+            "%-19s %7d %6d %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f",
+            operation,
+            count,
+            errors,
+            count / seconds,
+            bytes / 1e6 / seconds,
+            percentile(50) / 1e6,
+            percentile(90) / 1e6,
+            percentile(99) / 1e6,
+            percentile(100) / 1e6,
+            count == 0 ? 0.0 : totalNanos / 1e6 / count
+        );
+    }
+
+    /**
+     * Returns the header of the report.
+     *
+     * @return The formatted header.
+     */
+    public static String header() {
+        return String.format(
+            "%-19s %7s %6s %10s %10s %10s %10s %10s %10s %10s",
+            "operation", "count", "errors", "ops/s", "MB/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "mean ms"
+        );
+    }
+}
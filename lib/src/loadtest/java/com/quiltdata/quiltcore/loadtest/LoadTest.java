@@ -0,0 +1,303 @@
+package com.quiltdata.quiltcore.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.quiltdata.quiltcore.Entry;
+import com.quiltdata.quiltcore.Manifest;
+import com.quiltdata.quiltcore.Namespace;
+import com.quiltdata.quiltcore.Registry;
+import com.quiltdata.quiltcore.SyntheticPackages;
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+import com.quiltdata.quiltcore.storage.InMemoryObjectStore;
+import com.quiltdata.quiltcore.storage.ObjectStores;
+
+/**
+ * Drives the package lifecycle over a synthetic package and reports throughput and latency percentiles.
+ *
+ * <p>
+ * The package is generated once as a directory tree. Each worker then repeatedly builds a manifest from it
+ * with {@link Manifest#BuildFromDir(Path, Object, String)}, pushes it to its own namespace, resolves it
+ * through {@link Namespace} and installs it into a scratch directory.
+ * </p>
+ * <p>
+ * The {@code memory} backend pushes to a bucket of an {@link InMemoryObjectStore}, which can simulate
+ * latency and throttling. The {@code local} backend uses a registry on the local file system; since
+ * {@link Manifest#push} only supports S3 registries, it publishes the manifest the way push does
+ * (hashing the entries, writing the manifest and tagging it) but leaves the entries in place. Likewise,
+ * {@link Manifest#install} only downloads from S3, so the entries are copied from where they were built.
+ * Both rows are reported as {@code (simulated)}.
+ * </p>
+ * <p>
+ * Building only lists the files, so the build row reports no throughput in bytes.
+ * </p>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * ./gradlew loadTest --args="--backend=memory --entries=10000 --sizes=logUniform:1:1048576 --concurrency=4"
+ * }</pre>
+ */
+public class LoadTest {
+    private static final String BUCKET = "quilt-loadtest";
+    private static final String MESSAGE = "Load test";
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("backend", "memory");
+        DEFAULTS.put("entries", "1000");
+        DEFAULTS.put("sizes", "logUniform:1:1048576");
+        DEFAULTS.put("key-depth", "3");
+        DEFAULTS.put("metadata-fields", "4");
+        DEFAULTS.put("seed", "0");
+        DEFAULTS.put("iterations", "5");
+        DEFAULTS.put("concurrency", "1");
+        DEFAULTS.put("latency-ms", "0");
+        DEFAULTS.put("bandwidth", "0");
+        DEFAULTS.put("throttle-rate", "0");
+        DEFAULTS.put("work-dir", "");
+    }
+
+    private interface Operation<T> {
+        T run() throws Exception;
+    }
+
+    private final Map<String, String> options;
+    private final Path workDir;
+    private final Path source;
+    private final String registryUri;
+    private final LatencyRecorder build = new LatencyRecorder("build");
+    private final LatencyRecorder push;
+    private final LatencyRecorder resolve = new LatencyRecorder("resolve");
+    private final LatencyRecorder install;
+    private long packageBytes;
+
+    private LoadTest(Map<String, String> options, Path workDir) {
+        this.options = options;
+        this.workDir = workDir;
+        source = workDir.resolve("source");
+        registryUri = isLocal() ? workDir.resolve("registry").toUri().toString() : "s3://" + BUCKET;
+        push = new LatencyRecorder(isLocal() ? "push (simulated)" : "push");
+        install = new LatencyRecorder(isLocal() ? "install (simulated)" : "install");
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args The options, as {@code --name=value}.
+     * @throws Exception If the load test can't be set up.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+            if (name == null || !DEFAULTS.containsKey(name)) {
+                System.err.println("Unknown option: " + arg);
+                System.err.println("Options (with defaults): " + DEFAULTS);
+                System.exit(2);
+            }
+            options.put(name, arg.substring(eq + 1));
+        }
+        if (!List.of("memory", "local").contains(options.get("backend"))) {
+            throw new IllegalArgumentException("Backend must be memory or local");
+        }
+
+        String dir = options.get("work-dir");
+        Path workDir = dir.isEmpty() ? Files.createTempDirectory("quilt-loadtest") : Path.of(dir).toAbsolutePath();
+        try {
+            new LoadTest(options, workDir).run();
+        } finally {
+            if (dir.isEmpty()) {
+                deleteRecursively(workDir);
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        SyntheticPackages packages = SyntheticPackages.builder()
+            .setEntryCount(intOption("entries"))
+            .setKeyDepth(intOption("key-depth"))
+            .setMetadataFields(intOption("metadata-fields"))
+            .setSeed(Long.parseLong(options.get("seed")))
+            .setSizeDistribution(SyntheticPackages.SizeDistribution.parse(options.get("sizes")))
+            .build();
+
+        System.out.println("Options: " + options);
+        deleteRecursively(source);
+        long start = System.nanoTime();
+        packageBytes = packages.writeDirectory(source);
+        System.out.printf(
+            "Generated %d files (%.2f MB) in %.2f s%n",
+            packages.getEntryCount(), packageBytes / 1e6, (System.nanoTime() - start) / 1e9
+        );
+
+        int concurrency = intOption("concurrency");
+        if (isLocal()) {
+            Files.createDirectories(workDir.resolve("registry/.quilt/packages"));
+            for (int w = 0; w < concurrency; w++) {
+                Files.createDirectories(workDir.resolve("registry/.quilt/named_packages/loadtest/worker" + w));
+            }
+        } else {
+            InMemoryObjectStore store = InMemoryObjectStore.builder()
+                .setLatency(Duration.ofMillis(intOption("latency-ms")))
+                .setBandwidth(Long.parseLong(options.get("bandwidth")))
+                .setThrottleRate(Double.parseDouble(options.get("throttle-rate")))
+                .setSeed(Long.parseLong(options.get("seed")))
+                .build();
+            store.createBucket(BUCKET);
+            ObjectStores.register(BUCKET, store);
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            start = System.nanoTime();
+            Future<?>[] futures = new Future<?>[concurrency];
+            for (int w = 0; w < concurrency; w++) {
+                int worker = w;
+                futures[w] = workers.submit(() -> {
+                    runWorker(worker);
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdown();
+            ObjectStores.register(BUCKET, null);
+        }
+        long wallNanos = System.nanoTime() - start;
+
+        System.out.printf("Completed in %.2f s%n", wallNanos / 1e9);
+        System.out.println(LatencyRecorder.header());
+        for (LatencyRecorder recorder : List.of(build, push, resolve, install)) {
+            System.out.println(recorder.format(wallNanos));
+        }
+    }
+
+    private void runWorker(int worker) throws Exception {
+        Namespace namespace = Registry.CreateNamespaceAtUri("loadtest/worker" + worker, registryUri);
+        int iterations = intOption("iterations");
+        for (int i = 0; i < iterations; i++) {
+            Manifest built = time(build, 0, () -> Manifest.BuildFromDir(source, null, null));
+            if (built == null) {
+                continue;
+            }
+            Manifest pushed = time(push, packageBytes, () -> publish(built, namespace));
+            if (pushed == null) {
+                continue;
+            }
+            String topHash = pushed.calculateTopHash();
+            Manifest resolved = time(resolve, 0, () -> {
+                namespace.invalidateTag("latest");
+                String hash = namespace.getHash("latest");
+                if (!hash.equals(namespace.resolveHash(topHash.substring(0, 8)))) {
+                    throw new IllegalStateException("Resolved " + hash + " instead of " + topHash);
+                }
+                return namespace.getManifest(hash);
+            });
+            if (resolved == null) {
+                continue;
+            }
+            Path dest = workDir.resolve("install/worker" + worker + "-" + i);
+            time(install, packageBytes, () -> {
+                install(resolved, dest);
+                return dest;
+            });
+            deleteRecursively(dest);
+        }
+    }
+
+    private Manifest publish(Manifest manifest, Namespace namespace) throws Exception {
+        if (!isLocal()) {
+            return manifest.push(namespace, MESSAGE, null);
+        }
+
+        Manifest.Builder builder = Manifest.builder();
+        ObjectNode metadata = manifest.getMetadata();
+        metadata.put("message", MESSAGE);
+        builder.setMetadata(metadata);
+        manifest.getEntries().entrySet().parallelStream()
+            .map(e -> Map.entry(e.getKey(), withHash(e.getValue())))
+            .forEachOrdered(e -> builder.addEntry(e.getKey(), e.getValue()));
+        Manifest published = builder.build();
+
+        String topHash = published.calculateTopHash();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        published.serializeToOutputStream(out);
+        namespace.getVersions().resolve(topHash).putBytes(out.toByteArray());
+        byte[] tag = topHash.getBytes(StandardCharsets.UTF_8);
+        namespace.getPath().resolve("" + System.currentTimeMillis() / 1000L).putBytes(tag);
+        namespace.getPath().resolve("latest").putBytes(tag);
+        namespace.invalidateTag("latest");
+        return published;
+    }
+
+    private void install(Manifest manifest, Path dest) throws Exception {
+        if (!isLocal()) {
+            manifest.install(dest);
+            return;
+        }
+
+        for (Map.Entry<String, Entry> e : manifest.getEntries().entrySet()) {
+            Path target = dest.resolve(e.getKey());
+            Files.createDirectories(target.getParent());
+            Files.copy(Path.of(((LocalPhysicalKey) e.getValue().getPhysicalKey()).getPath()), target);
+        }
+    }
+
+    private static Entry withHash(Entry entry) {
+        try {
+            return entry.withHash();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> T time(LatencyRecorder recorder, long bytes, Operation<T> operation) {
+        long start = System.nanoTime();
+        try {
+            T result = operation.run();
+            recorder.record(System.nanoTime() - start, bytes);
+            return result;
+        } catch (Exception e) {
+            recorder.recordError();
+            System.err.println(recorder.getOperation() + " failed: " + e);
+            return null;
+        }
+    }
+
+    private boolean isLocal() {
+        return options.get("backend").equals("local");
+    }
+
+    private int intOption(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+}
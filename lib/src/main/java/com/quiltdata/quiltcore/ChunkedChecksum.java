@@ -0,0 +1,73 @@
+package com.quiltdata.quiltcore;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Helpers for the {@link Entry.HashType#SHA2_256_Chunked} checksum used by quilt3.
+ *
+ * <p>
+ * The object is split into parts of {@link #getChunkSize(long)} bytes, each part is hashed
+ * with SHA-256, and the checksum is the base64-encoded SHA-256 of the concatenated part digests.
+ * Because every part is hashed independently, the checksum can be computed from byte ranges
+ * downloaded in parallel.
+ * </p>
+ */
+public class ChunkedChecksum {
+    /**
+     * The smallest part size used by the chunked checksum.
+     */
+    public static final long MIN_CHUNK_SIZE = 8L * 1024 * 1024;
+
+    /**
+     * The maximum number of parts; the part size is doubled until the object fits.
+     */
+    public static final int MAX_PARTS = 10000;
+
+    private ChunkedChecksum() {
+    }
+
+    /**
+     * Returns the part size quilt3 uses when computing the chunked checksum of an object.
+     *
+     * @param size The size of the object in bytes.
+     * @return The part size in bytes.
+     */
+    public static long getChunkSize(long size) {
+        long chunkSize = MIN_CHUNK_SIZE;
+        while ((size + chunkSize - 1) / chunkSize > MAX_PARTS) {
+            chunkSize *= 2;
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Returns a new SHA-256 digest.
+     *
+     * @return The digest.
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // This should never happen, and if it does happen, there's nothing we can do.
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Combines the SHA-256 digests of consecutive parts into the chunked checksum.
+     *
+     * @param partDigests The digests of each part, in order.
+     * @return The chunked checksum.
+     */
+    public static Entry.Hash combine(byte[][] partDigests) {
+        MessageDigest digest = newDigest();
+        for (byte[] partDigest : partDigests) {
+            digest.update(partDigest);
+        }
+        String value = Base64.getEncoder().encodeToString(digest.digest());
+        return new Entry.Hash(Entry.HashType.SHA2_256_Chunked, value);
+    }
+}
@@ -0,0 +1,270 @@
+package com.quiltdata.quiltcore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * An index of the directories formed by the logical keys of a manifest.
+ *
+ * <p>
+ * The index is built in one pass over the entries, the first time {@link Manifest#getDirectoryIndex()} is
+ * called. Afterwards, looking up a directory is a hash lookup, its children are listed without visiting
+ * the rest of the package, and the total size and number of files below it are precomputed. A directory
+ * is named by its logical key prefix, with or without the trailing {@code /}; the root is {@code ""}.
+ * </p>
+ * <p>
+ * {@link #glob(String)} walks the tree one path segment at a time, so it only visits the directories
+ * that can contain matches: literal segments are looked up, and only {@code **} visits whole subtrees.
+ * </p>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * DirectoryIndex.Directory dir = manifest.getDirectoryIndex().getDirectory("data/2024/");
+ * for (DirectoryIndex.Directory child : dir.getDirectories()) {
+ *     System.out.println(child.getPath() + " " + child.getFileCount() + " files, " + child.getTotalSize() + " bytes");
+ * }
+ * SortedMap<String, Entry> csvs = manifest.getDirectoryIndex().glob("data/2024/*.csv");
+ * }</pre>
+ */
+public final class DirectoryIndex {
+    /**
+     * A directory of the index.
+     */
+    public static final class Directory {
+        private final String path;
+        private final Directory parent;
+        private final SortedMap<String, Directory> children = new TreeMap<>();
+        private PersistentSortedMap.Builder<String, Entry> filesBuilder = PersistentSortedMap.builder();
+        private PersistentSortedMap<String, Entry> files;
+        private long totalSize;
+        private long fileCount;
+
+        private Directory(String path, Directory parent) {
+            this.path = path;
+            this.parent = parent;
+        }
+
+        /**
+         * Returns the logical key prefix of the directory, such as {@code a/b/}, or {@code ""} for the root.
+         *
+         * @return The path.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the name of the directory, without its parents' names or slashes.
+         *
+         * @return The name, or {@code ""} for the root.
+         */
+        public String getName() {
+            if (path.isEmpty()) {
+                return path;
+            }
+            return path.substring(path.lastIndexOf('/', path.length() - 2) + 1, path.length() - 1);
+        }
+
+        /**
+         * Returns the subdirectories, sorted by name.
+         *
+         * @return The subdirectories.
+         */
+        public List<Directory> getDirectories() {
+            return List.copyOf(children.values());
+        }
+
+        /**
+         * Returns the files directly in the directory, by logical key.
+         *
+         * @return The files.
+         */
+        public SortedMap<String, Entry> getFiles() {
+            return files;
+        }
+
+        /**
+         * Returns the total size of the files in the directory and its subdirectories.
+         *
+         * @return The size in bytes.
+         */
+        public long getTotalSize() {
+            return totalSize;
+        }
+
+        /**
+         * Returns the number of files in the directory and its subdirectories.
+         *
+         * @return The number of files.
+         */
+        public long getFileCount() {
+            return fileCount;
+        }
+
+        @Override
+        public String toString() {
+            return path;
+        }
+    }
+
+    private final Map<String, Directory> directories = new HashMap<>();
+    private final Directory root;
+
+    private DirectoryIndex(SortedMap<String, Entry> entries) {
+        root = new Directory("", null);
+        directories.put("", root);
+
+        Directory current = root;
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            String logicalKey = e.getKey();
+            Entry entry = e.getValue();
+            // Keys are sorted, so consecutive files usually share their directory.
+            if (!logicalKey.startsWith(current.path) || logicalKey.indexOf('/', current.path.length()) >= 0) {
+                current = getOrCreate(logicalKey.substring(0, logicalKey.lastIndexOf('/') + 1));
+            }
+            current.filesBuilder.put(logicalKey, entry);
+            for (Directory d = current; d != null; d = d.parent) {
+                d.totalSize += entry.getSize();
+                d.fileCount++;
+            }
+        }
+        for (Directory d : directories.values()) {
+            d.files = d.filesBuilder.build();
+            d.filesBuilder = null;
+        }
+    }
+
+    /**
+     * Builds the index of a manifest's entries.
+     *
+     * @param entries The entries.
+     * @return The index.
+     */
+    static DirectoryIndex of(SortedMap<String, Entry> entries) {
+        return new DirectoryIndex(entries);
+    }
+
+    private Directory getOrCreate(String path) {
+        Directory directory = directories.get(path);
+        if (directory == null) {
+            Directory parent = getOrCreate(path.substring(0, path.lastIndexOf('/', path.length() - 2) + 1));
+            directory = new Directory(path, parent);
+            directories.put(path, directory);
+            parent.children.put(directory.getName(), directory);
+        }
+        return directory;
+    }
+
+    /**
+     * Returns the root directory.
+     *
+     * @return The root.
+     */
+    public Directory getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns a directory.
+     *
+     * @param path The logical key prefix of the directory, with or without a trailing {@code /}.
+     * @return The directory, or null if no logical key starts with it.
+     */
+    public Directory getDirectory(String path) {
+        if (!path.isEmpty() && !path.endsWith("/")) {
+            path += "/";
+        }
+        return directories.get(path);
+    }
+
+    /**
+     * Returns the entries whose logical keys match a glob. Each segment of the glob between slashes is matched
+     * against one segment of the logical keys: {@code *} and {@code ?} match within a segment, and a {@code **}
+     * segment matches any number of directories. Alternatives in braces must not contain slashes.
+     *
+     * @param glob The glob, such as {@code data/2024/part-*.parquet} or {@code data/**}.
+     * @return The matching entries, by logical key.
+     */
+    public SortedMap<String, Entry> glob(String glob) {
+        String[] segments = glob.split("/", -1);
+        Pattern[] patterns = new Pattern[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            if (!segments[i].equals("**") && !isLiteral(segments[i])) {
+                patterns[i] = Pattern.compile(DirectoryScanner.globToRegex(segments[i]));
+            }
+        }
+        Map<String, Entry> matches = new HashMap<>();
+        match(root, segments, patterns, 0, matches);
+
+        List<String> keys = new ArrayList<>(matches.keySet());
+        Collections.sort(keys);
+        PersistentSortedMap.Builder<String, Entry> result = PersistentSortedMap.builder();
+        for (String key : keys) {
+            result.put(key, matches.get(key));
+        }
+        return result.build();
+    }
+
+    private static boolean isLiteral(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if ("*?[]{}\\".indexOf(segment.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void match(Directory dir, String[] segments, Pattern[] patterns, int i, Map<String, Entry> matches) {
+        String segment = segments[i];
+        boolean last = i == segments.length - 1;
+        if (segment.equals("**")) {
+            if (last) {
+                addAll(dir, matches);
+                return;
+            }
+            // Either ** matches no more directories here, or it matches each child and possibly more.
+            match(dir, segments, patterns, i + 1, matches);
+            for (Directory child : dir.children.values()) {
+                match(child, segments, patterns, i, matches);
+            }
+        } else if (patterns[i] == null) {
+            if (last) {
+                String logicalKey = dir.path + segment;
+                Entry entry = dir.files.get(logicalKey);
+                if (entry != null) {
+                    matches.put(logicalKey, entry);
+                }
+            } else {
+                Directory child = dir.children.get(segment);
+                if (child != null) {
+                    match(child, segments, patterns, i + 1, matches);
+                }
+            }
+        } else if (last) {
+            for (Map.Entry<String, Entry> file : dir.files.entrySet()) {
+                if (patterns[i].matcher(file.getKey()).region(dir.path.length(), file.getKey().length()).matches()) {
+                    matches.put(file.getKey(), file.getValue());
+                }
+            }
+        } else {
+            for (Map.Entry<String, Directory> child : dir.children.entrySet()) {
+                if (patterns[i].matcher(child.getKey()).matches()) {
+                    match(child.getValue(), segments, patterns, i + 1, matches);
+                }
+            }
+        }
+    }
+
+    private static void addAll(Directory dir, Map<String, Entry> matches) {
+        matches.putAll(dir.files);
+        for (Directory child : dir.children.values()) {
+            addAll(child, matches);
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package com.quiltdata.quiltcore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lists the files of a directory tree, walking subdirectories concurrently.
+ *
+ * <p>
+ * Each directory is listed by its own fork/join task, and the size and modification time of each file
+ * are read with a single attribute call. Every task collects the files of its directory into its own list,
+ * so there is no shared map to lock; the lists are concatenated and sorted by logical key once the walk
+ * is done. Logical keys are relative to the root and always use {@code /} as the separator.
+ * </p>
+ * <p>
+ * Files can be selected with a regular expression or a glob matched against the whole logical key, and
+ * excluded by ignore files. Symbolic links to files are included; symbolic links to directories
+ * are not followed.
+ * </p>
+ *
+ * <h2>Ignore files</h2>
+ * <p>
+ * With {@link Builder#setIgnoreFileName(String)}, an ignore file (e.g. {@code .quiltignore}) in any
+ * directory excludes paths below that directory, using a subset of the {@code .gitignore} syntax:
+ * </p>
+ * <ul>
+ * <li>Blank lines and lines starting with {@code #} are ignored.</li>
+ * <li>A pattern without a {@code /} (other than a trailing one) matches a file or directory name at any level;
+ * otherwise it matches a path relative to the directory of the ignore file.</li>
+ * <li>A trailing {@code /} only matches directories. Ignored directories are not walked.</li>
+ * <li>A leading {@code !} re-includes a path excluded by an earlier pattern; the last matching pattern wins.</li>
+ * <li>Patterns are globs: {@code *} and {@code ?} don't match {@code /}, {@code **} matches any number
+ * of directories.</li>
+ * </ul>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * List<DirectoryScanner.ScannedFile> files = DirectoryScanner.builder()
+ *     .setGlob("{raw,processed}/**")
+ *     .setIgnoreFileName(".quiltignore")
+ *     .build()
+ *     .scan(dir);
+ * Manifest manifest = Manifest.BuildFromFiles(files, null);
+ * }</pre>
+ */
+public class DirectoryScanner {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryScanner.class);
+
+    /**
+     * The default number of threads listing directories; listing is bound by I/O rather than CPU.
+     */
+    public static final int DEFAULT_PARALLELISM = 16;
+
+    /**
+     * A file found by a scan.
+     */
+    public static final class ScannedFile {
+        private final String logicalKey;
+        private final Path path;
+        private final long size;
+        private final Instant lastModified;
+
+        ScannedFile(String logicalKey, Path path, long size, Instant lastModified) {
+            this.logicalKey = logicalKey;
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Returns the path of the file relative to the root, with {@code /} as the separator.
+         *
+         * @return The logical key.
+         */
+        public String getLogicalKey() {
+            return logicalKey;
+        }
+
+        /**
+         * Returns the path of the file.
+         *
+         * @return The path.
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the size of the file.
+         *
+         * @return The size in bytes.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the modification time of the file.
+         *
+         * @return The modification time.
+         */
+        public Instant getLastModified() {
+            return lastModified;
+        }
+    }
+
+    /**
+     * Represents a builder for creating a {@link DirectoryScanner} object.
+     */
+    public static class Builder {
+        private Pattern filter;
+        private Pattern glob;
+        private String ignoreFileName;
+        private int parallelism = DEFAULT_PARALLELISM;
+
+        /**
+         * Only includes files whose whole logical key matches a regular expression.
+         *
+         * @param regex The regular expression, or null to include all files.
+         * @return This builder.
+         */
+        public Builder setFilter(String regex) {
+            this.filter = regex == null ? null : Pattern.compile(regex);
+            return this;
+        }
+
+        /**
+         * Only includes files whose whole logical key matches a glob, such as {@code data/**}.
+         *
+         * @param glob The glob, or null to include all files.
+         * @return This builder.
+         */
+        public Builder setGlob(String glob) {
+            this.glob = glob == null ? null : Pattern.compile(globToRegex(glob));
+            return this;
+        }
+
+        /**
+         * Sets the name of the ignore files to honor, such as {@code .quiltignore}.
+         *
+         * @param ignoreFileName The file name, or null to not read ignore files.
+         * @return This builder.
+         */
+        public Builder setIgnoreFileName(String ignoreFileName) {
+            this.ignoreFileName = ignoreFileName;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads listing directories.
+         *
+         * @param parallelism The number of threads.
+         * @return This builder.
+         */
+        public Builder setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Builds a {@link DirectoryScanner} object.
+         *
+         * @return The built {@link DirectoryScanner} object.
+         */
+        public DirectoryScanner build() {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism must be at least 1");
+            }
+            return new DirectoryScanner(this);
+        }
+    }
+
+    private final Pattern filter;
+    private final Pattern glob;
+    private final String ignoreFileName;
+    private final int parallelism;
+
+    private DirectoryScanner(Builder builder) {
+        filter = builder.filter;
+        glob = builder.glob;
+        ignoreFileName = builder.ignoreFileName;
+        parallelism = builder.parallelism;
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the DirectoryScanner class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Lists the selected files of a directory tree.
+     *
+     * @param root The root of the tree.
+     * @return The files, sorted by logical key.
+     * @throws IOException If a directory or an ignore file can't be read.
+     */
+    public List<ScannedFile> scan(Path root) throws IOException {
+        Queue<List<ScannedFile>> results = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ScanTask(root, "", IgnoreRules.NONE, results));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+
+        int count = 0;
+        for (List<ScannedFile> files : results) {
+            count += files.size();
+        }
+        ScannedFile[] all = new ScannedFile[count];
+        int i = 0;
+        for (List<ScannedFile> files : results) {
+            for (ScannedFile file : files) {
+                all[i++] = file;
+            }
+        }
+        Arrays.parallelSort(all, Comparator.comparing(ScannedFile::getLogicalKey));
+        logger.debug("Scanned {} files under {}", count, root);
+        return Arrays.asList(all);
+    }
+
+    private boolean isSelected(String logicalKey) {
+        return (filter == null || filter.matcher(logicalKey).matches())
+            && (glob == null || glob.matcher(logicalKey).matches());
+    }
+
+    private class ScanTask extends RecursiveAction {
+        private final Path dir;
+        private final String prefix;
+        private final IgnoreRules inheritedRules;
+        private final Queue<List<ScannedFile>> results;
+
+        ScanTask(Path dir, String prefix, IgnoreRules inheritedRules, Queue<List<ScannedFile>> results) {
+            this.dir = dir;
+            this.prefix = prefix;
+            this.inheritedRules = inheritedRules;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                scanDirectory();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void scanDirectory() throws IOException {
+            IgnoreRules rules = inheritedRules;
+            if (ignoreFileName != null) {
+                Path ignoreFile = dir.resolve(ignoreFileName);
+                if (Files.isRegularFile(ignoreFile)) {
+                    rules = rules.with(prefix, Files.readAllLines(ignoreFile, StandardCharsets.UTF_8));
+                }
+            }
+
+            List<ScannedFile> files = new ArrayList<>();
+            List<ScanTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+                for (Path child : children) {
+                    String logicalKey = prefix + child.getFileName().toString();
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (attrs.isSymbolicLink()) {
+                            attrs = Files.readAttributes(child, BasicFileAttributes.class);
+                            if (attrs.isDirectory()) {
+                                continue;
+                            }
+                        }
+                    } catch (IOException e) {
+                        logger.error("Skipping entry[{}]: failed to read attributes of path {}", logicalKey, child, e);
+                        continue;
+                    }
+
+                    if (attrs.isDirectory()) {
+                        if (!rules.isIgnored(logicalKey, true)) {
+                            subdirectories.add(new ScanTask(child, logicalKey + "/", rules, results));
+                        }
+                    } else if (attrs.isRegularFile() && !rules.isIgnored(logicalKey, false) && isSelected(logicalKey)) {
+                        files.add(new ScannedFile(logicalKey, child, attrs.size(), attrs.lastModifiedTime().toInstant()));
+                    }
+                }
+            }
+            if (!files.isEmpty()) {
+                results.add(files);
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+    /**
+     * The ignore patterns that apply to a directory: those of its ignore file and of its ancestors'.
+     */
+    private static final class IgnoreRules {
+        static final IgnoreRules NONE = new IgnoreRules(List.of());
+
+        private final List<Rule> rules;
+
+        private IgnoreRules(List<Rule> rules) {
+            this.rules = rules;
+        }
+
+        IgnoreRules with(String base, List<String> lines) {
+            List<Rule> combined = new ArrayList<>(rules);
+            for (String line : lines) {
+                Rule rule = Rule.parse(base, line);
+                if (rule != null) {
+                    combined.add(rule);
+                }
+            }
+            return new IgnoreRules(combined);
+        }
+
+        boolean isIgnored(String logicalKey, boolean isDirectory) {
+            boolean ignored = false;
+            for (Rule rule : rules) {
+                if (rule.matches(logicalKey, isDirectory)) {
+                    ignored = !rule.negated;
+                }
+            }
+            return ignored;
+        }
+    }
+
+    private static final class Rule {
+        private final String base;
+        private final Pattern pattern;
+        private final boolean anchored;
+        private final boolean directoryOnly;
+        private final boolean negated;
+
+        private Rule(String base, Pattern pattern, boolean anchored, boolean directoryOnly, boolean negated) {
+            this.base = base;
+            this.pattern = pattern;
+            this.anchored = anchored;
+            this.directoryOnly = directoryOnly;
+            this.negated = negated;
+        }
+
+        static Rule parse(String base, String line) {
+            String text = line.stripTrailing();
+            if (text.isEmpty() || text.startsWith("#")) {
+                return null;
+            }
+            boolean negated = text.startsWith("!");
+            if (negated) {
+                text = text.substring(1);
+            }
+            boolean directoryOnly = text.endsWith("/");
+            if (directoryOnly) {
+                text = text.substring(0, text.length() - 1);
+            }
+            boolean anchored = text.contains("/");
+            if (text.startsWith("/")) {
+                text = text.substring(1);
+            }
+            if (text.isEmpty()) {
+                return null;
+            }
+            return new Rule(base, Pattern.compile(globToRegex(text)), anchored, directoryOnly, negated);
+        }
+
+        boolean matches(String logicalKey, boolean isDirectory) {
+            if (directoryOnly && !isDirectory) {
+                return false;
+            }
+            if (!logicalKey.startsWith(base)) {
+                return false;
+            }
+            String path = logicalKey.substring(base.length());
+            String subject = anchored ? path : path.substring(path.lastIndexOf('/') + 1);
+            return pattern.matcher(subject).matches();
+        }
+    }
+
+    /**
+     * Translates a glob into a regular expression matching whole logical keys.
+     *
+     * @param glob The glob.
+     * @return The regular expression.
+     */
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int braces = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            regex.append("(?:.*/)?");
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    int end = glob.indexOf(']', i + 2);
+                    if (end < 0) {
+                        regex.append("\\[");
+                    } else {
+                        String set = glob.substring(i + 1, end);
+                        if (set.startsWith("!")) {
+                            set = "^" + set.substring(1);
+                        }
+                        regex.append('[').append(set.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                        i = end;
+                    }
+                    break;
+                case '{':
+                    braces++;
+                    regex.append("(?:");
+                    break;
+                case '}':
+                    if (braces > 0) {
+                        braces--;
+                        regex.append(')');
+                    } else {
+                        regex.append("\\}");
+                    }
+                    break;
+                case ',':
+                    regex.append(braces > 0 ? "|" : ",");
+                    break;
+                case '\\':
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    } else {
+                        regex.append("\\\\");
+                    }
+                    break;
+                default:
+                    if ("().+^$|".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+                    break;
+            }
+        }
+        for (; braces > 0; braces--) {
+            regex.append(')');
+        }
+        return regex.toString();
+    }
+}
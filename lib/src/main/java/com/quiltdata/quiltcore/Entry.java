@@ -4,10 +4,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.quiltdata.quiltcore.key.PhysicalKey;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import com.quiltdata.quiltcore.metrics.Timer;
 
 import software.amazon.awssdk.utils.BinaryUtils;
 import org.slf4j.Logger;
@@ -80,6 +86,23 @@ public class Entry {
             this.type = type;
             this.value = value;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Hash)) {
+                return false;
+            }
+            Hash other = (Hash) o;
+            return type == other.type && Objects.equals(value, other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, value);
+        }
     }
 
     private final PhysicalKey physicalKey; // The physical key of the entry
@@ -153,6 +176,26 @@ public class Entry {
         return metadata.deepCopy();
     }
 
+    /**
+     * Returns whether two entries have equal metadata, without copying it.
+     *
+     * @param other the other entry
+     * @return whether the metadata is equal
+     */
+    boolean hasSameMetadata(Entry other) {
+        return metadata.equals(other.metadata);
+    }
+
+    /**
+     * Returns a rough estimate of the memory used by the entry, including its physical key.
+     *
+     * @return the estimated footprint in bytes
+     */
+    long estimateFootprint() {
+        // Object headers, fields and the physical key strings, plus a guess for each metadata field.
+        return 256 + 128L * metadata.size();
+    }
+
     /**
      * Returns the entry as a byte array.
      *
@@ -175,9 +218,23 @@ public class Entry {
         if (hash != null) {
             return this;
         }
+        return withHash(HashType.SHA256);
+    }
+
+    /**
+     * Returns a new Entry object with a hash of the given type calculated for the entry.
+     *
+     * @param type the type of the hash
+     * @return this entry if it already has a hash of that type, or a new Entry object with the hash value calculated
+     * @throws IOException if an I/O error occurs
+     */
+    public Entry withHash(HashType type) throws IOException {
+        if (hash != null && hash.type == type) {
+            return this;
+        }
 
         MessageDigest digest;
-        logger.debug("Calculating hash for entry: {}", physicalKey);
+        logger.debug("Calculating {} hash for entry: {}", type, physicalKey);
         try {
             digest = MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
@@ -186,13 +243,40 @@ public class Entry {
             throw new RuntimeException(e);
         }
 
+        // A plain SHA-256 is a single part as long as the whole object.
+        long chunkSize = type == HashType.SHA2_256_Chunked ? ChunkedChecksum.getChunkSize(size) : Long.MAX_VALUE;
+        List<byte[]> partDigests = new ArrayList<>();
+        long chunkBytes = 0;
+
         logger.debug("Reading entry: {}", physicalKey);
-        try (InputStream in = physicalKey.getInputStream()) {
+        long total = 0;
+        try (
+            Timer.Sample sample = Metrics.timer(MetricNames.HASH_TIME).start();
+            InputStream in = physicalKey.getInputStream()
+        ) {
             byte[] buffer = new byte[4096];
             int count;
             while ((count = in.read(buffer)) != -1) {
-                digest.update(buffer, 0, count);
+                int offset = 0;
+                while (offset < count) {
+                    int n = (int) Math.min(count - offset, chunkSize - chunkBytes);
+                    digest.update(buffer, offset, n);
+                    offset += n;
+                    chunkBytes += n;
+                    if (chunkBytes == chunkSize) {
+                        partDigests.add(digest.digest());
+                        chunkBytes = 0;
+                    }
+                }
+                total += count;
+            }
+        }
+        Metrics.counter(MetricNames.HASH_BYTES).increment(total);
+        if (type == HashType.SHA2_256_Chunked) {
+            if (chunkBytes > 0) {
+                partDigests.add(digest.digest());
             }
+            return new Entry(physicalKey, size, ChunkedChecksum.combine(partDigests.toArray(new byte[0][])), metadata);
         }
         String hash = BinaryUtils.toHex(digest.digest());
         return new Entry(physicalKey, size, new Hash(HashType.SHA256, hash), metadata);
@@ -0,0 +1,143 @@
+package com.quiltdata.quiltcore;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts lines that may not fit in memory: lines are buffered, sorted and spilled to run files,
+ * which are merged when the sorted output is requested. Duplicate lines are dropped.
+ * Lines can be added from several threads.
+ */
+final class ExternalSorter implements Closeable {
+    private final Path tmpDir;
+    private final int maxBufferedLines;
+
+    private List<String> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private final List<BufferedReader> openReaders = new ArrayList<>();
+
+    /**
+     * Constructs a new ExternalSorter.
+     *
+     * @param tmpDir The directory for run files.
+     * @param maxBufferedLines The number of lines buffered in memory before they are spilled.
+     */
+    ExternalSorter(Path tmpDir, int maxBufferedLines) {
+        this.tmpDir = tmpDir;
+        this.maxBufferedLines = maxBufferedLines;
+    }
+
+    /**
+     * Adds a line, which must not contain line breaks.
+     *
+     * @param line The line.
+     * @throws IOException If the buffer had to be spilled and the run file can't be written.
+     */
+    synchronized void add(String line) throws IOException {
+        buffer.add(line);
+        if (buffer.size() >= maxBufferedLines) {
+            spill();
+        }
+    }
+
+    private void spill() throws IOException {
+        Collections.sort(buffer);
+        Path run = Files.createTempFile(tmpDir, "run", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+            for (String line : buffer) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+        runs.add(run);
+        buffer = new ArrayList<>();
+    }
+
+    /**
+     * Returns the added lines merged with other sorted inputs, in order and without duplicates.
+     *
+     * @param sortedInputs Additional inputs, each already sorted.
+     * @return The merged lines.
+     * @throws IOException If the run files can't be read.
+     */
+    synchronized Iterator<String> sorted(List<Iterator<String>> sortedInputs) throws IOException {
+        List<Iterator<String>> inputs = new ArrayList<>(sortedInputs);
+        Collections.sort(buffer);
+        inputs.add(buffer.iterator());
+        for (Path run : runs) {
+            BufferedReader reader = Files.newBufferedReader(run, StandardCharsets.UTF_8);
+            openReaders.add(reader);
+            inputs.add(reader.lines().iterator());
+        }
+
+        // Each queue element is the current line of an input, with the index of that input.
+        PriorityQueue<Map.Entry<String, Integer>> queue =
+            new PriorityQueue<>(Math.max(1, inputs.size()), Map.Entry.comparingByKey());
+        for (int i = 0; i < inputs.size(); i++) {
+            if (inputs.get(i).hasNext()) {
+                queue.add(Map.entry(inputs.get(i).next(), i));
+            }
+        }
+
+        return new Iterator<>() {
+            private String last = null;
+
+            private void skipDuplicates() {
+                while (!queue.isEmpty() && queue.peek().getKey().equals(last)) {
+                    advance();
+                }
+            }
+
+            private String advance() {
+                Map.Entry<String, Integer> head = queue.poll();
+                Iterator<String> input = inputs.get(head.getValue());
+                if (input.hasNext()) {
+                    queue.add(Map.entry(input.next(), head.getValue()));
+                }
+                return head.getKey();
+            }
+
+            @Override
+            public boolean hasNext() {
+                skipDuplicates();
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = advance();
+                return last;
+            }
+        };
+    }
+
+    /**
+     * Deletes the run files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (BufferedReader reader : openReaders) {
+            reader.close();
+        }
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        buffer = new ArrayList<>();
+    }
+}
@@ -0,0 +1,200 @@
+package com.quiltdata.quiltcore;
+
+import com.quiltdata.quiltcore.transfer.TransferProgressListener;
+
+/**
+ * Options controlling how {@link Manifest#install(java.nio.file.Path, InstallOptions)} downloads entries.
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * InstallOptions options = InstallOptions.builder()
+ *     .setLargeObjectThreshold(1L << 30)
+ *     .setVerifyHashes(true)
+ *     .build();
+ * manifest.install(dest, options);
+ * }</pre>
+ */
+public class InstallOptions {
+    /**
+     * The default size of byte ranges used for large objects.
+     */
+    public static final long DEFAULT_PART_SIZE = 8L * 1024 * 1024;
+
+    /**
+     * The default number of byte ranges downloaded at the same time for a large object.
+     */
+    public static final int DEFAULT_PART_CONCURRENCY = 16;
+
+    /**
+     * Represents a builder for creating an {@link InstallOptions} object.
+     */
+    public static class Builder {
+        private long largeObjectThreshold = Long.MAX_VALUE;
+        private long partSize = DEFAULT_PART_SIZE;
+        private int partConcurrency = DEFAULT_PART_CONCURRENCY;
+        private boolean verifyHashes = false;
+        private TransferProgressListener progressListener = TransferProgressListener.NO_OP;
+        private boolean logTransfers = false;
+
+        /**
+         * Sets the size at or above which an entry is downloaded with parallel ranged requests
+         * instead of the transfer manager. Disabled by default.
+         *
+         * @param largeObjectThreshold The threshold in bytes.
+         * @return This builder.
+         */
+        public Builder setLargeObjectThreshold(long largeObjectThreshold) {
+            this.largeObjectThreshold = largeObjectThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the size of byte ranges used for large objects.
+         *
+         * @param partSize The part size in bytes.
+         * @return This builder.
+         */
+        public Builder setPartSize(long partSize) {
+            this.partSize = partSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of byte ranges downloaded at the same time for a large object.
+         *
+         * @param partConcurrency The number of concurrent range requests.
+         * @return This builder.
+         */
+        public Builder setPartConcurrency(int partConcurrency) {
+            this.partConcurrency = partConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets whether large objects are checked against the hashes in the manifest.
+         *
+         * @param verifyHashes Whether to verify hashes.
+         * @return This builder.
+         */
+        public Builder setVerifyHashes(boolean verifyHashes) {
+            this.verifyHashes = verifyHashes;
+            return this;
+        }
+
+        /**
+         * Sets the listener receiving progress events for the whole install.
+         *
+         * @param progressListener The listener.
+         * @return This builder.
+         */
+        public Builder setProgressListener(TransferProgressListener progressListener) {
+            this.progressListener = progressListener == null ? TransferProgressListener.NO_OP : progressListener;
+            return this;
+        }
+
+        /**
+         * Sets whether the progress of every file is logged individually. Disabled by default.
+         *
+         * @param logTransfers Whether to log per-file progress.
+         * @return This builder.
+         */
+        public Builder setLogTransfers(boolean logTransfers) {
+            this.logTransfers = logTransfers;
+            return this;
+        }
+
+        /**
+         * Builds an {@link InstallOptions} object.
+         *
+         * @return The built {@link InstallOptions} object.
+         */
+        public InstallOptions build() {
+            if (partSize <= 0) {
+                throw new IllegalArgumentException("Part size must be positive");
+            }
+            if (partConcurrency <= 0) {
+                throw new IllegalArgumentException("Part concurrency must be positive");
+            }
+            return new InstallOptions(this);
+        }
+    }
+
+    private final long largeObjectThreshold;
+    private final long partSize;
+    private final int partConcurrency;
+    private final boolean verifyHashes;
+    private final TransferProgressListener progressListener;
+    private final boolean logTransfers;
+
+    private InstallOptions(Builder builder) {
+        largeObjectThreshold = builder.largeObjectThreshold;
+        partSize = builder.partSize;
+        partConcurrency = builder.partConcurrency;
+        verifyHashes = builder.verifyHashes;
+        progressListener = builder.progressListener;
+        logTransfers = builder.logTransfers;
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the InstallOptions class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the size at or above which an entry is downloaded with parallel ranged requests.
+     *
+     * @return The threshold in bytes.
+     */
+    public long getLargeObjectThreshold() {
+        return largeObjectThreshold;
+    }
+
+    /**
+     * Returns the size of byte ranges used for large objects.
+     *
+     * @return The part size in bytes.
+     */
+    public long getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * Returns the number of byte ranges downloaded at the same time for a large object.
+     *
+     * @return The number of concurrent range requests.
+     */
+    public int getPartConcurrency() {
+        return partConcurrency;
+    }
+
+    /**
+     * Returns whether large objects are checked against the hashes in the manifest.
+     *
+     * @return Whether to verify hashes.
+     */
+    public boolean isVerifyHashes() {
+        return verifyHashes;
+    }
+
+    /**
+     * Returns the listener receiving progress events for the whole install.
+     *
+     * @return The listener.
+     */
+    public TransferProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * Returns whether the progress of every file is logged individually.
+     *
+     * @return Whether to log per-file progress.
+     */
+    public boolean isLogTransfers() {
+        return logTransfers;
+    }
+}
@@ -0,0 +1,156 @@
+package com.quiltdata.quiltcore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Helpers for mapping lazily produced items with blocking I/O, a bounded number at a time.
+ */
+public final class LazyParallel {
+    /**
+     * A function that may throw an {@link IOException}.
+     *
+     * @param <T> The type of the input.
+     * @param <R> The type of the result.
+     */
+    @FunctionalInterface
+    interface IOFunction<T, R> {
+        R apply(T t) throws IOException;
+    }
+
+    /**
+     * A supplier that may throw an {@link IOException}.
+     *
+     * @param <R> The type of the result.
+     */
+    @FunctionalInterface
+    interface IOSupplier<R> {
+        R get() throws IOException;
+    }
+
+    /**
+     * A shared pool for blocking I/O; the number of tasks in flight is bounded by the callers.
+     */
+    static final ExecutorService IO_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "quiltcore-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private LazyParallel() {
+    }
+
+    /**
+     * Returns the shared pool for blocking I/O, for caches outside this package that read objects in the background.
+     *
+     * @return The executor.
+     */
+    public static Executor ioExecutor() {
+        return IO_EXECUTOR;
+    }
+
+    /**
+     * Runs a blocking call on the shared I/O pool.
+     *
+     * @param <R> The type of the result.
+     * @param call The call; an {@link IOException} completes the future exceptionally.
+     * @return A future completed with the result of the call.
+     */
+    static <R> CompletableFuture<R> supplyAsync(IOSupplier<R> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.get();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, IO_EXECUTOR);
+    }
+
+    /**
+     * Maps the items of the source with at most {@code concurrency} calls in flight, keeping the source order.
+     * Items are only pulled from the source as the returned stream is consumed, so short-circuiting
+     * operations such as {@code limit} stop the work early. Closing the stream cancels pending calls.
+     *
+     * @param <T> The type of the source items.
+     * @param <R> The type of the results.
+     * @param source The source items.
+     * @param concurrency The maximum number of calls in flight.
+     * @param fn The function to apply; an {@link IOException} is rethrown as {@link UncheckedIOException}.
+     * @return A sequential stream of the results.
+     */
+    static <T, R> Stream<R> mapOrdered(Iterator<T> source, int concurrency, IOFunction<T, R> fn) {
+        return mapOrdered(source, concurrency, IO_EXECUTOR, fn);
+    }
+
+    /**
+     * Same as {@link #mapOrdered(Iterator, int, IOFunction)}, running the calls on the given executor.
+     *
+     * @param <T> The type of the source items.
+     * @param <R> The type of the results.
+     * @param source The source items.
+     * @param concurrency The maximum number of calls in flight.
+     * @param executor The executor running the calls.
+     * @param fn The function to apply.
+     * @return A sequential stream of the results.
+     */
+    static <T, R> Stream<R> mapOrdered(Iterator<T> source, int concurrency, Executor executor, IOFunction<T, R> fn) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive");
+        }
+
+        Deque<CompletableFuture<R>> window = new ArrayDeque<>(concurrency);
+        Iterator<R> it = new Iterator<>() {
+            private void fill() {
+                while (window.size() < concurrency && source.hasNext()) {
+                    T item = source.next();
+                    window.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return fn.apply(item);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, executor));
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                fill();
+                return !window.isEmpty();
+            }
+
+            @Override
+            public R next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                CompletableFuture<R> future = window.poll();
+                try {
+                    return future.join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        };
+
+        return StreamSupport
+            .stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED), false)
+            .onClose(() -> window.forEach(f -> f.cancel(true)));
+    }
+}
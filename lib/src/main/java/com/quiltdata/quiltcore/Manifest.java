@@ -1,19 +1,19 @@
 package com.quiltdata.quiltcore;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
@@ -31,17 +31,27 @@ import com.pivovarit.function.ThrowingFunction;
 import com.quiltdata.quiltcore.key.LocalPhysicalKey;
 import com.quiltdata.quiltcore.key.PhysicalKey;
 import com.quiltdata.quiltcore.key.S3PhysicalKey;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import com.quiltdata.quiltcore.metrics.Timer;
 import com.quiltdata.quiltcore.ser.PythonDoubleSerializer;
+import com.quiltdata.quiltcore.storage.ObjectStore;
+import com.quiltdata.quiltcore.storage.ObjectStores;
+import com.quiltdata.quiltcore.storage.S3ObjectStore;
+import com.quiltdata.quiltcore.transfer.AdaptiveConcurrencyLimiter;
+import com.quiltdata.quiltcore.transfer.PrefixLimiters;
+import com.quiltdata.quiltcore.transfer.RangedDownloader;
+import com.quiltdata.quiltcore.transfer.TransferListenerAdapter;
+import com.quiltdata.quiltcore.transfer.TransferProgressListener;
 import com.quiltdata.quiltcore.workflows.ConfigurationException;
 import com.quiltdata.quiltcore.workflows.WorkflowConfig;
 import com.quiltdata.quiltcore.workflows.WorkflowException;
 import com.quiltdata.quiltcore.workflows.WorkflowValidator;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
-import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
-import software.amazon.awssdk.transfer.s3.model.CompletedFileDownload;
-import software.amazon.awssdk.transfer.s3.model.CompletedFileUpload;
+import software.amazon.awssdk.transfer.s3.model.Copy;
+import software.amazon.awssdk.transfer.s3.model.CopyRequest;
 import software.amazon.awssdk.transfer.s3.model.DownloadFileRequest;
 import software.amazon.awssdk.transfer.s3.model.FileDownload;
 import software.amazon.awssdk.transfer.s3.model.FileUpload;
@@ -137,13 +147,37 @@ public class Manifest {
      * 
      */
     public static Manifest FromQuiltURI(String quiltURI) throws URISyntaxException, IllegalArgumentException, IOException {
+        return FromQuiltURI(quiltURI, null, null);
+    }
+
+    /**
+     * Returns a Manifest for a URI of the form
+     * "quilt+s3://bucket#package=package{@literal @}hash{@literal &}path=path",
+     * resolving tags and manifests through the given caches.
+     * 
+     * @param quiltURI The URI to create the manifest from.
+     * @param tagCache The cache for resolving the revision, or null.
+     * @param manifestCache The cache for loading the manifest, or null.
+     * @return The created {@link Manifest} object.
+     * @throws IllegalArgumentException If the URI is invalid.
+     * 
+     */
+    public static Manifest FromQuiltURI(
+        String quiltURI,
+        TagCache tagCache,
+        ManifestCache manifestCache
+    ) throws URISyntaxException, IllegalArgumentException, IOException {
         URI uri = new URI(quiltURI);
         Map<String, String> parts = ParseQuiltURI(uri);
 
         String s3_uri = "s3://" + parts.get("bucket") + "/";
         URI s3_root = new URI(s3_uri);
         PhysicalKey p = PhysicalKey.fromUri(s3_root);
-        Registry r = new Registry(p);
+        Registry r = Registry.builder()
+            .setRoot(p)
+            .setTagCache(tagCache)
+            .setManifestCache(manifestCache)
+            .build();
         String pkg_handle = parts.get("package");
         Namespace n = r.getNamespace(pkg_handle);
 
@@ -241,28 +275,50 @@ public class Manifest {
         return b.build();
     }
 
+    /**
+     * Builds a {@link Manifest} from the files of a directory tree, listed with a {@link DirectoryScanner}.
+     *
+     * @param dir The root of the tree; logical keys are relative to it.
+     * @param user_meta Optional user metadata associated with the manifest. Can be {@code null}.
+     * @param regex A regular expression the whole logical key of a file must match, or {@code null} for all files.
+     * @return A manifest of the files, without hashes.
+     * @throws RuntimeException If the tree can't be listed.
+     */
     public static Manifest BuildFromDir(Path dir, Object user_meta, String regex) {
-        Map<String, Path> map = new TreeMap<>();
         try {
-            Files.walk(dir)
-                    .filter(Files::isRegularFile) // Filter regular files
-                    .forEach(f -> {
-                        String logicalKey = dir.relativize(f).toString();
-                        if (regex == null || logicalKey.matches(regex)) {
-                            map.put(logicalKey, f); // Add the entry to the map
-                        }
-                    });
+            return BuildFromFiles(DirectoryScanner.builder().setFilter(regex).build().scan(dir), user_meta);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        return BuildFromPaths(map, user_meta, null);
+    }
+
+    /**
+     * Builds a {@link Manifest} from the files found by a {@link DirectoryScanner}, using the sizes
+     * read during the scan.
+     *
+     * @param files The files.
+     * @param user_meta Optional user metadata associated with the manifest. Can be {@code null}.
+     * @return A manifest of the files, without hashes.
+     */
+    public static Manifest BuildFromFiles(List<DirectoryScanner.ScannedFile> files, Object user_meta) {
+        Manifest.Builder b = Manifest.builder();
+        b.setMetadata(FormatUserMeta(user_meta));
+        for (DirectoryScanner.ScannedFile file : files) {
+            b.addEntry(file.getLogicalKey(), new Entry(new LocalPhysicalKey(file.getPath()), file.getSize(), null, null));
+        }
+        return b.build();
     }
 
     /**
      * Represents a builder for creating a {@link Manifest} object.
+     *
+     * <p>
+     * A builder returned by {@link Manifest#toBuilder()} shares the entries of the original manifest,
+     * so adding, replacing or removing an entry costs O(log n) regardless of the size of the manifest.
+     * </p>
      */
     public static class Builder {
-        private final SortedMap<String, Entry> entries;
+        private final PersistentSortedMap.Builder<String, Entry> entries;
         private ObjectNode metadata;
 
         /**
@@ -270,10 +326,15 @@ public class Manifest {
          * Initializes the entries map and sets the metadata to null.
          */
         public Builder() {
-            entries = new TreeMap<>();
+            entries = PersistentSortedMap.builder();
             metadata = null;
         }
 
+        private Builder(Manifest manifest) {
+            entries = manifest.entries.toBuilder();
+            metadata = manifest.metadata;
+        }
+
         /**
          * Sets the metadata for the manifest.
          *
@@ -284,7 +345,7 @@ public class Manifest {
         }
 
         /**
-         * Adds an entry to the manifest.
+         * Adds an entry to the manifest, replacing any entry with the same key.
          *
          * @param key   The key of the entry.
          * @param entry The entry to add.
@@ -293,24 +354,35 @@ public class Manifest {
             entries.put(key, entry);
         }
 
+        /**
+         * Removes an entry from the manifest, if present.
+         *
+         * @param key The key of the entry.
+         */
+        public void removeEntry(String key) {
+            entries.remove(key);
+        }
+
         /**
          * Builds a {@link Manifest} object using the provided entries and metadata.
+         * The builder can still be used afterwards, without affecting the built manifest.
          *
          * @return The built {@link Manifest} object.
          */
         public Manifest build() {
             logger.info("Building manifest with {} entries", entries.size());
             return new Manifest(
-                Collections.unmodifiableSortedMap(entries),
+                entries.build(),
                 metadata == null ? JsonNodeFactory.instance.objectNode().put("version", VERSION) : metadata.deepCopy()
             );
         }
     }
 
-    private final SortedMap<String, Entry> entries;
+    private final PersistentSortedMap<String, Entry> entries;
     private final ObjectNode metadata;
+    private volatile DirectoryIndex directoryIndex;
 
-    private Manifest(SortedMap<String, Entry> entries, ObjectNode metadata) {
+    private Manifest(PersistentSortedMap<String, Entry> entries, ObjectNode metadata) {
         this.entries = entries;
         this.metadata = metadata;
     }
@@ -324,6 +396,16 @@ public class Manifest {
         return new Builder();
     }
 
+    /**
+     * Returns a {@link Builder} initialized with the entries and metadata of this manifest,
+     * for deriving a new version of it. The entries are shared rather than copied.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
     /**
      * Creates a {@link Manifest} object from a file.
      * 
@@ -333,51 +415,23 @@ public class Manifest {
      * @throws IllegalArgumentException If the URI is invalid.
      */
     public static Manifest createFromFile(PhysicalKey path) throws IOException, IllegalArgumentException, URISyntaxException {
-        Builder builder = builder();
-
-        ObjectMapper mapper = new ObjectMapper();
-
-        logger.debug("Reading manifest from {}", path);
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(path.getInputStream()))) {
-            String header = reader.readLine();
-            JsonNode node = mapper.readTree(header);
-            if (!node.isObject()) {
-                throw new IOException("Invalid manifest metadata: " + node);
-            }
-            ObjectNode manifestMeta = (ObjectNode)node;
-            String version = manifestMeta.get("version").asText();
-            if (!version.equals(VERSION)) {
-                throw new IOException("Unsupported manifest version: " + version);
-            }
-            builder.setMetadata(manifestMeta);
+        Manifest manifest;
+        try (Timer.Sample sample = Metrics.timer(MetricNames.MANIFEST_PARSE).start()) {
+            manifest = parse(path);
+        }
+        Metrics.histogram(MetricNames.MANIFEST_ENTRIES).record(manifest.entries.size());
+        return manifest;
+    }
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                JsonNode row = mapper.readTree(line);
+    private static Manifest parse(PhysicalKey path) throws IOException, IllegalArgumentException, URISyntaxException {
+        Builder builder = builder();
 
-                String logicalKey = row.get("logical_key").asText();
-                JsonNode physicalKeysNode = row.get("physical_keys");
-                if (physicalKeysNode == null) {
-                    // TODO: Handle directory-level metadata?
-                    continue;
-                }
-                String physicalKeyString = physicalKeysNode.get(0).asText();
-                PhysicalKey physicalKey = PhysicalKey.fromUri(new URI(physicalKeyString));
-                long size = row.get("size").asLong();
-                JsonNode hashNode = row.get("hash");
-                Entry.HashType hashType = Entry.HashType.enumFor(hashNode.get("type").asText());
-                String hashValue = hashNode.get("value").asText();
-                JsonNode meta = row.get("meta");
-                if (meta != null) {
-                    if (meta.isNull()) {
-                        meta = null;
-                    } else if (!meta.isObject()) {
-                        throw new IOException("Invalid entry metadata: " + node);
-                    }
-                }
+        try (ManifestReader reader = ManifestReader.open(path)) {
+            builder.setMetadata(reader.getMetadata());
 
-                Entry entry = new Entry(physicalKey, size, new Entry.Hash(hashType, hashValue), (ObjectNode)meta);
-                builder.addEntry(logicalKey, entry);
+            ManifestReader.Row row;
+            while ((row = reader.next()) != null) {
+                builder.addEntry(row.logicalKey, row.entry);
             }
         }
 
@@ -391,6 +445,12 @@ public class Manifest {
      * @throws IOException If an I/O error occurs.
      */
     public void serializeToOutputStream(OutputStream out) throws IOException {
+        try (Timer.Sample sample = Metrics.timer(MetricNames.MANIFEST_SERIALIZE).start()) {
+            serialize(out);
+        }
+    }
+
+    private void serialize(OutputStream out) throws IOException {
         ObjectMapper mapper = new ObjectMapper();
 
         String version = metadata.get("version").asText();
@@ -488,6 +548,50 @@ public class Manifest {
         return entries;
     }
 
+    /**
+     * Returns the index of the directories formed by the logical keys, building it on first use.
+     *
+     * @return The directory index.
+     */
+    public DirectoryIndex getDirectoryIndex() {
+        DirectoryIndex index = directoryIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = directoryIndex;
+                if (index == null) {
+                    index = DirectoryIndex.of(entries);
+                    directoryIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Compares this manifest with a newer one in a single pass over both.
+     *
+     * @param newer The newer manifest.
+     * @return The entries added, removed, modified or with changed metadata in the newer manifest.
+     * @see ManifestDiff
+     */
+    public ManifestDiff diff(Manifest newer) {
+        return ManifestDiff.compare(this, newer);
+    }
+
+    /**
+     * Returns a rough estimate of the memory used by the manifest, for sizing caches.
+     *
+     * @return The estimated footprint in bytes.
+     */
+    long estimateFootprint() {
+        long footprint = 1024 + 128L * metadata.size();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            // Tree map node, plus the logical key as a UTF-16 string; the physical key usually repeats it.
+            footprint += 64 + 4L * e.getKey().length() + e.getValue().estimateFootprint();
+        }
+        return footprint;
+    }
+
     /**
      * Returns the metadata in the manifest.
      * @return {@link ObjectNode}
@@ -512,6 +616,22 @@ public class Manifest {
      * @throws IOException If an I/O error occurs.
      */
     public void install(Path dest) throws IOException {
+        install(dest, InstallOptions.builder().build());
+    }
+
+    /**
+     * Installs the manifest to the specified destination.
+     *
+     * <p>
+     * Entries at or above {@link InstallOptions#getLargeObjectThreshold()} are downloaded one at a time
+     * using parallel ranged requests, while the transfer manager downloads the remaining entries.
+     * </p>
+     *
+     * @param dest The destination to install the manifest to.
+     * @param options The options controlling the downloads.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void install(Path dest, InstallOptions options) throws IOException {
         logger.info("Installing manifest with {} entries to {}", entries.size(), dest);
         // TODO: save the manifest to the local registry?
 
@@ -526,6 +646,21 @@ public class Manifest {
                 })
             ));
 
+        TransferProgressListener listener = options.getProgressListener();
+        listener.operationStarted(entries.size(), entries.values().stream().mapToLong(Entry::getSize).sum());
+
+        try {
+            installByBucket(dest, options, entriesByBucket);
+        } finally {
+            listener.operationCompleted();
+        }
+    }
+
+    private void installByBucket(
+        Path dest,
+        InstallOptions options,
+        Map<String, List<Map.Entry<String, Entry>>> entriesByBucket
+    ) throws IOException {
         // Ideally, we would parallelize all downloads, but S3TransferManager is per-region.
         // But, a single-bucket manifest is the common case, so group all paths by buckets,
         // then parallelize everything within the bucket.
@@ -533,42 +668,81 @@ public class Manifest {
             String bucket = e.getKey();
             List<Map.Entry<String, Entry>> bucketEntries = e.getValue();
 
-            S3AsyncClient s3;
-            try {
-                s3 = S3ClientStore.getAsyncClient(bucket);
-            } catch (S3Exception ex) {
-                throw new IOException("Install failed", ex.getCause());
+            // Buckets routed to another object store are read through it rather than the transfer manager.
+            ObjectStore store = ObjectStores.forBucket(bucket);
+            S3AsyncClient s3 = null;
+            if (store instanceof S3ObjectStore) {
+                try {
+                    s3 = S3ClientStore.getAsyncClient(bucket);
+                } catch (S3Exception ex) {
+                    throw new IOException("Install failed", ex.getCause());
+                }
+                logger.debug("Building transfer manager for bucket: {}", bucket);
             }
 
-            logger.debug("Building transfer manager for bucket: {}", bucket);
             try(
                 S3TransferManager transferManager =
-                    S3TransferManager.builder()
+                    s3 == null ? null : S3TransferManager.builder()
                         .s3Client(s3)
                         .build()
             ) {
-                List<CompletableFuture<CompletedFileDownload>> futures = new ArrayList<>(bucketEntries.size());
+                List<CompletableFuture<?>> futures = new ArrayList<>(bucketEntries.size());
+                List<Map.Entry<String, Entry>> largeEntries = new ArrayList<>();
 
                 for (Map.Entry<String, Entry> e2 : bucketEntries) {
                     String logicalKey = e2.getKey();
                     Entry entry = e2.getValue();
-                    String key = ((S3PhysicalKey)entry.getPhysicalKey()).getKey();
+                    if (entry.getSize() >= options.getLargeObjectThreshold()) {
+                        largeEntries.add(e2);
+                        continue;
+                    }
+                    S3PhysicalKey src = (S3PhysicalKey)entry.getPhysicalKey();
+                    String key = src.getKey();
 
                     Path entryDest = resolveDest(dest, logicalKey);
 
                     logger.debug("Downloading key[{}] from bucket: {}", key, bucket);
-                    DownloadFileRequest downloadFileRequest =
+                    AdaptiveConcurrencyLimiter limiter = PrefixLimiters.forKey(bucket, key);
+                    AdaptiveConcurrencyLimiter.AttemptListener attempts =
+                        TransferListenerAdapter.attemptListener(bucket, options.getProgressListener());
+                    if (transferManager == null) {
+                        futures.add(limiter.executeAsync(
+                            () -> LazyParallel.supplyAsync(() -> downloadFromStore(store, src, entry.getSize(), entryDest, options)),
+                            attempts
+                        ));
+                        continue;
+                    }
+
+                    DownloadFileRequest.Builder downloadFileRequestBuilder =
                         DownloadFileRequest.builder()
                             .getObjectRequest(b -> b.bucket(bucket).key(key))
-                            .addTransferListener(LoggingTransferListener.create())
-                            .destination(entryDest)
-                            .build();
+                            .addTransferListener(new TransferListenerAdapter(bucket, entry.getSize(), options.getProgressListener()))
+                            .destination(entryDest);
+                    if (options.isLogTransfers()) {
+                        downloadFileRequestBuilder.addTransferListener(LoggingTransferListener.create());
+                    }
+                    DownloadFileRequest downloadFileRequest = downloadFileRequestBuilder.build();
+
+                    // Waits for a slot if S3 is throttling the prefix, rather than queuing everything at once.
+                    futures.add(limiter.executeAsync(() -> {
+                        FileDownload downloadFile = transferManager.downloadFile(downloadFileRequest);
+                        return recordS3Transfer("DownloadFile", downloadFile.completionFuture()).whenComplete((completed, error) -> {
+                            if (completed != null) {
+                                Long length = completed.response().contentLength();
+                                Metrics.counter(MetricNames.S3_BYTES_READ).increment(length != null ? length : entry.getSize());
+                            }
+                        });
+                    }, attempts));
+                }
 
-                    FileDownload downloadFile = transferManager.downloadFile(downloadFileRequest);
-                    futures.add(downloadFile.completionFuture());
+                if (!largeEntries.isEmpty()) {
+                    RangedDownloader downloader = new RangedDownloader(options.getPartSize(), options.getPartConcurrency());
+                    for (Map.Entry<String, Entry> e2 : largeEntries) {
+                        installLargeEntry(downloader, dest, e2.getKey(), e2.getValue(), options);
+                    }
                 }
 
-                for (CompletableFuture<CompletedFileDownload> future : futures) {
+                for (CompletableFuture<?> future : futures) {
                     future.join();
                 }
             } catch (CompletionException ex) {
@@ -577,6 +751,190 @@ public class Manifest {
         }
     }
 
+    // Records each attempt of a transfer manager operation as it completes, like Metrics.recordS3Call.
+    private static <T> CompletableFuture<T> recordS3Transfer(String operation, CompletableFuture<T> transfer) {
+        Metrics.counter(MetricNames.s3Requests(operation)).increment();
+        Timer.Sample sample = Metrics.timer(MetricNames.s3Latency(operation)).start();
+        return transfer.whenComplete((result, error) -> {
+            sample.close();
+            if (error != null) {
+                Metrics.counter(MetricNames.s3Errors(operation)).increment();
+            }
+        });
+    }
+
+    private static Void downloadFromStore(
+        ObjectStore store,
+        S3PhysicalKey src,
+        long size,
+        Path dest,
+        InstallOptions options
+    ) throws IOException {
+        ObjectStore.GetResponse response = store.get(src.getBucket(), src.getKey(), src.getVersionId());
+        try (InputStream in = response.body) {
+            Files.copy(in, dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+        TransferProgressListener listener = options.getProgressListener();
+        listener.bytesTransferred(src.getBucket(), size);
+        listener.objectCompleted(src.getBucket(), size);
+        return null;
+    }
+
+    private void installLargeEntry(
+        RangedDownloader downloader,
+        Path dest,
+        String logicalKey,
+        Entry entry,
+        InstallOptions options
+    ) throws IOException {
+        Path entryDest = resolveDest(dest, logicalKey);
+        S3PhysicalKey src = (S3PhysicalKey)entry.getPhysicalKey();
+        Entry.Hash expected = options.isVerifyHashes() ? entry.getHash() : null;
+
+        logger.debug("Downloading large entry[{}] ({} bytes) from {}", logicalKey, entry.getSize(), src);
+        downloader.downloadVerified(src, entry.getSize(), entryDest, expected, options.getProgressListener());
+    }
+
+    private static CompletableFuture<S3PhysicalKey> uploadEntry(
+        S3TransferManager transferManager,
+        LocalPhysicalKey src,
+        long size,
+        String destBucket,
+        String destPath,
+        PushOptions options
+    ) throws IOException {
+        Path sourcePath = Path.of(src.getPath());
+        if (!Files.exists(sourcePath)) {
+            throw new IOException("Source file does not exist: " + sourcePath);
+        }
+
+        UploadFileRequest.Builder uploadFileRequestBuilder = UploadFileRequest.builder()
+            .putObjectRequest(req -> req.bucket(destBucket).key(destPath))
+            .addTransferListener(new TransferListenerAdapter(destBucket, size, options.getProgressListener()))
+            .source(sourcePath);
+        if (options.isLogTransfers()) {
+            uploadFileRequestBuilder.addTransferListener(LoggingTransferListener.create());
+        }
+
+        logger.debug("Uploading file to bucket: {}, key: {}", destBucket, destPath);
+        FileUpload uploadFile = transferManager.uploadFile(uploadFileRequestBuilder.build());
+        return recordS3Transfer("UploadFile", uploadFile.completionFuture()).thenApply(completed -> {
+            Metrics.counter(MetricNames.S3_BYTES_WRITTEN).increment(size);
+            return new S3PhysicalKey(destBucket, destPath, completed.response().versionId());
+        });
+    }
+
+    private static CompletableFuture<S3PhysicalKey> copyEntry(
+        S3TransferManager transferManager,
+        S3PhysicalKey src,
+        long size,
+        String destBucket,
+        String destPath,
+        PushOptions options
+    ) {
+        if (src.getBucket().equals(destBucket) && src.getKey().equals(destPath)) {
+            // Already in place, with or without a version ID; S3 rejects copying an object onto itself anyway.
+            logger.debug("Reusing object in place: {}", src);
+            TransferProgressListener listener = options.getProgressListener();
+            listener.bytesTransferred(destBucket, size);
+            listener.objectCompleted(destBucket, size);
+            return CompletableFuture.completedFuture(src);
+        }
+
+        // With the CRT-based client, the transfer manager switches to multipart UploadPartCopy for large objects.
+        CopyRequest.Builder copyRequestBuilder = CopyRequest.builder()
+            .copyObjectRequest(req -> req
+                .sourceBucket(src.getBucket())
+                .sourceKey(src.getKey())
+                .sourceVersionId(src.getVersionId())
+                .destinationBucket(destBucket)
+                .destinationKey(destPath))
+            .addTransferListener(new TransferListenerAdapter(destBucket, size, options.getProgressListener()));
+        if (options.isLogTransfers()) {
+            copyRequestBuilder.addTransferListener(LoggingTransferListener.create());
+        }
+
+        logger.debug("Copying {} to bucket: {}, key: {}", src, destBucket, destPath);
+        Copy copy = transferManager.copy(copyRequestBuilder.build());
+        return recordS3Transfer("CopyObject", copy.completionFuture())
+            .thenApply(completed -> new S3PhysicalKey(destBucket, destPath, completed.response().versionId()));
+    }
+
+    private static S3PhysicalKey transferToStore(
+        ObjectStore store,
+        PhysicalKey src,
+        long size,
+        String destBucket,
+        String destPath,
+        PushOptions options
+    ) throws IOException {
+        String versionId;
+        if (src instanceof LocalPhysicalKey) {
+            versionId = store.putFile(destBucket, destPath, Path.of(((LocalPhysicalKey)src).getPath()));
+            Metrics.counter(MetricNames.S3_BYTES_WRITTEN).increment(size);
+        } else if (src instanceof S3PhysicalKey && ObjectStores.forBucket(((S3PhysicalKey)src).getBucket()) == store) {
+            S3PhysicalKey s3Src = (S3PhysicalKey)src;
+            if (s3Src.getBucket().equals(destBucket) && s3Src.getKey().equals(destPath)) {
+                versionId = s3Src.getVersionId();
+            } else {
+                versionId = store.copy(s3Src.getBucket(), s3Src.getKey(), s3Src.getVersionId(), destBucket, destPath);
+            }
+        } else {
+            // Crossing stores: stream the object through this process.
+            try (InputStream in = src.getInputStream()) {
+                versionId = store.put(destBucket, destPath, in, size);
+            }
+            Metrics.counter(MetricNames.S3_BYTES_WRITTEN).increment(size);
+        }
+        TransferProgressListener listener = options.getProgressListener();
+        listener.bytesTransferred(destBucket, size);
+        listener.objectCompleted(destBucket, size);
+        return new S3PhysicalKey(destBucket, destPath, versionId);
+    }
+
+    private static Manifest getLatestManifest(Namespace namespace) throws IOException {
+        String latest;
+        try {
+            latest = namespace.getHash("latest");
+        } catch (NoSuchFileException e) {
+            logger.debug("push: no previous revision in namespace: {}", namespace.getName());
+            return null;
+        }
+        try {
+            return namespace.getManifest(latest);
+        } catch (URISyntaxException e) {
+            throw new IOException("Could not load previous revision " + latest, e);
+        }
+    }
+
+    // Local files are hashed like the previous revision's entry, e.g. SHA2-256-chunked if it was pushed by quilt3.
+    private static Entry.HashType getHashType(Manifest previous, String logicalKey, Entry entry) {
+        Entry prev = previous == null ? null : previous.getEntries().get(logicalKey);
+        if (prev == null || prev.getHash() == null || prev.getSize() != entry.getSize()) {
+            return Entry.HashType.SHA256;
+        }
+        return prev.getHash().type;
+    }
+
+    private static Entry findUnchangedEntry(Manifest previous, String logicalKey, Entry entry) {
+        Entry prev = previous.getEntries().get(logicalKey);
+        if (prev == null || prev.getSize() != entry.getSize() || prev.getHash() == null) {
+            return null;
+        }
+        if (!ManifestDiff.sameDigest(entry.getHash(), prev.getHash())) {
+            // Also the case for entries that already had a hash of another type.
+            return null;
+        }
+        if (!(prev.getPhysicalKey() instanceof S3PhysicalKey)) {
+            return null;
+        }
+        if (((S3PhysicalKey)prev.getPhysicalKey()).getVersionId() == null) {
+            // Without a version ID, the object could have been overwritten since.
+            return null;
+        }
+        return new Entry(prev.getPhysicalKey(), entry.getSize(), entry.getHash(), entry.getMetadata());
+    }
+
     private JsonNode validate(Namespace namespace, String message, String workflow) throws ConfigurationException, WorkflowException {
         logger.info("Validating manifest with {} entries for namespace: {} workflow: {}", entries.size(), namespace.getName(), workflow);
         WorkflowConfig config = namespace.getRegistry().getWorkflowConfig();
@@ -604,6 +962,39 @@ public class Manifest {
      * @throws WorkflowException If a workflow error occurs.
      */
     public Manifest push(Namespace namespace, String message, String workflow) throws IOException, ConfigurationException, WorkflowException {
+        return push(namespace, message, workflow, PushOptions.builder().build());
+    }
+
+    /**
+     * Pushes the manifest to the specified namespace.
+     *
+     * <p>
+     * Local entries are uploaded. Entries that already live in S3 are copied server-side
+     * (using multipart copies for large objects), so their data never passes through this process;
+     * their existing hashes are reused, and only entries without a hash are read to compute one.
+     * </p>
+     * <p>
+     * With {@link PushOptions.Builder#setDedup(boolean)}, entries unchanged since the latest revision
+     * keep pointing at the previously pushed object versions and are not transferred at all. Local files
+     * are hashed with the type of hash of the previous revision's entry (SHA2-256-chunked for revisions pushed
+     * by quilt3), so they can be compared; entries that already have a hash of another type are transferred again.
+     * </p>
+     * 
+     * @param namespace The namespace to push the manifest to.
+     * @param message The message to associate with the push.
+     * @param workflow The workflow to run on the pushed data.
+     * @param options The options controlling the uploads.
+     * @return The pushed {@link Manifest}
+     * @throws IOException If an I/O error occurs.
+     * @throws ConfigurationException If a configuration error occurs.
+     * @throws WorkflowException If a workflow error occurs.
+     */
+    public Manifest push(
+        Namespace namespace,
+        String message,
+        String workflow,
+        PushOptions options
+    ) throws IOException, ConfigurationException, WorkflowException {
         logger.debug("Pushing manifest with {} entries to namespace: {}", entries.size(), namespace.getName());
         PhysicalKey namespacePath = namespace.getPath();
         if (!(namespacePath instanceof S3PhysicalKey)) {
@@ -615,17 +1006,29 @@ public class Manifest {
         S3PhysicalKey s3NamespacePath = (S3PhysicalKey)namespacePath;
         String destBucket = s3NamespacePath.getBucket();
 
-        S3AsyncClient s3;
-        try {
-            s3 = S3ClientStore.getAsyncClient(destBucket);
-        } catch (S3Exception ex) {
-            throw new IOException("Push failed", ex.getCause());
+        // Buckets routed to another object store are written through it rather than the transfer manager.
+        ObjectStore store = ObjectStores.forBucket(destBucket);
+        S3AsyncClient s3 = null;
+        if (store instanceof S3ObjectStore) {
+            try {
+                s3 = S3ClientStore.getAsyncClient(destBucket);
+            } catch (S3Exception ex) {
+                throw new IOException("Push failed", ex.getCause());
+            }
         }
 
+        Manifest previous = options.isDedup() ? getLatestManifest(namespace) : null;
+
         Map<String, Entry> entriesWithHashes = entries.entrySet()
             .stream()
             .parallel()
-            .map(ThrowingFunction.sneaky(entry -> Map.entry(entry.getKey(), entry.getValue().withHash())))
+            .map(ThrowingFunction.sneaky(entry -> {
+                Entry value = entry.getValue();
+                if (value.getHash() == null) {
+                    value = value.withHash(getHashType(previous, entry.getKey(), value));
+                }
+                return Map.entry(entry.getKey(), value);
+            }))
             .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 
         Builder builder = builder();
@@ -638,55 +1041,80 @@ public class Manifest {
         }
         builder.setMetadata(newMetadata);
 
+        Map<String, Entry> entriesToTransfer = entriesWithHashes;
+        if (previous != null) {
+            entriesToTransfer = new TreeMap<>();
+            for (Map.Entry<String, Entry> e : entriesWithHashes.entrySet()) {
+                Entry unchanged = findUnchangedEntry(previous, e.getKey(), e.getValue());
+                if (unchanged != null) {
+                    builder.addEntry(e.getKey(), unchanged);
+                } else {
+                    entriesToTransfer.put(e.getKey(), e.getValue());
+                }
+            }
+            int reused = entriesWithHashes.size() - entriesToTransfer.size();
+            logger.debug("push: reusing {} unchanged entries from previous revision", reused);
+            Metrics.counter(MetricNames.PUSH_DEDUP_REUSED).increment(reused);
+        }
+
+        TransferProgressListener listener = options.getProgressListener();
+        listener.operationStarted(
+            entriesToTransfer.size(),
+            entriesToTransfer.values().stream().mapToLong(Entry::getSize).sum()
+        );
+
         logger.debug("push: building transfer manager for bucket: {}", destBucket);
         try(
             S3TransferManager transferManager =
-                S3TransferManager.builder()
+                s3 == null ? null : S3TransferManager.builder()
                     .s3Client(s3)
                     .build()
         ) {
-            List<Map.Entry<String, CompletableFuture<CompletedFileUpload>>> futures =
-                new ArrayList<>(entriesWithHashes.size());
+            List<Map.Entry<String, CompletableFuture<S3PhysicalKey>>> futures =
+                new ArrayList<>(entriesToTransfer.size());
 
-            for (Map.Entry<String, Entry> e : entriesWithHashes.entrySet()) {
+            for (Map.Entry<String, Entry> e : entriesToTransfer.entrySet()) {
                 String logicalKey = e.getKey();
                 Entry entry = e.getValue();
 
                 String destPath = namespace.getName() + "/" + logicalKey;
 
                 PhysicalKey src = entry.getPhysicalKey();
-                if (!(src instanceof LocalPhysicalKey)) {
-                    throw new IOException("Only local physical keys supported");
-                }
-                LocalPhysicalKey localSrc = (LocalPhysicalKey)src;
-
-                Path sourcePath = Path.of(localSrc.getPath());
-                if (!Files.exists(sourcePath)) {
-                    throw new IOException("Source file does not exist: " + sourcePath);
+                AdaptiveConcurrencyLimiter limiter = PrefixLimiters.forKey(destBucket, destPath);
+                AdaptiveConcurrencyLimiter.AttemptListener attempts = TransferListenerAdapter.attemptListener(destBucket, listener);
+                CompletableFuture<S3PhysicalKey> future;
+                if (transferManager == null) {
+                    future = limiter.executeAsync(
+                        () -> LazyParallel.supplyAsync(() -> transferToStore(store, src, entry.getSize(), destBucket, destPath, options)),
+                        attempts
+                    );
+                } else if (src instanceof LocalPhysicalKey) {
+                    future = limiter.executeAsync(
+                        () -> uploadEntry(transferManager, (LocalPhysicalKey)src, entry.getSize(), destBucket, destPath, options),
+                        attempts
+                    );
+                } else if (src instanceof S3PhysicalKey) {
+                    future = limiter.executeAsync(
+                        () -> copyEntry(transferManager, (S3PhysicalKey)src, entry.getSize(), destBucket, destPath, options),
+                        attempts
+                    );
+                } else {
+                    throw new IOException("Unsupported physical key: " + src);
                 }
-
-                UploadFileRequest uploadFileRequest = UploadFileRequest.builder()
-                    .putObjectRequest(req -> req.bucket(destBucket).key(destPath))
-                    .addTransferListener(LoggingTransferListener.create())
-                    .source(sourcePath)
-                    .build();
-
-                logger.debug("Uploading file to bucket: {}, key: {}", destBucket, destPath);
-                FileUpload uploadFile = transferManager.uploadFile(uploadFileRequest);
-                futures.add(Map.entry(logicalKey, uploadFile.completionFuture()));
+                futures.add(Map.entry(logicalKey, future));
             }
 
-            for (Map.Entry<String, CompletableFuture<CompletedFileUpload>> future : futures) {
-                PutObjectResponse uploadResponse = future.getValue().join().response();
+            for (Map.Entry<String, CompletableFuture<S3PhysicalKey>> future : futures) {
+                S3PhysicalKey dest = future.getValue().join();
 
                 String logicalKey = future.getKey();
-                Entry origEntry = entriesWithHashes.get(logicalKey);
-                String destPath = namespace.getName() + "/" + logicalKey;
-                S3PhysicalKey dest = new S3PhysicalKey(destBucket, destPath, uploadResponse.versionId());
+                Entry origEntry = entriesToTransfer.get(logicalKey);
                 builder.addEntry(logicalKey, new Entry(dest, origEntry.getSize(), origEntry.getHash(), origEntry.getMetadata()));
             }
         } catch (CompletionException ex) {
             throw new IOException("Push failed", ex.getCause());
+        } finally {
+            listener.operationCompleted();
         }
 
         logger.debug("Object transfer complete. Building manifest...");
@@ -703,6 +1131,7 @@ public class Manifest {
         logger.debug("Wrote manifest with tag: {}", unixTime);
         namespace.getPath().resolve("" + unixTime).putBytes(topHash.getBytes(StandardCharsets.UTF_8));
         namespace.getPath().resolve("latest").putBytes(topHash.getBytes(StandardCharsets.UTF_8));
+        namespace.invalidateTag("latest");
 
         return newManifest;
     }
@@ -0,0 +1,277 @@
+package com.quiltdata.quiltcore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+import com.quiltdata.quiltcore.key.PhysicalKey;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import software.amazon.awssdk.utils.BinaryUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of parsed manifests, keyed by the physical key of the manifest file.
+ *
+ * <p>
+ * Manifests under {@code .quilt/packages/<tophash>} are immutable, so cached manifests never need
+ * to be revalidated. The cache keeps recently used manifests in memory, evicting the least recently
+ * used ones once their estimated footprint exceeds the configured limit. Optionally, manifest files
+ * are also kept in a local directory, so that they survive restarts and don't have to be downloaded
+ * again after being evicted from memory.
+ * </p>
+ *
+ * <p>
+ * The cache is thread-safe and can be shared by any number of {@link Registry} instances;
+ * concurrent requests for the same manifest only load it once.
+ * </p>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * ManifestCache cache = ManifestCache.builder()
+ *     .setMaxMemoryBytes(512L * 1024 * 1024)
+ *     .setDiskDirectory(Path.of("/var/cache/quilt/manifests"))
+ *     .build();
+ * Registry registry = Registry.builder()
+ *     .setRoot(root)
+ *     .setManifestCache(cache)
+ *     .build();
+ * }</pre>
+ */
+public class ManifestCache {
+    private static final Logger logger = LoggerFactory.getLogger(ManifestCache.class);
+
+    /**
+     * The default limit of the estimated memory footprint of cached manifests.
+     */
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Represents a builder for creating a {@link ManifestCache} object.
+     */
+    public static class Builder {
+        private long maxMemoryBytes = DEFAULT_MAX_MEMORY_BYTES;
+        private Path diskDirectory = null;
+
+        /**
+         * Sets the limit of the estimated memory footprint of cached manifests.
+         *
+         * @param maxMemoryBytes The limit in bytes.
+         * @return This builder.
+         */
+        public Builder setMaxMemoryBytes(long maxMemoryBytes) {
+            this.maxMemoryBytes = maxMemoryBytes;
+            return this;
+        }
+
+        /**
+         * Sets the directory where manifest files are cached. Disabled by default.
+         *
+         * @param diskDirectory The directory, or null to disable the on-disk cache.
+         * @return This builder.
+         */
+        public Builder setDiskDirectory(Path diskDirectory) {
+            this.diskDirectory = diskDirectory;
+            return this;
+        }
+
+        /**
+         * Builds a {@link ManifestCache} object.
+         *
+         * @return The built {@link ManifestCache} object.
+         */
+        public ManifestCache build() {
+            if (maxMemoryBytes < 0) {
+                throw new IllegalArgumentException("Memory limit must not be negative");
+            }
+            return new ManifestCache(this);
+        }
+    }
+
+    private static class CachedManifest {
+        final Manifest manifest;
+        final long footprint;
+
+        CachedManifest(Manifest manifest, long footprint) {
+            this.manifest = manifest;
+            this.footprint = footprint;
+        }
+    }
+
+    private final long maxMemoryBytes;
+    private final Path diskDirectory;
+
+    // Access-ordered, so iteration starts from the least recently used manifest.
+    private final LinkedHashMap<String, CachedManifest> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes = 0;
+
+    private final Map<String, CompletableFuture<Manifest>> loading = new ConcurrentHashMap<>();
+
+    private ManifestCache(Builder builder) {
+        maxMemoryBytes = builder.maxMemoryBytes;
+        diskDirectory = builder.diskDirectory;
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the ManifestCache class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the manifest stored at the given physical key, loading it if it is not cached.
+     *
+     * @param manifestKey The physical key of the manifest file; it must point to immutable content.
+     * @return The manifest.
+     * @throws IOException If the manifest can't be loaded.
+     * @throws URISyntaxException If the manifest contains an invalid physical key.
+     */
+    public Manifest get(PhysicalKey manifestKey) throws IOException, URISyntaxException {
+        String key = manifestKey.toString();
+
+        Manifest cached = getFromMemory(key);
+        if (cached != null) {
+            Metrics.counter(MetricNames.MANIFEST_CACHE_HITS).increment();
+            return cached;
+        }
+
+        CompletableFuture<Manifest> future = new CompletableFuture<>();
+        CompletableFuture<Manifest> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            logger.debug("Waiting for manifest being loaded by another thread: {}", key);
+            return join(existing);
+        }
+
+        try {
+            Metrics.counter(MetricNames.MANIFEST_CACHE_MISSES).increment();
+            Manifest manifest = load(key, manifestKey);
+            putInMemory(key, manifest);
+            future.complete(manifest);
+            return manifest;
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * Removes all manifests from memory. Files in the disk directory are kept.
+     */
+    public synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+    }
+
+    /**
+     * Returns the number of manifests cached in memory.
+     *
+     * @return The number of manifests.
+     */
+    public synchronized int size() {
+        return memory.size();
+    }
+
+    /**
+     * Returns the estimated memory footprint of the manifests cached in memory.
+     *
+     * @return The footprint in bytes.
+     */
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    private synchronized Manifest getFromMemory(String key) {
+        CachedManifest cached = memory.get(key);
+        return cached == null ? null : cached.manifest;
+    }
+
+    private synchronized void putInMemory(String key, Manifest manifest) {
+        long footprint = manifest.estimateFootprint();
+        if (footprint > maxMemoryBytes) {
+            logger.debug("Manifest too large to cache in memory ({} bytes): {}", footprint, key);
+            return;
+        }
+
+        CachedManifest previous = memory.put(key, new CachedManifest(manifest, footprint));
+        if (previous != null) {
+            memoryBytes -= previous.footprint;
+        }
+        memoryBytes += footprint;
+
+        var it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            CachedManifest evicted = it.next().getValue();
+            it.remove();
+            memoryBytes -= evicted.footprint;
+            Metrics.counter(MetricNames.MANIFEST_CACHE_EVICTIONS).increment();
+        }
+    }
+
+    private Manifest load(String key, PhysicalKey manifestKey) throws IOException, URISyntaxException {
+        if (diskDirectory == null) {
+            return Manifest.createFromFile(manifestKey);
+        }
+
+        Path file = diskDirectory.resolve(fileName(key));
+        if (!Files.exists(file)) {
+            logger.debug("Downloading manifest {} to disk cache: {}", key, file);
+            Files.createDirectories(diskDirectory);
+            Path tmp = Files.createTempFile(diskDirectory, file.getFileName().toString(), ".tmp");
+            try {
+                try (InputStream in = manifestKey.getInputStream()) {
+                    Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } else {
+            Metrics.counter(MetricNames.MANIFEST_CACHE_DISK_HITS).increment();
+        }
+        return Manifest.createFromFile(new LocalPhysicalKey(file.toAbsolutePath()));
+    }
+
+    private static String fileName(String key) {
+        // The key is a URI that may contain characters that are not valid in file names.
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return BinaryUtils.toHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Manifest join(CompletableFuture<Manifest> future) throws IOException, URISyntaxException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof URISyntaxException) {
+                throw (URISyntaxException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.quiltdata.quiltcore;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import com.quiltdata.quiltcore.key.PhysicalKey;
+
+/**
+ * The differences between the entries of two manifests.
+ *
+ * <p>
+ * Both manifests are walked once, in logical key order, like a merge join: each step advances whichever
+ * side has the smaller key, so comparing manifests of n and m entries takes O(n + m) time. Manifest files
+ * can be compared through {@link ManifestReader}s without loading either of them; only the changes
+ * are kept in memory, or none with {@link #stream(ManifestReader, ManifestReader, Consumer)}. Files are
+ * walked in their own order: logical key order for manifests written by this library, or
+ * {@link ManifestReader#FILE_ORDER} for manifests written by quilt3. The order of each file is detected from
+ * its first pair of rows that is only sorted in one of them. Where the order of two keys depends on it and
+ * it isn't known yet, or the files are in different orders, the rest of both files is compared in memory.
+ * </p>
+ * <p>
+ * An entry is {@link ChangeType#MODIFIED} if its size or hash changed; hashes are compared as the digests
+ * they encode, so the case of hex digests doesn't matter. Entries without hashes (e.g. built from a directory)
+ * are compared by physical key instead. An entry whose contents are unchanged but whose metadata differs
+ * is {@link ChangeType#METADATA_CHANGED}. Entries whose contents and metadata are unchanged are not
+ * reported, even if their physical keys differ.
+ * </p>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * ManifestDiff diff = previous.diff(current);
+ * for (ManifestDiff.Change change : diff.getChanges()) {
+ *     System.out.println(change.getType() + " " + change.getLogicalKey());
+ * }
+ * }</pre>
+ */
+public final class ManifestDiff {
+    /**
+     * Enumerates the kinds of changes of an entry.
+     */
+    public enum ChangeType {
+        /**
+         * The entry only exists in the newer manifest.
+         */
+        ADDED,
+        /**
+         * The entry only exists in the older manifest.
+         */
+        REMOVED,
+        /**
+         * The contents of the entry changed.
+         */
+        MODIFIED,
+        /**
+         * The contents of the entry are unchanged, but its metadata changed.
+         */
+        METADATA_CHANGED
+    }
+
+    /**
+     * A change of one entry.
+     */
+    public static final class Change {
+        private final ChangeType type;
+        private final String logicalKey;
+        private final Entry oldEntry;
+        private final Entry newEntry;
+
+        Change(ChangeType type, String logicalKey, Entry oldEntry, Entry newEntry) {
+            this.type = type;
+            this.logicalKey = logicalKey;
+            this.oldEntry = oldEntry;
+            this.newEntry = newEntry;
+        }
+
+        /**
+         * Returns the kind of change.
+         *
+         * @return The kind of change.
+         */
+        public ChangeType getType() {
+            return type;
+        }
+
+        /**
+         * Returns the logical key of the entry.
+         *
+         * @return The logical key.
+         */
+        public String getLogicalKey() {
+            return logicalKey;
+        }
+
+        /**
+         * Returns the entry in the older manifest.
+         *
+         * @return The entry, or null if it was added.
+         */
+        public Entry getOldEntry() {
+            return oldEntry;
+        }
+
+        /**
+         * Returns the entry in the newer manifest.
+         *
+         * @return The entry, or null if it was removed.
+         */
+        public Entry getNewEntry() {
+            return newEntry;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + logicalKey;
+        }
+    }
+
+    private interface EntrySource {
+        Map.Entry<String, Entry> next() throws IOException, URISyntaxException;
+    }
+
+    // Like a Comparator, but may return UNDECIDED when the order of two keys isn't known.
+    private interface KeyOrder {
+        int compare(String x, String y);
+    }
+
+    private static final int UNDECIDED = Integer.MIN_VALUE;
+
+    private static final class RowSource implements EntrySource {
+        private final ManifestReader reader;
+        private String previousKey;
+        // Whether the rows read so far are in logical key order, and in quilt3's order.
+        private boolean keyOrder = true;
+        private boolean fileOrder = true;
+
+        RowSource(ManifestReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map.Entry<String, Entry> next() throws IOException, URISyntaxException {
+            ManifestReader.Row row = reader.next();
+            if (row == null) {
+                return null;
+            }
+            // A merge join relies on the order, so unsorted or duplicate keys would produce wrong results.
+            if (previousKey != null) {
+                keyOrder &= previousKey.compareTo(row.logicalKey) < 0;
+                fileOrder &= ManifestReader.FILE_ORDER.compare(previousKey, row.logicalKey) < 0;
+                if (!keyOrder && !fileOrder) {
+                    throw new IOException("Manifest entries are not sorted: " + row.logicalKey);
+                }
+            }
+            previousKey = row.logicalKey;
+            return Map.entry(row.logicalKey, row.entry);
+        }
+    }
+
+    private final List<Change> changes;
+    private final boolean metadataChanged;
+
+    private ManifestDiff(List<Change> changes, boolean metadataChanged) {
+        this.changes = Collections.unmodifiableList(changes);
+        this.metadataChanged = metadataChanged;
+    }
+
+    /**
+     * Compares two manifests.
+     *
+     * @param older The older manifest.
+     * @param newer The newer manifest.
+     * @return The differences.
+     */
+    public static ManifestDiff compare(Manifest older, Manifest newer) {
+        List<Change> changes = new ArrayList<>();
+        try {
+            mergeJoin(iterate(older), iterate(newer), String::compareTo, changes::add);
+        } catch (IOException | URISyntaxException e) {
+            // The entries of manifests in memory are sorted and can't fail to be read.
+            throw new IllegalStateException(e);
+        }
+        return new ManifestDiff(changes, !older.getMetadata().equals(newer.getMetadata()));
+    }
+
+    /**
+     * Compares two manifest files, reading each of them once, entry by entry.
+     *
+     * @param older The older manifest file.
+     * @param newer The newer manifest file.
+     * @return The differences.
+     * @throws IOException If a file can't be read, or its entries are neither in logical key order nor in
+     *     {@link ManifestReader#FILE_ORDER}.
+     * @throws URISyntaxException If an entry has an invalid physical key.
+     */
+    public static ManifestDiff compare(PhysicalKey older, PhysicalKey newer) throws IOException, URISyntaxException {
+        try (
+            ManifestReader olderReader = ManifestReader.open(older);
+            ManifestReader newerReader = ManifestReader.open(newer)
+        ) {
+            List<Change> changes = new ArrayList<>();
+            stream(olderReader, newerReader, changes::add);
+            return new ManifestDiff(changes, !olderReader.getMetadata().equals(newerReader.getMetadata()));
+        }
+    }
+
+    /**
+     * Compares the remaining entries of two manifest readers, passing each change to a consumer
+     * as soon as it is found. Nothing but the current entry of each reader is held in memory, unless
+     * the order of the files can't be told apart, in which case the rest of them is loaded.
+     *
+     * @param older The reader of the older manifest.
+     * @param newer The reader of the newer manifest.
+     * @param consumer The consumer of the changes, called in the order of the files, then in logical key order
+     *     for the part compared in memory.
+     * @throws IOException If a manifest can't be read, or its entries are neither in logical key order nor in
+     *     {@link ManifestReader#FILE_ORDER}.
+     * @throws URISyntaxException If an entry has an invalid physical key.
+     */
+    public static void stream(ManifestReader older, ManifestReader newer, Consumer<Change> consumer)
+            throws IOException, URISyntaxException {
+        RowSource a = new RowSource(older);
+        RowSource b = new RowSource(newer);
+        mergeJoin(a, b, (x, y) -> {
+            int byKey = x.compareTo(y);
+            int byFile = ManifestReader.FILE_ORDER.compare(x, y);
+            if (Integer.signum(byKey) == Integer.signum(byFile)) {
+                return byKey;
+            } else if (!a.fileOrder && !b.fileOrder) {
+                return byKey;
+            } else if (!a.keyOrder && !b.keyOrder) {
+                return byFile;
+            }
+            return UNDECIDED;
+        }, consumer);
+    }
+
+    /**
+     * Returns the changes of the entries, in logical key order, or in the order of the files if manifest files
+     * were compared (see {@link #stream(ManifestReader, ManifestReader, Consumer)}).
+     *
+     * @return The changes.
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Returns the changes of one kind, in the order of {@link #getChanges()}.
+     *
+     * @param type The kind of changes.
+     * @return The changes.
+     */
+    public List<Change> getChanges(ChangeType type) {
+        return changes.stream().filter(c -> c.getType() == type).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns whether the package-level metadata (including the commit message) differs.
+     *
+     * @return Whether the metadata changed.
+     */
+    public boolean isMetadataChanged() {
+        return metadataChanged;
+    }
+
+    /**
+     * Returns whether the manifests have the same entries and metadata.
+     *
+     * @return Whether nothing changed.
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty() && !metadataChanged;
+    }
+
+    private static EntrySource iterate(Manifest manifest) {
+        Iterator<Map.Entry<String, Entry>> it = manifest.getEntries().entrySet().iterator();
+        return () -> it.hasNext() ? it.next() : null;
+    }
+
+    // Loads the rest of a source, starting with its current entry, and iterates over it in logical key order.
+    private static EntrySource remaining(Map.Entry<String, Entry> current, EntrySource source)
+            throws IOException, URISyntaxException {
+        TreeMap<String, Entry> entries = new TreeMap<>();
+        for (Map.Entry<String, Entry> e = current; e != null; e = source.next()) {
+            entries.put(e.getKey(), e.getValue());
+        }
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        return () -> it.hasNext() ? it.next() : null;
+    }
+
+    private static void mergeJoin(EntrySource older, EntrySource newer, KeyOrder order, Consumer<Change> consumer)
+            throws IOException, URISyntaxException {
+        Map.Entry<String, Entry> a = older.next();
+        Map.Entry<String, Entry> b = newer.next();
+        while (a != null || b != null) {
+            int c = a == null ? 1 : b == null ? -1 : order.compare(a.getKey(), b.getKey());
+            if (c == UNDECIDED) {
+                // Every key passed so far compared the same in both orders, so the changes found are right;
+                // the rest can't be merged as a stream.
+                mergeJoin(remaining(a, older), remaining(b, newer), String::compareTo, consumer);
+                return;
+            } else if (c < 0) {
+                consumer.accept(new Change(ChangeType.REMOVED, a.getKey(), a.getValue(), null));
+                a = older.next();
+            } else if (c > 0) {
+                consumer.accept(new Change(ChangeType.ADDED, b.getKey(), null, b.getValue()));
+                b = newer.next();
+            } else {
+                Entry oldEntry = a.getValue();
+                Entry newEntry = b.getValue();
+                if (!sameContents(oldEntry, newEntry)) {
+                    consumer.accept(new Change(ChangeType.MODIFIED, a.getKey(), oldEntry, newEntry));
+                } else if (!oldEntry.hasSameMetadata(newEntry)) {
+                    consumer.accept(new Change(ChangeType.METADATA_CHANGED, a.getKey(), oldEntry, newEntry));
+                }
+                a = older.next();
+                b = newer.next();
+            }
+        }
+    }
+
+    private static boolean sameContents(Entry a, Entry b) {
+        if (a.getSize() != b.getSize()) {
+            return false;
+        }
+        Entry.Hash x = a.getHash();
+        Entry.Hash y = b.getHash();
+        if (x == null || y == null) {
+            return x == y && a.getPhysicalKey().toUri().equals(b.getPhysicalKey().toUri());
+        }
+        return sameDigest(x, y);
+    }
+
+    // Hex digits encode the same bytes regardless of case; compares them without decoding or copying.
+    // Chunked checksums are base64, which is case-sensitive.
+    static boolean sameDigest(Entry.Hash x, Entry.Hash y) {
+        return x.type == y.type
+            && x.value.length() == y.value.length()
+            && x.value.regionMatches(x.type == Entry.HashType.SHA256, 0, y.value, 0, x.value.length());
+    }
+}
@@ -0,0 +1,188 @@
+package com.quiltdata.quiltcore;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.quiltdata.quiltcore.key.PhysicalKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the entries of a manifest file one at a time, without holding the whole manifest in memory.
+ *
+ * <p>
+ * Entries are returned in file order. quilt3 writes them in the order it walks the package, one directory
+ * at a time, so keys are sorted path segment by path segment ({@link #FILE_ORDER}): {@code data/x.csv}
+ * comes before {@code data.csv}, and {@code a/b} before {@code a-b}. This library writes them in logical
+ * key order ({@link String#compareTo(String)}), which its top hash is also computed in. The two orders only
+ * differ for keys that extend a directory name with a character below {@code /}, such as {@code -} or {@code .}.
+ * </p>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * try (ManifestReader reader = ManifestReader.open(namespace.getVersions().resolve(topHash))) {
+ *     ManifestReader.Row row;
+ *     while ((row = reader.next()) != null) {
+ *         System.out.println(row.logicalKey + " " + row.entry.getSize());
+ *     }
+ * }
+ * }</pre>
+ */
+public class ManifestReader implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ManifestReader.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The order of the entries of manifest files: logical keys are compared path segment by path segment,
+     * as quilt3 walks a package. This is the order of {@link String#compareTo(String)}, except that
+     * {@code /} sorts before every other character.
+     */
+    public static final Comparator<String> FILE_ORDER = ManifestReader::compareFileOrder;
+
+    /**
+     * Represents a single entry of the manifest.
+     */
+    public static class Row {
+        /**
+         * The logical key of the entry.
+         */
+        public final String logicalKey;
+
+        /**
+         * The entry.
+         */
+        public final Entry entry;
+
+        /**
+         * Constructs a Row object.
+         *
+         * @param logicalKey The logical key of the entry.
+         * @param entry      The entry.
+         */
+        public Row(String logicalKey, Entry entry) {
+            this.logicalKey = logicalKey;
+            this.entry = entry;
+        }
+    }
+
+    private final BufferedReader reader;
+    private final ObjectNode metadata;
+
+    private ManifestReader(BufferedReader reader, ObjectNode metadata) {
+        this.reader = reader;
+        this.metadata = metadata;
+    }
+
+    /**
+     * Opens the manifest file and reads its metadata.
+     *
+     * @param path The physical key of the manifest file.
+     * @return The reader, positioned before the first entry.
+     * @throws IOException If the file can't be read or has an unsupported format.
+     */
+    public static ManifestReader open(PhysicalKey path) throws IOException {
+        logger.debug("Reading manifest from {}", path);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(path.getInputStream(), StandardCharsets.UTF_8));
+        try {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("Empty manifest: " + path);
+            }
+            JsonNode node = MAPPER.readTree(header);
+            if (!node.isObject()) {
+                throw new IOException("Invalid manifest metadata: " + node);
+            }
+            ObjectNode manifestMeta = (ObjectNode)node;
+            String version = manifestMeta.get("version").asText();
+            if (!version.equals(Manifest.VERSION)) {
+                throw new IOException("Unsupported manifest version: " + version);
+            }
+            return new ManifestReader(reader, manifestMeta);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the package-level metadata of the manifest.
+     *
+     * @return The metadata.
+     */
+    public ObjectNode getMetadata() {
+        return metadata.deepCopy();
+    }
+
+    /**
+     * Reads the next entry.
+     *
+     * @return The entry, or null at the end of the manifest.
+     * @throws IOException If the entry can't be read or is invalid.
+     * @throws URISyntaxException If the entry has an invalid physical key.
+     */
+    public Row next() throws IOException, URISyntaxException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            JsonNode row = MAPPER.readTree(line);
+
+            String logicalKey = row.get("logical_key").asText();
+            JsonNode physicalKeysNode = row.get("physical_keys");
+            if (physicalKeysNode == null) {
+                // TODO: Handle directory-level metadata?
+                continue;
+            }
+            String physicalKeyString = physicalKeysNode.get(0).asText();
+            PhysicalKey physicalKey = PhysicalKey.fromUri(new URI(physicalKeyString));
+            long size = row.get("size").asLong();
+            JsonNode hashNode = row.get("hash");
+            Entry.HashType hashType = Entry.HashType.enumFor(hashNode.get("type").asText());
+            String hashValue = hashNode.get("value").asText();
+            JsonNode meta = row.get("meta");
+            if (meta != null) {
+                if (meta.isNull()) {
+                    meta = null;
+                } else if (!meta.isObject()) {
+                    throw new IOException("Invalid entry metadata: " + meta);
+                }
+            }
+
+            Entry entry = new Entry(physicalKey, size, new Entry.Hash(hashType, hashValue), (ObjectNode)meta);
+            return new Row(logicalKey, entry);
+        }
+        return null;
+    }
+
+    private static int compareFileOrder(String x, String y) {
+        int n = Math.min(x.length(), y.length());
+        for (int i = 0; i < n; i++) {
+            char a = x.charAt(i);
+            char b = y.charAt(i);
+            if (a != b) {
+                // The end of a segment sorts first, so a directory comes before its siblings that extend its name.
+                if (a == '/') {
+                    return -1;
+                }
+                if (b == '/') {
+                    return 1;
+                }
+                return a - b;
+            }
+        }
+        return x.length() - y.length();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -3,8 +3,19 @@ package com.quiltdata.quiltcore;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.quiltdata.quiltcore.key.PhysicalKey;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import com.quiltdata.quiltcore.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,6 +25,13 @@ import org.slf4j.LoggerFactory;
 public class Namespace {
     private static final Logger logger = LoggerFactory.getLogger(Namespace.class);
 
+    /**
+     * The default number of tags fetched at the same time by {@link #getRevisions()}.
+     */
+    public static final int DEFAULT_REVISION_CONCURRENCY = 16;
+
+    private static final Pattern TIMESTAMP_TAG = Pattern.compile("[0-9]{1,18}");
+
     private final Registry registry;
     private final String name;
     private final PhysicalKey path;
@@ -79,7 +97,77 @@ public class Namespace {
      */
     public String getHash(String tag) throws IOException {
         logger.debug("Resolving tag: {}", tag);
-        return new String(path.resolve(tag).getBytes(), StandardCharsets.UTF_8);
+        PhysicalKey tagKey = path.resolve(tag);
+        TagCache cache = registry == null ? null : registry.getTagCache();
+        if (cache != null) {
+            return cache.get(tagKey);
+        }
+        return new String(tagKey.getBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Removes the given tag from the registry's tag cache, if there is one.
+     * Call this after updating the tag outside of this library.
+     *
+     * @param tag The tag.
+     */
+    public void invalidateTag(String tag) {
+        TagCache cache = registry == null ? null : registry.getTagCache();
+        if (cache != null) {
+            cache.invalidate(path.resolve(tag));
+        }
+    }
+
+    /**
+     * Returns the revisions of the package, newest first, fetching up to
+     * {@value #DEFAULT_REVISION_CONCURRENCY} tags at a time.
+     *
+     * @return A stream of revisions; it should be closed if not fully consumed.
+     * @throws IOException If the tags can't be listed.
+     * @see #getRevisions(int)
+     */
+    public Stream<Revision> getRevisions() throws IOException {
+        return getRevisions(DEFAULT_REVISION_CONCURRENCY);
+    }
+
+    /**
+     * Returns the revisions of the package, newest first.
+     *
+     * <p>
+     * The timestamp tags written by push are listed and sorted up front, before the first revision is
+     * returned. This can't be paged: object stores list names in ascending order only, so finding the
+     * newest tag takes the whole listing. It only transfers names (a thousand per request on S3), and
+     * keeps one timestamp per revision in memory. Their contents are fetched lazily as the stream is
+     * consumed, with at most {@code concurrency} requests in flight, so e.g.
+     * {@code getRevisions().skip(100).limit(20)} only reads 20 tags.
+     * An {@link java.io.UncheckedIOException} is thrown from the stream if a tag can't be read.
+     * </p>
+     *
+     * @param concurrency The maximum number of tags fetched at the same time.
+     * @return A stream of revisions; it should be closed if not fully consumed.
+     * @throws IOException If the tags can't be listed.
+     */
+    public Stream<Revision> getRevisions(int concurrency) throws IOException {
+        List<Long> timestamps;
+        try (Stream<String> tags = path.listWithPrefix("")) {
+            timestamps = tags
+                .filter(tag -> TIMESTAMP_TAG.matcher(tag).matches())
+                .map(Long::valueOf)
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+        }
+        logger.debug("Found {} revisions of {}", timestamps.size(), name);
+
+        return LazyParallel.mapOrdered(timestamps.iterator(), concurrency, timestamp -> {
+            byte[] hash;
+            try {
+                hash = path.resolve(timestamp.toString()).getBytes();
+            } catch (NoSuchFileException e) {
+                // Deleted since it was listed.
+                return null;
+            }
+            return new Revision(Instant.ofEpochSecond(timestamp), new String(hash, StandardCharsets.UTF_8));
+        }).filter(Objects::nonNull);
     }
 
     /**
@@ -90,14 +178,21 @@ public class Namespace {
      * @throws IOException If an I/O error occurs.
      */
     public String resolveHash(String hashPrefix) throws IOException {
+        try (Timer.Sample sample = Metrics.timer(MetricNames.RESOLVE_HASH).start()) {
+            return resolveHashImpl(hashPrefix);
+        }
+    }
+
+    private String resolveHashImpl(String hashPrefix) throws IOException {
         int len = hashPrefix.length();
         if (len == 64) {
             return hashPrefix;
         } else if (len >= 6 && len < 64) {
-            String[] matching = versions
-                .listRecursively()
-                .filter(hash -> hash.startsWith(hashPrefix))
-                .toArray(String[]::new);
+            String[] matching;
+            // Two matches are enough to tell that the prefix is ambiguous.
+            try (Stream<String> hashes = versions.listWithPrefix(hashPrefix)) {
+                matching = hashes.limit(2).toArray(String[]::new);
+            }
             if (matching.length == 0) {
                 throw new IOException("Found zero matches for " + hashPrefix);
             } else if (matching.length > 1) {
@@ -121,6 +216,11 @@ public class Namespace {
     public Manifest getManifest(String hash) throws IOException, URISyntaxException {
         logger.debug("Resolving hash: {}", hash);
         String resolvedHash = resolveHash(hash);
-        return Manifest.createFromFile(versions.resolve(resolvedHash));
+        PhysicalKey manifestKey = versions.resolve(resolvedHash);
+        ManifestCache cache = registry == null ? null : registry.getManifestCache();
+        if (cache != null) {
+            return cache.get(manifestKey);
+        }
+        return Manifest.createFromFile(manifestKey);
     }
 }
@@ -0,0 +1,628 @@
+package com.quiltdata.quiltcore;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * An immutable sorted map that shares structure with the maps derived from it.
+ *
+ * <p>
+ * The map is an AVL tree whose nodes are never modified once the map is built. Adding or removing a key
+ * copies only the O(log n) nodes on the path to it, so a map derived from a large one with a few edits
+ * costs O(log n) time and memory per edit, and both maps stay valid. The mutating methods of
+ * {@link SortedMap} throw {@link UnsupportedOperationException}; edits go through {@link #plus},
+ * {@link #minus} or a {@link Builder}.
+ * </p>
+ * <p>
+ * A {@link Builder} owns the nodes it creates and updates them in place until {@link Builder#build()}
+ * is called, so building a map of n keys allocates about n nodes, like a {@link java.util.TreeMap}.
+ * Nodes shared with the map the builder started from are copied on their first change.
+ * </p>
+ * <p>
+ * Keys use their natural ordering; {@link #size()}, and the size of sub-map views, are O(log n).
+ * </p>
+ *
+ * @param <K> The type of keys.
+ * @param <V> The type of values.
+ */
+public final class PersistentSortedMap<K extends Comparable<? super K>, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+    private static final PersistentSortedMap<?, ?> EMPTY = new PersistentSortedMap<>(null);
+
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        K key;
+        V value;
+        Node<K, V> left;
+        Node<K, V> right;
+        int height;
+        int size;
+        // The builder that may still update this node in place, if any.
+        Object owner;
+
+        Node(K key, V value, Object owner) {
+            this.key = key;
+            this.value = value;
+            this.height = 1;
+            this.size = 1;
+            this.owner = owner;
+        }
+
+        Node(Node<K, V> other, Object owner) {
+            this.key = other.key;
+            this.value = other.value;
+            this.left = other.left;
+            this.right = other.right;
+            this.height = other.height;
+            this.size = other.size;
+            this.owner = owner;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return key.equals(e.getKey()) && Objects.equals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * Builds a {@link PersistentSortedMap}, either from scratch or by editing an existing map.
+     *
+     * @param <K> The type of keys.
+     * @param <V> The type of values.
+     */
+    public static final class Builder<K extends Comparable<? super K>, V> {
+        private Node<K, V> root;
+        private Object owner = new Object();
+
+        private Builder(Node<K, V> root) {
+            this.root = root;
+        }
+
+        /**
+         * Adds or replaces a key.
+         *
+         * @param key The key.
+         * @param value The value.
+         * @return This builder.
+         */
+        public Builder<K, V> put(K key, V value) {
+            Objects.requireNonNull(key, "key");
+            root = PersistentSortedMap.put(root, key, value, owner);
+            return this;
+        }
+
+        /**
+         * Removes a key, if present.
+         *
+         * @param key The key.
+         * @return This builder.
+         */
+        public Builder<K, V> remove(K key) {
+            Objects.requireNonNull(key, "key");
+            root = PersistentSortedMap.remove(root, key, owner);
+            return this;
+        }
+
+        /**
+         * Returns the value of a key.
+         *
+         * @param key The key.
+         * @return The value, or null if the key is absent.
+         */
+        public V get(K key) {
+            Node<K, V> node = find(root, key);
+            return node == null ? null : node.value;
+        }
+
+        /**
+         * Returns the number of keys.
+         *
+         * @return The number of keys.
+         */
+        public int size() {
+            return PersistentSortedMap.size(root);
+        }
+
+        /**
+         * Returns a map of the current keys. The builder remains usable; later edits don't affect the map.
+         *
+         * @return The map.
+         */
+        public PersistentSortedMap<K, V> build() {
+            owner = new Object();
+            return root == null ? empty() : new PersistentSortedMap<>(root);
+        }
+    }
+
+    private final Node<K, V> root;
+
+    private PersistentSortedMap(Node<K, V> root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @param <K> The type of keys.
+     * @param <V> The type of values.
+     * @return The empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+        return (PersistentSortedMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns a {@link Builder} starting from an empty map.
+     *
+     * @param <K> The type of keys.
+     * @param <V> The type of values.
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static <K extends Comparable<? super K>, V> Builder<K, V> builder() {
+        return new Builder<>(null);
+    }
+
+    /**
+     * Returns a {@link Builder} starting from this map, which it shares nodes with.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public Builder<K, V> toBuilder() {
+        return new Builder<>(root);
+    }
+
+    /**
+     * Returns a map with a key added or replaced.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return The new map; this map is unchanged.
+     */
+    public PersistentSortedMap<K, V> plus(K key, V value) {
+        return toBuilder().put(key, value).build();
+    }
+
+    /**
+     * Returns a map without a key.
+     *
+     * @param key The key.
+     * @return The new map, or this map if the key is absent.
+     */
+    public PersistentSortedMap<K, V> minus(K key) {
+        Node<K, V> newRoot = remove(root, key, new Object());
+        return newRoot == root ? this : newRoot == null ? empty() : new PersistentSortedMap<>(newRoot);
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Node<K, V> node = find(root, (K) key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean containsKey(Object key) {
+        return find(root, (K) key) != null;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return null;
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return new RangeView<>(root, Objects.requireNonNull(fromKey), Objects.requireNonNull(toKey));
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return new RangeView<>(root, null, Objects.requireNonNull(toKey));
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return new RangeView<>(root, Objects.requireNonNull(fromKey), null);
+    }
+
+    @Override
+    public K firstKey() {
+        return key(first(root, null, null));
+    }
+
+    @Override
+    public K lastKey() {
+        return key(last(root, null, null));
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet<>(root, null, null);
+    }
+
+    /**
+     * A view of the keys in [from, to) of a map; null bounds are open.
+     */
+    private static final class RangeView<K extends Comparable<? super K>, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+        private final Node<K, V> root;
+        private final K from;
+        private final K to;
+
+        RangeView(Node<K, V> root, K from, K to) {
+            if (from != null && to != null && from.compareTo(to) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            this.root = root;
+            this.from = from;
+            this.to = to;
+        }
+
+        private boolean inRange(K key) {
+            return (from == null || key.compareTo(from) >= 0) && (to == null || key.compareTo(to) < 0);
+        }
+
+        private void checkBound(K key) {
+            if ((from != null && key.compareTo(from) < 0) || (to != null && key.compareTo(to) > 0)) {
+                throw new IllegalArgumentException("Key out of range: " + key);
+            }
+        }
+
+        @Override
+        public int size() {
+            return rangeSize(root, from, to);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return first(root, from, to) == null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            K k = (K) key;
+            Node<K, V> node = inRange(k) ? find(root, k) : null;
+            return node == null ? null : node.value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean containsKey(Object key) {
+            K k = (K) key;
+            return inRange(k) && find(root, k) != null;
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            checkBound(fromKey);
+            checkBound(toKey);
+            return new RangeView<>(root, fromKey, toKey);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            checkBound(toKey);
+            return new RangeView<>(root, from, toKey);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            checkBound(fromKey);
+            return new RangeView<>(root, fromKey, to);
+        }
+
+        @Override
+        public K firstKey() {
+            return key(first(root, from, to));
+        }
+
+        @Override
+        public K lastKey() {
+            return key(last(root, from, to));
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet<>(root, from, to);
+        }
+    }
+
+    private static final class EntrySet<K extends Comparable<? super K>, V> extends AbstractSet<Map.Entry<K, V>> {
+        private final Node<K, V> root;
+        private final K from;
+        private final K to;
+
+        EntrySet(Node<K, V> root, K from, K to) {
+            this.root = root;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator<>(root, from, to);
+        }
+
+        @Override
+        public int size() {
+            return rangeSize(root, from, to);
+        }
+    }
+
+    private static final class EntryIterator<K extends Comparable<? super K>, V> implements Iterator<Map.Entry<K, V>> {
+        // The nodes whose keys and right subtrees are still to be visited, the next one on top.
+        private final Deque<Node<K, V>> stack = new ArrayDeque<>();
+        private final K to;
+
+        EntryIterator(Node<K, V> root, K from, K to) {
+            this.to = to;
+            Node<K, V> node = root;
+            while (node != null) {
+                if (from != null && node.key.compareTo(from) < 0) {
+                    node = node.right;
+                } else {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && (to == null || stack.peek().key.compareTo(to) < 0);
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = stack.pop();
+            for (Node<K, V> n = node.right; n != null; n = n.left) {
+                stack.push(n);
+            }
+            return node;
+        }
+    }
+
+    private static <K> K key(Node<K, ?> node) {
+        if (node == null) {
+            throw new NoSuchElementException();
+        }
+        return node.key;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> find(Node<K, V> node, K key) {
+        while (node != null) {
+            int c = key.compareTo(node.key);
+            if (c == 0) {
+                return node;
+            }
+            node = c < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    private static <K extends Comparable<? super K>> int rangeSize(Node<K, ?> root, K from, K to) {
+        return (to == null ? size(root) : countBelow(root, to)) - (from == null ? 0 : countBelow(root, from));
+    }
+
+    // The number of keys less than the given key.
+    private static <K extends Comparable<? super K>> int countBelow(Node<K, ?> node, K key) {
+        int count = 0;
+        while (node != null) {
+            if (key.compareTo(node.key) <= 0) {
+                node = node.left;
+            } else {
+                count += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> first(Node<K, V> node, K from, K to) {
+        Node<K, V> result = null;
+        while (node != null) {
+            if (from != null && node.key.compareTo(from) < 0) {
+                node = node.right;
+            } else {
+                result = node;
+                node = node.left;
+            }
+        }
+        return result == null || (to != null && result.key.compareTo(to) >= 0) ? null : result;
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> last(Node<K, V> node, K from, K to) {
+        Node<K, V> result = null;
+        while (node != null) {
+            if (to != null && node.key.compareTo(to) >= 0) {
+                node = node.left;
+            } else {
+                result = node;
+                node = node.right;
+            }
+        }
+        return result == null || (from != null && result.key.compareTo(from) < 0) ? null : result;
+    }
+
+    private static <K, V> Node<K, V> editable(Node<K, V> node, Object owner) {
+        return node.owner == owner ? node : new Node<>(node, owner);
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> put(Node<K, V> node, K key, V value, Object owner) {
+        if (node == null) {
+            return new Node<>(key, value, owner);
+        }
+        int c = key.compareTo(node.key);
+        if (c == 0) {
+            if (node.value == value) {
+                return node;
+            }
+            Node<K, V> result = editable(node, owner);
+            result.value = value;
+            return result;
+        }
+        Node<K, V> child = put(c < 0 ? node.left : node.right, key, value, owner);
+        // Owned children are updated in place, so an unchanged child only means no change for a shared node.
+        if (child == (c < 0 ? node.left : node.right) && node.owner != owner) {
+            return node;
+        }
+        Node<K, V> result = editable(node, owner);
+        if (c < 0) {
+            result.left = child;
+        } else {
+            result.right = child;
+        }
+        return rebalance(result, owner);
+    }
+
+    private static <K extends Comparable<? super K>, V> Node<K, V> remove(Node<K, V> node, K key, Object owner) {
+        if (node == null) {
+            return null;
+        }
+        int c = key.compareTo(node.key);
+        if (c != 0) {
+            Node<K, V> child = remove(c < 0 ? node.left : node.right, key, owner);
+            if (child == (c < 0 ? node.left : node.right) && node.owner != owner) {
+                return node;
+            }
+            Node<K, V> result = editable(node, owner);
+            if (c < 0) {
+                result.left = child;
+            } else {
+                result.right = child;
+            }
+            return rebalance(result, owner);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        // Replace the key with its successor.
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        Node<K, V> result = editable(node, owner);
+        result.key = successor.key;
+        result.value = successor.value;
+        result.right = removeFirst(node.right, owner);
+        return rebalance(result, owner);
+    }
+
+    private static <K, V> Node<K, V> removeFirst(Node<K, V> node, Object owner) {
+        if (node.left == null) {
+            return node.right;
+        }
+        Node<K, V> result = editable(node, owner);
+        result.left = removeFirst(node.left, owner);
+        return rebalance(result, owner);
+    }
+
+    // Restores the balance of an editable node whose subtrees' heights differ by at most 2.
+    private static <K, V> Node<K, V> rebalance(Node<K, V> node, Object owner) {
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(editable(node.left, owner), owner);
+            }
+            return rotateRight(node, owner);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(editable(node.right, owner), owner);
+            }
+            return rotateLeft(node, owner);
+        }
+        update(node);
+        return node;
+    }
+
+    private static <K, V> Node<K, V> rotateRight(Node<K, V> node, Object owner) {
+        Node<K, V> left = editable(node.left, owner);
+        node.left = left.right;
+        update(node);
+        left.right = node;
+        update(left);
+        return left;
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(Node<K, V> node, Object owner) {
+        Node<K, V> right = editable(node.right, owner);
+        node.right = right.left;
+        update(node);
+        right.left = node;
+        update(right);
+        return right;
+    }
+
+    private static void update(Node<?, ?> node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+}
@@ -0,0 +1,120 @@
+package com.quiltdata.quiltcore;
+
+import com.quiltdata.quiltcore.transfer.TransferProgressListener;
+
+/**
+ * Options controlling how {@link Manifest#push(Namespace, String, String, PushOptions)} uploads entries.
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * TransferStats stats = new TransferStats();
+ * PushOptions options = PushOptions.builder()
+ *     .setProgressListener(stats)
+ *     .build();
+ * manifest.push(namespace, "message", null, options);
+ * }</pre>
+ */
+public class PushOptions {
+    /**
+     * Represents a builder for creating a {@link PushOptions} object.
+     */
+    public static class Builder {
+        private TransferProgressListener progressListener = TransferProgressListener.NO_OP;
+        private boolean logTransfers = false;
+        private boolean dedup = false;
+
+        /**
+         * Sets the listener receiving progress events for the whole push.
+         *
+         * @param progressListener The listener.
+         * @return This builder.
+         */
+        public Builder setProgressListener(TransferProgressListener progressListener) {
+            this.progressListener = progressListener == null ? TransferProgressListener.NO_OP : progressListener;
+            return this;
+        }
+
+        /**
+         * Sets whether the progress of every file is logged individually. Disabled by default.
+         *
+         * @param logTransfers Whether to log per-file progress.
+         * @return This builder.
+         */
+        public Builder setLogTransfers(boolean logTransfers) {
+            this.logTransfers = logTransfers;
+            return this;
+        }
+
+        /**
+         * Sets whether entries unchanged since the latest revision of the namespace are reused
+         * instead of uploaded again. Disabled by default.
+         *
+         * <p>
+         * An entry is unchanged if the latest revision has an entry with the same logical key, size and hash
+         * whose physical key is a versioned S3 object; the new manifest then points at that object version.
+         * </p>
+         *
+         * @param dedup Whether to skip unchanged entries.
+         * @return This builder.
+         */
+        public Builder setDedup(boolean dedup) {
+            this.dedup = dedup;
+            return this;
+        }
+
+        /**
+         * Builds a {@link PushOptions} object.
+         *
+         * @return The built {@link PushOptions} object.
+         */
+        public PushOptions build() {
+            return new PushOptions(this);
+        }
+    }
+
+    private final TransferProgressListener progressListener;
+    private final boolean logTransfers;
+    private final boolean dedup;
+
+    private PushOptions(Builder builder) {
+        progressListener = builder.progressListener;
+        logTransfers = builder.logTransfers;
+        dedup = builder.dedup;
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the PushOptions class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the listener receiving progress events for the whole push.
+     *
+     * @return The listener.
+     */
+    public TransferProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * Returns whether the progress of every file is logged individually.
+     *
+     * @return Whether to log per-file progress.
+     */
+    public boolean isLogTransfers() {
+        return logTransfers;
+    }
+
+    /**
+     * Returns whether entries unchanged since the latest revision are reused instead of uploaded again.
+     *
+     * @return Whether to skip unchanged entries.
+     */
+    public boolean isDedup() {
+        return dedup;
+    }
+}
@@ -1,13 +1,23 @@
 package com.quiltdata.quiltcore;
 
 import com.quiltdata.quiltcore.key.PhysicalKey;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
 import com.quiltdata.quiltcore.workflows.ConfigurationException;
 import com.quiltdata.quiltcore.workflows.WorkflowConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The Registry class represents a registry of packages and namespaces in the Quilt Core library.
@@ -16,9 +26,106 @@ import java.net.URISyntaxException;
 public class Registry {
     private static final Logger logger = LoggerFactory.getLogger(Registry.class);
 
+    /**
+     * The default number of user directories listed at the same time by {@link #listPackages()}.
+     */
+    public static final int DEFAULT_LIST_CONCURRENCY = 16;
+
+    /**
+     * Represents a builder for creating a {@link Registry} object.
+     */
+    public static class Builder {
+        private PhysicalKey root;
+        private ManifestCache manifestCache;
+        private TagCache tagCache;
+        private Duration workflowConfigTtl = Duration.ZERO;
+
+        /**
+         * Sets the root physical key of the registry.
+         *
+         * @param root The root physical key.
+         * @return This builder.
+         */
+        public Builder setRoot(PhysicalKey root) {
+            this.root = root;
+            return this;
+        }
+
+        /**
+         * Sets the cache used for manifests loaded through the registry's namespaces.
+         * The same cache can be shared by several registries. No cache is used by default.
+         *
+         * @param manifestCache The cache, or null to load manifests on every call.
+         * @return This builder.
+         */
+        public Builder setManifestCache(ManifestCache manifestCache) {
+            this.manifestCache = manifestCache;
+            return this;
+        }
+
+        /**
+         * Sets the cache used for tags resolved through the registry's namespaces.
+         * The same cache can be shared by several registries. No cache is used by default.
+         *
+         * @param tagCache The cache, or null to read tags on every call.
+         * @return This builder.
+         */
+        public Builder setTagCache(TagCache tagCache) {
+            this.tagCache = tagCache;
+            return this;
+        }
+
+        /**
+         * Sets the time the workflow config is reused without revalidation. By default, the config
+         * is revalidated with a conditional read on every call, which doesn't transfer or parse
+         * it again if it hasn't changed.
+         *
+         * @param workflowConfigTtl The time to live.
+         * @return This builder.
+         */
+        public Builder setWorkflowConfigTtl(Duration workflowConfigTtl) {
+            this.workflowConfigTtl = workflowConfigTtl;
+            return this;
+        }
+
+        /**
+         * Builds a {@link Registry} object.
+         *
+         * @return The built {@link Registry} object.
+         */
+        public Registry build() {
+            if (root == null) {
+                throw new IllegalArgumentException("Registry root is required");
+            }
+            if (workflowConfigTtl == null || workflowConfigTtl.isNegative()) {
+                throw new IllegalArgumentException("Workflow config TTL must not be negative");
+            }
+            return new Registry(this);
+        }
+    }
+
     private final PhysicalKey names;
     private final PhysicalKey versions;
     private final PhysicalKey workflowConfigPath;
+    private final ManifestCache manifestCache;
+    private final TagCache tagCache;
+    private final long workflowConfigTtlNanos;
+    private final AtomicReference<CachedWorkflowConfig> workflowConfig = new AtomicReference<>();
+
+    private static class CachedWorkflowConfig {
+        // Null if the registry has no workflow config.
+        final WorkflowConfig config;
+        final byte[] bytes;
+        final String validator;
+        final long fetchedNanos;
+
+        CachedWorkflowConfig(WorkflowConfig config, byte[] bytes, String validator, long fetchedNanos) {
+            this.config = config;
+            this.bytes = bytes;
+            this.validator = validator;
+            this.fetchedNanos = fetchedNanos;
+        }
+    }
 
     /**
      * Constructs a new Namespace object for a registry as that @uriString
@@ -44,11 +151,83 @@ public class Registry {
      * @param root The root physical key of the registry.
      */
     public Registry(PhysicalKey root) {
+        this(builder().setRoot(root));
+    }
+
+    private Registry(Builder builder) {
+        PhysicalKey root = builder.root;
         logger.info("Creating registry at root: {}", root);
         names = root.resolve(".quilt/named_packages");
         versions = root.resolve(".quilt/packages");
         workflowConfigPath = root.resolve(".quilt/workflows/config.yml");
         // TODO: Handle config.yaml as well
+        manifestCache = builder.manifestCache;
+        tagCache = builder.tagCache;
+        workflowConfigTtlNanos = builder.workflowConfigTtl.toNanos();
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the Registry class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the cache used for manifests loaded through the registry's namespaces.
+     *
+     * @return The cache, or null if manifests are not cached.
+     */
+    public ManifestCache getManifestCache() {
+        return manifestCache;
+    }
+
+    /**
+     * Returns the cache used for tags resolved through the registry's namespaces.
+     *
+     * @return The cache, or null if tags are not cached.
+     */
+    public TagCache getTagCache() {
+        return tagCache;
+    }
+
+    /**
+     * Lists the names of all packages in the registry, listing up to
+     * {@value #DEFAULT_LIST_CONCURRENCY} user prefixes at a time.
+     *
+     * @return A stream of package names; it should be closed if not fully consumed.
+     * @throws IOException If the registry can't be listed.
+     * @see #listPackages(int)
+     */
+    public Stream<String> listPackages() throws IOException {
+        return listPackages(DEFAULT_LIST_CONCURRENCY);
+    }
+
+    /**
+     * Lists the names of all packages in the registry, in the form {@code user/package}.
+     *
+     * <p>
+     * Package names have exactly two levels, so instead of listing every tag under
+     * {@code .quilt/named_packages}, only the directories of the two levels are listed
+     * (with delimiter-based listings on S3). The user directories are listed first, and
+     * their packages are listed in parallel, with at most {@code concurrency} listings in flight.
+     * Results are streamed in lexicographic order as they become available.
+     * An {@link java.io.UncheckedIOException} is thrown from the stream if a listing fails.
+     * </p>
+     *
+     * @param concurrency The maximum number of user directories listed at the same time.
+     * @return A stream of package names; it should be closed if not fully consumed.
+     * @throws IOException If the registry can't be listed.
+     */
+    public Stream<String> listPackages(int concurrency) throws IOException {
+        Stream<String> users = names.listChildDirectories();
+        return LazyParallel.mapOrdered(users.iterator(), concurrency, user -> {
+            try (Stream<String> packages = names.resolve(user).listChildDirectories()) {
+                return packages.map(pkg -> user + "/" + pkg).collect(Collectors.toList());
+            }
+        }).flatMap(List::stream).onClose(users::close);
     }
 
     /**
@@ -65,10 +244,57 @@ public class Registry {
     /**
      * Returns the WorkflowConfig object representing the workflow configuration.
      *
-     * @return The WorkflowConfig object.
+     * <p>
+     * The config is cached together with the validators compiled from it. Once the TTL set with
+     * {@link Builder#setWorkflowConfigTtl(Duration)} expires, it is revalidated with a conditional read
+     * (If-None-Match for S3, modification time for local registries); it is only parsed and its schemas
+     * are only compiled again if it has changed. The returned config records the effective, versioned
+     * physical key it was read from.
+     * </p>
+     *
+     * @return The WorkflowConfig object, or null if the registry has no workflow config.
      * @throws ConfigurationException If there is an error loading the workflow configuration.
      */
     public WorkflowConfig getWorkflowConfig() throws ConfigurationException {
-        return WorkflowConfig.load(workflowConfigPath);
+        CachedWorkflowConfig cached = workflowConfig.get();
+        long now = System.nanoTime();
+        if (cached != null && now - cached.fetchedNanos < workflowConfigTtlNanos) {
+            Metrics.counter(MetricNames.WORKFLOW_CONFIG_CACHE_HITS).increment();
+            return cached.config;
+        }
+
+        PhysicalKey.ConditionalResponse response;
+        try {
+            response = workflowConfigPath.getBytesIfChanged(cached == null ? null : cached.validator);
+        } catch (NoSuchFileException e) {
+            response = new PhysicalKey.ConditionalResponse(new byte[0], null, workflowConfigPath);
+        } catch (IOException e) {
+            throw new ConfigurationException("Couldn't load workflows config", e);
+        }
+
+        CachedWorkflowConfig updated;
+        if (response == null) {
+            Metrics.counter(MetricNames.WORKFLOW_CONFIG_CACHE_NOT_MODIFIED).increment();
+            updated = new CachedWorkflowConfig(cached.config, cached.bytes, cached.validator, now);
+        } else if (cached != null && Arrays.equals(cached.bytes, response.bytes)) {
+            // Re-read without a validator (or while the file was changing), but the contents are the same.
+            Metrics.counter(MetricNames.WORKFLOW_CONFIG_CACHE_NOT_MODIFIED).increment();
+            updated = new CachedWorkflowConfig(cached.config, cached.bytes, response.validator, now);
+        } else {
+            Metrics.counter(MetricNames.WORKFLOW_CONFIG_CACHE_MISSES).increment();
+            logger.info("Loading workflows config from {}", response.effectivePhysicalKey);
+            WorkflowConfig config = WorkflowConfig.parse(response.bytes, response.effectivePhysicalKey);
+            updated = new CachedWorkflowConfig(config, response.bytes, response.validator, now);
+        }
+        // Don't replace a config stored by a concurrent call that read a newer version.
+        workflowConfig.compareAndSet(cached, updated);
+        return updated.config;
+    }
+
+    /**
+     * Drops the cached workflow config, so that the next call of {@link #getWorkflowConfig()} reads it again.
+     */
+    public void invalidateWorkflowConfig() {
+        workflowConfig.set(null);
     }
 }
@@ -0,0 +1,48 @@
+package com.quiltdata.quiltcore;
+
+import java.time.Instant;
+
+/**
+ * Represents a revision of a package: the top hash that was pushed at a point in time.
+ */
+public class Revision {
+    private final Instant timestamp;
+    private final String topHash;
+
+    /**
+     * Constructs a new Revision object.
+     *
+     * @param timestamp The time of the push.
+     * @param topHash The top hash of the pushed manifest.
+     */
+    public Revision(Instant timestamp, String topHash) {
+        this.timestamp = timestamp;
+        this.topHash = topHash;
+    }
+
+    /**
+     * Returns the time of the push.
+     *
+     * @return The timestamp.
+     */
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the top hash of the pushed manifest.
+     *
+     * @return The top hash.
+     */
+    public String getTopHash() {
+        return topHash;
+    }
+
+    @Override
+    public String toString() {
+        return "Revision{" +
+                "timestamp=" + timestamp +
+                ", topHash=" + topHash +
+                '}';
+    }
+}
@@ -0,0 +1,333 @@
+package com.quiltdata.quiltcore;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Tuning options applied to every S3 client created by {@link S3ClientStore}, both the synchronous
+ * clients and the CRT-based asynchronous clients used by the transfer manager.
+ *
+ * <p>
+ * Options that are not set keep the AWS SDK defaults, except for the part size, which defaults to
+ * {@value #DEFAULT_MINIMUM_PART_SIZE} bytes.
+ * </p>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * S3ClientStore.setConfig(S3ClientConfig.builder()
+ *     .setTargetThroughputInGbps(100.0)
+ *     .setMaxConcurrency(512)
+ *     .setMinimumPartSize(64L * 1024 * 1024)
+ *     .setMaxConnections(512)
+ *     .build());
+ * }</pre>
+ */
+public class S3ClientConfig {
+    /**
+     * The default minimum size of the parts of multipart transfers.
+     */
+    public static final long DEFAULT_MINIMUM_PART_SIZE = 8L * 1024 * 1024;
+
+    /**
+     * The configuration used when none is set: SDK defaults, with 8 MiB parts.
+     */
+    public static final S3ClientConfig DEFAULT = builder().build();
+
+    /**
+     * Represents a builder for creating an {@link S3ClientConfig} object.
+     */
+    public static class Builder {
+        private Double targetThroughputInGbps;
+        private Integer maxConcurrency;
+        private long minimumPartSize = DEFAULT_MINIMUM_PART_SIZE;
+        private Integer maxConnections;
+        private Duration connectionTimeout;
+        private Duration socketTimeout;
+        private Duration apiCallTimeout;
+        private Duration apiCallAttemptTimeout;
+        private Integer maxRetries;
+        private URI endpointOverride;
+        private Boolean forcePathStyle;
+
+        /**
+         * Sets the throughput the asynchronous client aims for; the CRT client sizes its
+         * connection pool from it.
+         *
+         * @param targetThroughputInGbps The target throughput in gigabits per second.
+         * @return This builder.
+         */
+        public Builder setTargetThroughputInGbps(Double targetThroughputInGbps) {
+            this.targetThroughputInGbps = targetThroughputInGbps;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of concurrent requests of the asynchronous client.
+         * Overrides the value derived from the target throughput.
+         *
+         * @param maxConcurrency The maximum number of concurrent requests.
+         * @return This builder.
+         */
+        public Builder setMaxConcurrency(Integer maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets the minimum size of the parts of multipart uploads, downloads and copies.
+         *
+         * @param minimumPartSize The part size in bytes.
+         * @return This builder.
+         */
+        public Builder setMinimumPartSize(long minimumPartSize) {
+            this.minimumPartSize = minimumPartSize;
+            return this;
+        }
+
+        /**
+         * Sets the size of the connection pool of the synchronous clients.
+         *
+         * @param maxConnections The maximum number of connections.
+         * @return This builder.
+         */
+        public Builder setMaxConnections(Integer maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Sets the time allowed for establishing a connection.
+         *
+         * @param connectionTimeout The timeout.
+         * @return This builder.
+         */
+        public Builder setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the time the synchronous clients wait for data on an open connection.
+         *
+         * @param socketTimeout The timeout.
+         * @return This builder.
+         */
+        public Builder setSocketTimeout(Duration socketTimeout) {
+            this.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the time allowed for a complete API call of the synchronous clients, including retries.
+         *
+         * @param apiCallTimeout The timeout.
+         * @return This builder.
+         */
+        public Builder setApiCallTimeout(Duration apiCallTimeout) {
+            this.apiCallTimeout = apiCallTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the time allowed for a single attempt of an API call of the synchronous clients.
+         *
+         * @param apiCallAttemptTimeout The timeout.
+         * @return This builder.
+         */
+        public Builder setApiCallAttemptTimeout(Duration apiCallAttemptTimeout) {
+            this.apiCallAttemptTimeout = apiCallAttemptTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the number of times a failed request is retried.
+         *
+         * @param maxRetries The number of retries.
+         * @return This builder.
+         */
+        public Builder setMaxRetries(Integer maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets the endpoint used instead of the AWS S3 endpoint, e.g. for S3-compatible stores.
+         *
+         * @param endpointOverride The endpoint URI.
+         * @return This builder.
+         */
+        public Builder setEndpointOverride(URI endpointOverride) {
+            this.endpointOverride = endpointOverride;
+            return this;
+        }
+
+        /**
+         * Sets whether buckets are addressed in the path rather than in the host name.
+         *
+         * @param forcePathStyle Whether to use path-style addressing.
+         * @return This builder.
+         */
+        public Builder setForcePathStyle(Boolean forcePathStyle) {
+            this.forcePathStyle = forcePathStyle;
+            return this;
+        }
+
+        /**
+         * Builds an {@link S3ClientConfig} object.
+         *
+         * @return The built {@link S3ClientConfig} object.
+         */
+        public S3ClientConfig build() {
+            if (targetThroughputInGbps != null && targetThroughputInGbps <= 0) {
+                throw new IllegalArgumentException("Target throughput must be positive");
+            }
+            if (maxConcurrency != null && maxConcurrency <= 0) {
+                throw new IllegalArgumentException("Max concurrency must be positive");
+            }
+            if (minimumPartSize <= 0) {
+                throw new IllegalArgumentException("Part size must be positive");
+            }
+            if (maxConnections != null && maxConnections <= 0) {
+                throw new IllegalArgumentException("Max connections must be positive");
+            }
+            if (maxRetries != null && maxRetries < 0) {
+                throw new IllegalArgumentException("Max retries must not be negative");
+            }
+            return new S3ClientConfig(this);
+        }
+    }
+
+    private final Double targetThroughputInGbps;
+    private final Integer maxConcurrency;
+    private final long minimumPartSize;
+    private final Integer maxConnections;
+    private final Duration connectionTimeout;
+    private final Duration socketTimeout;
+    private final Duration apiCallTimeout;
+    private final Duration apiCallAttemptTimeout;
+    private final Integer maxRetries;
+    private final URI endpointOverride;
+    private final Boolean forcePathStyle;
+
+    private S3ClientConfig(Builder builder) {
+        targetThroughputInGbps = builder.targetThroughputInGbps;
+        maxConcurrency = builder.maxConcurrency;
+        minimumPartSize = builder.minimumPartSize;
+        maxConnections = builder.maxConnections;
+        connectionTimeout = builder.connectionTimeout;
+        socketTimeout = builder.socketTimeout;
+        apiCallTimeout = builder.apiCallTimeout;
+        apiCallAttemptTimeout = builder.apiCallAttemptTimeout;
+        maxRetries = builder.maxRetries;
+        endpointOverride = builder.endpointOverride;
+        forcePathStyle = builder.forcePathStyle;
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the S3ClientConfig class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the throughput the asynchronous client aims for.
+     *
+     * @return The target throughput in gigabits per second, or null for the default.
+     */
+    public Double getTargetThroughputInGbps() {
+        return targetThroughputInGbps;
+    }
+
+    /**
+     * Returns the maximum number of concurrent requests of the asynchronous client.
+     *
+     * @return The maximum number of concurrent requests, or null for the default.
+     */
+    public Integer getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the minimum size of the parts of multipart transfers.
+     *
+     * @return The part size in bytes.
+     */
+    public long getMinimumPartSize() {
+        return minimumPartSize;
+    }
+
+    /**
+     * Returns the size of the connection pool of the synchronous clients.
+     *
+     * @return The maximum number of connections, or null for the default.
+     */
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Returns the time allowed for establishing a connection.
+     *
+     * @return The timeout, or null for the default.
+     */
+    public Duration getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    /**
+     * Returns the time the synchronous clients wait for data on an open connection.
+     *
+     * @return The timeout, or null for the default.
+     */
+    public Duration getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    /**
+     * Returns the time allowed for a complete API call of the synchronous clients.
+     *
+     * @return The timeout, or null for the default.
+     */
+    public Duration getApiCallTimeout() {
+        return apiCallTimeout;
+    }
+
+    /**
+     * Returns the time allowed for a single attempt of an API call of the synchronous clients.
+     *
+     * @return The timeout, or null for the default.
+     */
+    public Duration getApiCallAttemptTimeout() {
+        return apiCallAttemptTimeout;
+    }
+
+    /**
+     * Returns the number of times a failed request is retried.
+     *
+     * @return The number of retries, or null for the default.
+     */
+    public Integer getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Returns the endpoint used instead of the AWS S3 endpoint.
+     *
+     * @return The endpoint URI, or null for the default.
+     */
+    public URI getEndpointOverride() {
+        return endpointOverride;
+    }
+
+    /**
+     * Returns whether buckets are addressed in the path rather than in the host name.
+     *
+     * @return Whether to use path-style addressing, or null for the default.
+     */
+    public Boolean getForcePathStyle() {
+        return forcePathStyle;
+    }
+}
@@ -1,28 +1,65 @@
 package com.quiltdata.quiltcore;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import software.amazon.awssdk.awscore.retry.AwsRetryStrategy;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3CrtAsyncClientBuilder;
+import software.amazon.awssdk.services.s3.crt.S3CrtHttpConfiguration;
+import software.amazon.awssdk.services.s3.crt.S3CrtRetryConfiguration;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This class represents a store for S3 clients and provides methods to retrieve S3 clients based on bucket names.
+ *
+ * <p>
+ * Clients are created on first use. Bucket regions are looked up once per bucket; they can also be
+ * supplied up front with {@link #setBucketRegion(String, Region)}, or loaded from (and saved to) a
+ * region cache file so that short-lived processes don't have to look them up again. The cache file is a
+ * properties file of {@code bucket=region} lines, set with {@link #setRegionCacheFile(Path)} or the
+ * {@value #REGION_CACHE_FILE_PROPERTY} system property; it can also be written by hand.
+ * </p>
+ *
+ * <p>
+ * All clients are created from the same {@link S3ClientConfig}, which can be replaced with
+ * {@link #setConfig(S3ClientConfig)}.
+ * </p>
  */
 public class S3ClientStore {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(S3ClientStore.class);
-    private static final S3Client LOCATION_CLIENT = createClient(Region.US_EAST_1);
 
-    private static final Map<String, Region> regionMap = Collections.synchronizedMap(new HashMap<>());
-    private static final Map<Region, S3AsyncClient> asyncClientMap = Collections.synchronizedMap(new HashMap<>());
-    private static final Map<Region, S3Client> clientMap = Collections.synchronizedMap(new HashMap<>());
+    /**
+     * The system property with the path of the region cache file.
+     */
+    public static final String REGION_CACHE_FILE_PROPERTY = "quiltcore.s3.regionCacheFile";
+
+    private static final Map<String, Region> regionMap = new ConcurrentHashMap<>();
+    private static final Map<Region, S3AsyncClient> asyncClientMap = new ConcurrentHashMap<>();
+    private static final Map<Region, S3Client> clientMap = new ConcurrentHashMap<>();
+
+    private static volatile S3ClientConfig config = S3ClientConfig.DEFAULT;
+
+    private static final Object regionCacheLock = new Object();
+    private static volatile Path regionCacheFile = initialRegionCacheFile();
+    private static volatile boolean regionCacheLoaded = false;
 
     /**
      * Retrieves an asynchronous S3 client for the specified bucket.
@@ -47,6 +84,28 @@ public class S3ClientStore {
         return clientMap.computeIfAbsent(region, S3ClientStore::createClient);
     }
 
+    /**
+     * Returns the configuration used to create clients.
+     *
+     * @return The client configuration.
+     */
+    public static S3ClientConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Sets the configuration used to create clients. Clients created with the previous configuration
+     * are dropped from the store, but are not closed, since callers may still be using them; set the
+     * configuration before the first transfer to avoid creating them at all.
+     *
+     * @param newConfig The client configuration, or null for {@link S3ClientConfig#DEFAULT}.
+     */
+    public static void setConfig(S3ClientConfig newConfig) {
+        config = newConfig == null ? S3ClientConfig.DEFAULT : newConfig;
+        asyncClientMap.clear();
+        clientMap.clear();
+    }
+
     /**
      * Retrieves the region of the specified bucket.
      *
@@ -54,14 +113,110 @@ public class S3ClientStore {
      * @return The region of the bucket.
      */
     public static Region getBucketRegion(String bucket) {
-        return regionMap.computeIfAbsent(bucket, S3ClientStore::findBucketRegion);
+        loadRegionCache();
+        Region region = regionMap.get(bucket);
+        if (region != null) {
+            return region;
+        }
+
+        // Looked up outside of the map, so that lookups of other buckets are not blocked.
+        region = findBucketRegion(bucket);
+        Region existing = regionMap.putIfAbsent(bucket, region);
+        if (existing != null) {
+            return existing;
+        }
+        saveRegionCache();
+        return region;
+    }
+
+    /**
+     * Sets the region of the specified bucket, so that it doesn't need to be looked up.
+     *
+     * @param bucket The name of the bucket.
+     * @param region The region of the bucket.
+     */
+    public static void setBucketRegion(String bucket, Region region) {
+        regionMap.put(bucket, region);
+    }
+
+    /**
+     * Sets the file where bucket regions are cached across processes. Regions in the file are loaded
+     * on the next lookup, and newly found regions are written back to it.
+     *
+     * @param file The properties file, or null to disable the cache file.
+     */
+    public static void setRegionCacheFile(Path file) {
+        synchronized (regionCacheLock) {
+            regionCacheFile = file;
+            regionCacheLoaded = false;
+        }
+    }
+
+    private static Path initialRegionCacheFile() {
+        String path = System.getProperty(REGION_CACHE_FILE_PROPERTY);
+        return path == null || path.isEmpty() ? null : Path.of(path);
+    }
+
+    private static void loadRegionCache() {
+        if (regionCacheLoaded) {
+            return;
+        }
+        synchronized (regionCacheLock) {
+            if (regionCacheLoaded) {
+                return;
+            }
+            regionCacheLoaded = true;
+            if (regionCacheFile == null || !Files.exists(regionCacheFile)) {
+                return;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(regionCacheFile)) {
+                properties.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Could not read region cache file: {}", regionCacheFile, e);
+                return;
+            }
+            logger.debug("Loaded {} bucket regions from {}", properties.size(), regionCacheFile);
+            // Regions set explicitly take precedence over the file.
+            properties.forEach((bucket, region) -> regionMap.putIfAbsent((String) bucket, Region.of((String) region)));
+        }
+    }
+
+    private static void saveRegionCache() {
+        synchronized (regionCacheLock) {
+            if (regionCacheFile == null) {
+                return;
+            }
+            Properties properties = new Properties();
+            regionMap.forEach((bucket, region) -> properties.setProperty(bucket, region.id()));
+            try {
+                Path dir = regionCacheFile.toAbsolutePath().getParent();
+                Files.createDirectories(dir);
+                Path tmp = Files.createTempFile(dir, regionCacheFile.getFileName().toString(), ".tmp");
+                try {
+                    try (OutputStream out = Files.newOutputStream(tmp)) {
+                        properties.store(out, "Bucket regions cached by quiltcore");
+                    }
+                    Files.move(tmp, regionCacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+            } catch (IOException e) {
+                // The cache is an optimization; lookups still work without it.
+                logger.warn("Could not write region cache file: {}", regionCacheFile, e);
+            }
+        }
     }
 
     private static Region findBucketRegion(String bucket) {
         SdkHttpResponse response;
         logger.debug("Finding region for bucket: {}", bucket);
+        S3Client locationClient = clientMap.computeIfAbsent(Region.US_EAST_1, S3ClientStore::createClient);
         try {
-            response = LOCATION_CLIENT.headBucket(builder -> builder.bucket(bucket)).sdkHttpResponse();
+            response = Metrics.recordS3Call(
+                "HeadBucket",
+                () -> locationClient.headBucket(builder -> builder.bucket(bucket)).sdkHttpResponse()
+            );
         } catch (S3Exception e) {
             if (e.statusCode() == 301 || e.statusCode() == 400) {
                 response = e.awsErrorDetails().sdkHttpResponse();
@@ -77,13 +232,54 @@ public class S3ClientStore {
     }
 
     private static S3AsyncClient createAsyncClient(Region region) {
-        return S3AsyncClient.crtBuilder()
+        S3ClientConfig c = config;
+        S3CrtAsyncClientBuilder builder = S3AsyncClient.crtBuilder()
             .region(region)
-            .minimumPartSizeInBytes(8L * 1024 * 1024)
-            .build();
+            .minimumPartSizeInBytes(c.getMinimumPartSize())
+            .targetThroughputInGbps(c.getTargetThroughputInGbps())
+            .maxConcurrency(c.getMaxConcurrency())
+            .endpointOverride(c.getEndpointOverride())
+            .forcePathStyle(c.getForcePathStyle());
+        if (c.getConnectionTimeout() != null) {
+            builder.httpConfiguration(S3CrtHttpConfiguration.builder().connectionTimeout(c.getConnectionTimeout()).build());
+        }
+        if (c.getMaxRetries() != null) {
+            builder.retryConfiguration(S3CrtRetryConfiguration.builder().numRetries(c.getMaxRetries()).build());
+        }
+        return builder.build();
     }
 
     private static S3Client createClient(Region region) {
-        return S3Client.builder().region(region).build();
+        S3ClientConfig c = config;
+        // Unset options are left alone so that the HTTP client keeps its own defaults.
+        ApacheHttpClient.Builder httpClient = ApacheHttpClient.builder();
+        if (c.getMaxConnections() != null) {
+            httpClient.maxConnections(c.getMaxConnections());
+        }
+        if (c.getConnectionTimeout() != null) {
+            httpClient.connectionTimeout(c.getConnectionTimeout());
+        }
+        if (c.getSocketTimeout() != null) {
+            httpClient.socketTimeout(c.getSocketTimeout());
+        }
+        ClientOverrideConfiguration.Builder overrides = ClientOverrideConfiguration.builder()
+            .apiCallTimeout(c.getApiCallTimeout())
+            .apiCallAttemptTimeout(c.getApiCallAttemptTimeout());
+        if (c.getMaxRetries() != null) {
+            // The first attempt counts towards the maximum number of attempts.
+            overrides.retryStrategy(
+                AwsRetryStrategy.standardRetryStrategy().toBuilder().maxAttempts(c.getMaxRetries() + 1).build()
+            );
+        }
+
+        S3ClientBuilder builder = S3Client.builder()
+            .region(region)
+            .httpClientBuilder(httpClient)
+            .overrideConfiguration(overrides.build())
+            .forcePathStyle(c.getForcePathStyle());
+        if (c.getEndpointOverride() != null) {
+            builder.endpointOverride(c.getEndpointOverride());
+        }
+        return builder.build();
     }
 }
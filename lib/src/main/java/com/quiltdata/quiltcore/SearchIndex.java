@@ -0,0 +1,355 @@
+package com.quiltdata.quiltcore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local index of the logical keys and hashes of every package revision in a registry.
+ *
+ * <p>
+ * The index answers "which package revisions contain logical key X" (or keys starting with X) and
+ * "where is hash H referenced" without loading any manifest. It is stored in a directory as two
+ * sorted record files, one ordered by logical key and one by hash, each with a sparse block index that
+ * is loaded into memory, plus the list of indexed revisions.
+ * </p>
+ *
+ * <p>
+ * {@link #update(Registry, Path)} builds the index or brings it up to date: it lists the packages of the
+ * registry in parallel, reads only the revisions newer than the ones already indexed, scans their manifests
+ * in parallel with a streaming parser, and merges the new records into the existing files.
+ * Revisions deleted from the registry are not removed from the index.
+ * </p>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * SearchIndex index = SearchIndex.update(registry, Path.of("/var/cache/quilt/index"));
+ * for (SearchIndex.Match match : index.findLogicalKey("data/train.csv")) {
+ *     System.out.println(match.getPackageName() + "@" + match.getTopHash());
+ * }
+ * }</pre>
+ */
+public class SearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndex.class);
+
+    /**
+     * The default number of packages listed, and manifests scanned, at the same time by {@link #update(Registry, Path)}.
+     */
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    private static final String KEYS_FILE = "keys.tsv";
+    private static final String HASHES_FILE = "hashes.tsv";
+    private static final String REVISIONS_FILE = "revisions.tsv";
+
+    private static final int BLOCK_SIZE = 128;
+    private static final int MAX_BUFFERED_LINES = 1_000_000;
+
+    /**
+     * Represents an occurrence of a logical key in a package revision.
+     */
+    public static class Match {
+        private final String logicalKey;
+        private final String hash;
+        private final String packageName;
+        private final String topHash;
+
+        /**
+         * Constructs a new Match object.
+         *
+         * @param logicalKey The logical key of the entry.
+         * @param hash The hash value of the entry.
+         * @param packageName The name of the package.
+         * @param topHash The top hash of the revision.
+         */
+        public Match(String logicalKey, String hash, String packageName, String topHash) {
+            this.logicalKey = logicalKey;
+            this.hash = hash;
+            this.packageName = packageName;
+            this.topHash = topHash;
+        }
+
+        /**
+         * Returns the logical key of the entry.
+         *
+         * @return The logical key.
+         */
+        public String getLogicalKey() {
+            return logicalKey;
+        }
+
+        /**
+         * Returns the hash value of the entry.
+         *
+         * @return The hash value.
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * Returns the name of the package.
+         *
+         * @return The package name.
+         */
+        public String getPackageName() {
+            return packageName;
+        }
+
+        /**
+         * Returns the top hash of the revision.
+         *
+         * @return The top hash.
+         */
+        public String getTopHash() {
+            return topHash;
+        }
+
+        @Override
+        public String toString() {
+            return "Match{" +
+                    "logicalKey=" + logicalKey +
+                    ", hash=" + hash +
+                    ", packageName=" + packageName +
+                    ", topHash=" + topHash +
+                    '}';
+        }
+    }
+
+    private final SortedRecordFile keys;
+    private final SortedRecordFile hashes;
+
+    private SearchIndex(SortedRecordFile keys, SortedRecordFile hashes) {
+        this.keys = keys;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Opens an index previously written by {@link #update(Registry, Path)}.
+     *
+     * @param dir The directory of the index.
+     * @return The index.
+     * @throws IOException If the index can't be read.
+     */
+    public static SearchIndex open(Path dir) throws IOException {
+        return new SearchIndex(
+            SortedRecordFile.open(dir.resolve(KEYS_FILE)),
+            SortedRecordFile.open(dir.resolve(HASHES_FILE))
+        );
+    }
+
+    /**
+     * Builds or updates the index, with {@value #DEFAULT_CONCURRENCY} concurrent requests.
+     *
+     * @param registry The registry to index.
+     * @param dir The directory of the index; it is created if needed.
+     * @return The updated index.
+     * @throws IOException If the registry or the index can't be read, or the index can't be written.
+     * @see #update(Registry, Path, int)
+     */
+    public static SearchIndex update(Registry registry, Path dir) throws IOException {
+        return update(registry, dir, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Builds or updates the index.
+     *
+     * @param registry The registry to index.
+     * @param dir The directory of the index; it is created if needed.
+     * @param concurrency The maximum number of packages listed, and manifests scanned, at the same time.
+     * @return The updated index.
+     * @throws IOException If the registry or the index can't be read, or the index can't be written.
+     */
+    public static SearchIndex update(Registry registry, Path dir, int concurrency) throws IOException {
+        Files.createDirectories(dir);
+        Path revisionsFile = dir.resolve(REVISIONS_FILE);
+        Path keysFile = dir.resolve(KEYS_FILE);
+        Path hashesFile = dir.resolve(HASHES_FILE);
+
+        // Lines of "package \t timestamp \t tophash".
+        List<String> revisionLines = new ArrayList<>();
+        Map<String, Long> latestIndexed = new HashMap<>();
+        Set<String> indexedManifests = new HashSet<>();
+        if (Files.exists(revisionsFile)) {
+            revisionLines.addAll(Files.readAllLines(revisionsFile, StandardCharsets.UTF_8));
+            for (String line : revisionLines) {
+                String[] fields = line.split("\t");
+                latestIndexed.merge(fields[0], Long.parseLong(fields[1]), Math::max);
+                indexedManifests.add(fields[0] + "\t" + fields[2]);
+            }
+        }
+
+        List<String[]> newRevisions;
+        try (Stream<String> packages = registry.listPackages(concurrency)) {
+            newRevisions = LazyParallel.mapOrdered(packages.iterator(), concurrency, pkg -> {
+                long since = latestIndexed.getOrDefault(pkg, Long.MIN_VALUE);
+                // Revisions are newest-first, so stop at the first one that is already indexed.
+                try (Stream<Revision> revisions = registry.getNamespace(pkg).getRevisions()) {
+                    return revisions
+                        .takeWhile(r -> r.getTimestamp().getEpochSecond() > since)
+                        .map(r -> new String[] { pkg, Long.toString(r.getTimestamp().getEpochSecond()), r.getTopHash() })
+                        .collect(Collectors.toList());
+                }
+            }).flatMap(List::stream).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        List<String[]> manifestsToScan = new ArrayList<>();
+        for (String[] revision : newRevisions) {
+            if (indexedManifests.add(revision[0] + "\t" + revision[2])) {
+                manifestsToScan.add(revision);
+            }
+        }
+        logger.info("Indexing {} new revisions ({} manifests)", newRevisions.size(), manifestsToScan.size());
+        if (newRevisions.isEmpty() && Files.exists(keysFile)) {
+            return open(dir);
+        }
+
+        Path tmpDir = Files.createTempDirectory(dir, "tmp");
+        try (
+            ExternalSorter keySorter = new ExternalSorter(tmpDir, MAX_BUFFERED_LINES);
+            ExternalSorter hashSorter = new ExternalSorter(tmpDir, MAX_BUFFERED_LINES)
+        ) {
+            try (Stream<Integer> scanned = LazyParallel.mapOrdered(manifestsToScan.iterator(), concurrency, revision ->
+                scanManifest(registry, revision[0], revision[2], keySorter, hashSorter)
+            )) {
+                scanned.forEach(count -> { });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            Path newKeys = tmpDir.resolve(KEYS_FILE);
+            Path newHashes = tmpDir.resolve(HASHES_FILE);
+            if (Files.exists(keysFile)) {
+                try (
+                    Stream<String> keys = SortedRecordFile.open(keysFile).lines();
+                    Stream<String> hashes = SortedRecordFile.open(hashesFile).lines()
+                ) {
+                    SortedRecordFile.write(keySorter.sorted(List.of(keys.iterator())), newKeys, BLOCK_SIZE);
+                    SortedRecordFile.write(hashSorter.sorted(List.of(hashes.iterator())), newHashes, BLOCK_SIZE);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            } else {
+                SortedRecordFile.write(keySorter.sorted(List.of()), newKeys, BLOCK_SIZE);
+                SortedRecordFile.write(hashSorter.sorted(List.of()), newHashes, BLOCK_SIZE);
+            }
+
+            Path newRevisionsFile = tmpDir.resolve(REVISIONS_FILE);
+            try (BufferedWriter writer = Files.newBufferedWriter(newRevisionsFile, StandardCharsets.UTF_8)) {
+                for (String line : revisionLines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+                for (String[] revision : newRevisions) {
+                    writer.write(String.join("\t", revision));
+                    writer.write('\n');
+                }
+            }
+
+            // The revision list goes last: if anything fails before, the same revisions are indexed again,
+            // and the merge drops the duplicate records.
+            SortedRecordFile.move(newKeys, keysFile);
+            SortedRecordFile.move(newHashes, hashesFile);
+            Files.move(newRevisionsFile, revisionsFile, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            try (Stream<Path> leftovers = Files.list(tmpDir)) {
+                for (Path leftover : (Iterable<Path>) leftovers::iterator) {
+                    Files.deleteIfExists(leftover);
+                }
+            }
+            Files.deleteIfExists(tmpDir);
+        }
+
+        return open(dir);
+    }
+
+    private static int scanManifest(
+        Registry registry,
+        String packageName,
+        String topHash,
+        ExternalSorter keySorter,
+        ExternalSorter hashSorter
+    ) throws IOException {
+        Namespace namespace = registry.getNamespace(packageName);
+        int count = 0;
+        try (ManifestReader reader = ManifestReader.open(namespace.getVersions().resolve(topHash))) {
+            ManifestReader.Row row;
+            while ((row = reader.next()) != null) {
+                String logicalKey = SortedRecordFile.escape(row.logicalKey);
+                String hash = SortedRecordFile.escape(row.entry.getHash().value);
+                keySorter.add(logicalKey + "\t" + hash + "\t" + packageName + "\t" + topHash);
+                hashSorter.add(hash + "\t" + logicalKey + "\t" + packageName + "\t" + topHash);
+                count++;
+            }
+        } catch (NoSuchFileException e) {
+            logger.warn("Skipping missing manifest {} of {}", topHash, packageName);
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid manifest " + topHash + " in " + packageName, e);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the package revisions containing the given logical key.
+     *
+     * @param logicalKey The logical key.
+     * @return The matches, ordered by hash.
+     * @throws IOException If the index can't be read.
+     */
+    public List<Match> findLogicalKey(String logicalKey) throws IOException {
+        return toMatches(keys.find(SortedRecordFile.escape(logicalKey), false, Integer.MAX_VALUE), false);
+    }
+
+    /**
+     * Returns the entries whose logical keys start with the given prefix.
+     *
+     * @param prefix The prefix of the logical keys.
+     * @param limit The maximum number of matches to return.
+     * @return The matches, ordered by logical key.
+     * @throws IOException If the index can't be read.
+     */
+    public List<Match> findLogicalKeyPrefix(String prefix, int limit) throws IOException {
+        return toMatches(keys.find(SortedRecordFile.escape(prefix), true, limit), false);
+    }
+
+    /**
+     * Returns the entries with the given hash value.
+     *
+     * @param hash The hash value.
+     * @return The matches, ordered by logical key.
+     * @throws IOException If the index can't be read.
+     */
+    public List<Match> findHash(String hash) throws IOException {
+        return toMatches(hashes.find(SortedRecordFile.escape(hash), false, Integer.MAX_VALUE), true);
+    }
+
+    private static List<Match> toMatches(List<String[]> records, boolean byHash) {
+        List<Match> matches = new ArrayList<>(records.size());
+        for (String[] fields : records) {
+            String first = SortedRecordFile.unescape(fields[0]);
+            String second = SortedRecordFile.unescape(fields[1]);
+            matches.add(byHash
+                ? new Match(second, first, fields[2], fields[3])
+                : new Match(first, second, fields[2], fields[3]));
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,238 @@
+package com.quiltdata.quiltcore;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A text file of tab-separated records sorted by their first field, with a sparse index of
+ * the first key and byte offset of every block of records.
+ *
+ * <p>
+ * The sparse index is small enough to keep in memory, so a lookup only reads one block
+ * (plus whatever matches follow it) from disk.
+ * </p>
+ */
+final class SortedRecordFile {
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path file;
+    private final String[] blockKeys;
+    private final long[] blockOffsets;
+
+    private SortedRecordFile(Path file, String[] blockKeys, long[] blockOffsets) {
+        this.file = file;
+        this.blockKeys = blockKeys;
+        this.blockOffsets = blockOffsets;
+    }
+
+    /**
+     * Escapes control characters and backslashes so that a value fits in a single field, and
+     * no escaped value sorts before the tab that ends it. Escaping is applied character by character,
+     * so escaped prefixes remain prefixes.
+     */
+    static String escape(String value) {
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '\\': replacement = "\\\\"; break;
+                case '\t': replacement = "\\t"; break;
+                case '\n': replacement = "\\n"; break;
+                case '\r': replacement = "\\r"; break;
+                default: replacement = c < 0x20 ? String.format("\\u%04x", (int) c) : null;
+            }
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (sb != null) {
+                if (replacement != null) {
+                    sb.append(replacement);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb == null ? value : sb.toString();
+    }
+
+    /**
+     * Reverses {@link #escape(String)}.
+     */
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char n = value.charAt(++i);
+                if (n == 'u' && i + 4 < value.length()) {
+                    sb.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                    i += 4;
+                } else {
+                    sb.append(n == 't' ? '\t' : n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String keyOf(String line) {
+        int tab = line.indexOf('\t');
+        return tab < 0 ? line : line.substring(0, tab);
+    }
+
+    /**
+     * Writes sorted lines to the file, and the sparse index next to it.
+     *
+     * @param lines The lines, sorted by {@link String#compareTo(String)}.
+     * @param file The file to write.
+     * @param blockSize The number of records per block of the sparse index.
+     * @throws IOException If the file can't be written.
+     */
+    static void write(Iterator<String> lines, Path file, int blockSize) throws IOException {
+        Path indexFile = indexFileFor(file);
+        long offset = 0;
+        int count = 0;
+        try (
+            OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+            BufferedWriter index = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8)
+        ) {
+            while (lines.hasNext()) {
+                String line = lines.next();
+                if (count % blockSize == 0) {
+                    index.write(keyOf(line));
+                    index.write('\t');
+                    index.write(Long.toString(offset));
+                    index.write('\n');
+                }
+                byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                offset += bytes.length;
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Opens a file written by {@link #write(Iterator, Path, int)}, loading its sparse index.
+     *
+     * @param file The file.
+     * @return The opened file.
+     * @throws IOException If the index can't be read.
+     */
+    static SortedRecordFile open(Path file) throws IOException {
+        List<String> keys = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        try (BufferedReader index = Files.newBufferedReader(indexFileFor(file), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = index.readLine()) != null) {
+                int tab = line.lastIndexOf('\t');
+                keys.add(line.substring(0, tab));
+                offsets.add(Long.parseLong(line.substring(tab + 1)));
+            }
+        }
+        return new SortedRecordFile(
+            file,
+            keys.toArray(new String[0]),
+            offsets.stream().mapToLong(Long::longValue).toArray()
+        );
+    }
+
+    /**
+     * Moves the file and its sparse index, replacing the target.
+     */
+    static void move(Path source, Path target) throws IOException {
+        Files.move(indexFileFor(source), indexFileFor(target), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Path indexFileFor(Path file) {
+        return file.resolveSibling(file.getFileName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Returns the records whose key equals (or starts with) the given escaped key.
+     *
+     * @param key The escaped key or key prefix.
+     * @param prefix Whether to match keys starting with {@code key} rather than equal to it.
+     * @param limit The maximum number of records to return.
+     * @return The matching records, split into fields.
+     * @throws IOException If the file can't be read.
+     */
+    List<String[]> find(String key, boolean prefix, int limit) throws IOException {
+        List<String[]> result = new ArrayList<>();
+        if (blockKeys.length == 0 || limit <= 0) {
+            return result;
+        }
+
+        // The last block starting before the key; an equal key could also end the previous block.
+        int lo = 0;
+        int hi = blockKeys.length - 1;
+        int block = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blockKeys[mid].compareTo(key) < 0) {
+                block = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        try (
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel.position(blockOffsets[block])), StandardCharsets.UTF_8)
+            )
+        ) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String lineKey = keyOf(line);
+                int cmp = lineKey.compareTo(key);
+                if (cmp < 0) {
+                    continue;
+                }
+                boolean matches = prefix ? lineKey.startsWith(key) : cmp == 0;
+                if (!matches) {
+                    break;
+                }
+                result.add(line.split("\t", -1));
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all lines of the file, for merging it with new records. The stream must be closed
+     * to close the file.
+     *
+     * @return The lines in order.
+     * @throws IOException If the file can't be opened.
+     */
+    Stream<String> lines() throws IOException {
+        return Files.lines(file, StandardCharsets.UTF_8);
+    }
+}
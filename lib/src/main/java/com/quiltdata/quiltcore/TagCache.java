@@ -0,0 +1,243 @@
+package com.quiltdata.quiltcore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.quiltdata.quiltcore.key.PhysicalKey;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of resolved tags (such as {@code latest}), keyed by the physical key of the tag file.
+ *
+ * <p>
+ * Unlike manifests, tags are mutable. A cached tag is served without any request until its TTL expires;
+ * after that, it is revalidated with a conditional read (If-None-Match for S3, modification time
+ * for local registries), which doesn't transfer the tag again if it hasn't changed. If a stale-while-revalidate
+ * window is configured, an expired tag is still served within that window while it is revalidated in the
+ * background.
+ * </p>
+ *
+ * <p>
+ * {@link Manifest#push(Namespace, String, String, PushOptions)} invalidates the tags it writes,
+ * so a process always sees its own pushes. The cache is thread-safe and can be shared by
+ * several {@link Registry} instances.
+ * </p>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * TagCache cache = TagCache.builder()
+ *     .setTtl(Duration.ofSeconds(30))
+ *     .setStaleWhileRevalidate(Duration.ofMinutes(5))
+ *     .build();
+ * Registry registry = Registry.builder()
+ *     .setRoot(root)
+ *     .setTagCache(cache)
+ *     .build();
+ * }</pre>
+ */
+public class TagCache {
+    private static final Logger logger = LoggerFactory.getLogger(TagCache.class);
+
+    /**
+     * The default time a resolved tag is served without revalidation.
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(60);
+
+    /**
+     * Represents a builder for creating a {@link TagCache} object.
+     */
+    public static class Builder {
+        private Duration ttl = DEFAULT_TTL;
+        private Duration staleWhileRevalidate = Duration.ZERO;
+        private Executor executor = LazyParallel.IO_EXECUTOR;
+
+        /**
+         * Sets the time a resolved tag is served without revalidation.
+         *
+         * @param ttl The time to live.
+         * @return This builder.
+         */
+        public Builder setTtl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Sets the time after the TTL during which an expired tag is still served while it
+         * is revalidated in the background. Disabled by default.
+         *
+         * @param staleWhileRevalidate The length of the window.
+         * @return This builder.
+         */
+        public Builder setStaleWhileRevalidate(Duration staleWhileRevalidate) {
+            this.staleWhileRevalidate = staleWhileRevalidate;
+            return this;
+        }
+
+        /**
+         * Sets the executor running background revalidations. They block on reads, so this defaults to
+         * the shared I/O pool.
+         *
+         * @param executor The executor.
+         * @return This builder.
+         */
+        public Builder setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Builds a {@link TagCache} object.
+         *
+         * @return The built {@link TagCache} object.
+         */
+        public TagCache build() {
+            if (ttl == null || ttl.isNegative()) {
+                throw new IllegalArgumentException("TTL must not be negative");
+            }
+            if (staleWhileRevalidate == null || staleWhileRevalidate.isNegative()) {
+                throw new IllegalArgumentException("Stale-while-revalidate window must not be negative");
+            }
+            if (executor == null) {
+                throw new IllegalArgumentException("Executor is required");
+            }
+            return new TagCache(this);
+        }
+    }
+
+    private static class CachedTag {
+        final String value;
+        final String validator;
+        final long fetchedNanos;
+        final AtomicBoolean revalidating = new AtomicBoolean();
+
+        CachedTag(String value, String validator, long fetchedNanos) {
+            this.value = value;
+            this.validator = validator;
+            this.fetchedNanos = fetchedNanos;
+        }
+    }
+
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final Executor executor;
+
+    private final Map<String, CachedTag> tags = new ConcurrentHashMap<>();
+    // Bumped by every invalidation of a tag, so that reads of it started earlier don't store what they read.
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    // Bumped by invalidateAll(), which affects the reads of every tag.
+    private final AtomicLong allGeneration = new AtomicLong();
+
+    private TagCache(Builder builder) {
+        ttlNanos = builder.ttl.toNanos();
+        staleNanos = builder.staleWhileRevalidate.toNanos();
+        executor = builder.executor;
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the TagCache class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the contents of the tag at the given physical key, reading or revalidating it if needed.
+     *
+     * @param tagKey The physical key of the tag file.
+     * @return The contents of the tag, i.e. a top hash.
+     * @throws IOException If the tag can't be read.
+     */
+    public String get(PhysicalKey tagKey) throws IOException {
+        String key = tagKey.toString();
+        CachedTag cached = tags.get(key);
+        if (cached != null) {
+            long age = System.nanoTime() - cached.fetchedNanos;
+            if (age < ttlNanos) {
+                Metrics.counter(MetricNames.TAG_CACHE_HITS).increment();
+                return cached.value;
+            }
+            if (age < ttlNanos + staleNanos) {
+                Metrics.counter(MetricNames.TAG_CACHE_STALE_HITS).increment();
+                if (cached.revalidating.compareAndSet(false, true)) {
+                    CompletableFuture.runAsync(() -> revalidateInBackground(key, tagKey, cached), executor);
+                }
+                return cached.value;
+            }
+        }
+        return revalidate(key, tagKey, cached).value;
+    }
+
+    /**
+     * Removes the tag at the given physical key from the cache.
+     *
+     * @param tagKey The physical key of the tag file.
+     */
+    public void invalidate(PhysicalKey tagKey) {
+        String key = tagKey.toString();
+        generations.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+        tags.remove(key);
+    }
+
+    /**
+     * Removes all tags from the cache.
+     */
+    public void invalidateAll() {
+        allGeneration.incrementAndGet();
+        tags.clear();
+    }
+
+    // Tags that were never invalidated have no counter yet; creating it counts as a change.
+    private long generation(String key) {
+        AtomicLong generation = generations.get(key);
+        return generation == null ? 0 : generation.get();
+    }
+
+    private void revalidateInBackground(String key, PhysicalKey tagKey, CachedTag cached) {
+        try {
+            revalidate(key, tagKey, cached);
+        } catch (IOException | RuntimeException e) {
+            // The stale value keeps being served until the window ends; the next foreground read reports errors.
+            logger.warn("Failed to revalidate tag: {}", key, e);
+        } finally {
+            // Usually replaced by then, but not if the tag was invalidated or replaced while it was being read.
+            cached.revalidating.set(false);
+        }
+    }
+
+    private CachedTag revalidate(String key, PhysicalKey tagKey, CachedTag cached) throws IOException {
+        long now = System.nanoTime();
+        long startGeneration = generation(key);
+        long startAllGeneration = allGeneration.get();
+        PhysicalKey.ConditionalResponse response = tagKey.getBytesIfChanged(cached == null ? null : cached.validator);
+        CachedTag updated;
+        if (response == null) {
+            Metrics.counter(MetricNames.TAG_CACHE_NOT_MODIFIED).increment();
+            updated = new CachedTag(cached.value, cached.validator, now);
+        } else {
+            Metrics.counter(MetricNames.TAG_CACHE_MISSES).increment();
+            updated = new CachedTag(new String(response.bytes, StandardCharsets.UTF_8), response.validator, now);
+        }
+        // Don't resurrect a tag that was invalidated (or replaced) while it was being read.
+        if (generation(key) != startGeneration || allGeneration.get() != startAllGeneration) {
+            return updated;
+        } else if (cached == null) {
+            tags.putIfAbsent(key, updated);
+        } else {
+            tags.replace(key, cached, updated);
+        }
+        return updated;
+    }
+}
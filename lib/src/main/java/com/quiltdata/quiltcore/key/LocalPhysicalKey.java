@@ -6,6 +6,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -110,6 +113,31 @@ public class LocalPhysicalKey extends PhysicalKey {
         return Files.newInputStream(p);
     }
 
+    /**
+     * Reads the file unless its modification time, size and file key still match the validator.
+     *
+     * @param validator The validator returned by a previous call, or null to read unconditionally.
+     * @return The contents and their validator, or null if the file has not changed.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public ConditionalResponse getBytesIfChanged(String validator) throws IOException {
+        Path p = Path.of(path);
+        String current = validatorFor(Files.readAttributes(p, BasicFileAttributes.class));
+        if (current.equals(validator)) {
+            return null;
+        }
+        logger.debug("Reading file: {}", path);
+        byte[] bytes = Files.readAllBytes(p);
+        // Re-read the attributes: if the file changed while it was being read, the next call will read it again.
+        String after = validatorFor(Files.readAttributes(p, BasicFileAttributes.class));
+        return new ConditionalResponse(bytes, after.equals(current) ? current : null, this);
+    }
+
+    private static String validatorFor(BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS) + "-" + attrs.size() + "-" + attrs.fileKey();
+    }
+
     /**
      * Writes the specified bytes to the file.
      *
@@ -166,4 +194,48 @@ public class LocalPhysicalKey extends PhysicalKey {
                 (child, attrs) -> attrs.isRegularFile()
         ).map(child -> pathObj.relativize(child).toString());
     }
+
+    /**
+     * Returns a stream of the names of regular files directly in the directory that start with the given prefix.
+     *
+     * @param namePrefix The prefix of the file names.
+     * @return A stream of file names; it must be closed to release the directory handle.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public Stream<String> listWithPrefix(String namePrefix) throws IOException {
+        logger.debug("Listing files with prefix {}: {}", namePrefix, path);
+        Path pathObj = Path.of(path);
+        if (!Files.isDirectory(pathObj)) {
+            return Stream.empty();
+        }
+
+        return Files.list(pathObj)
+            .filter(child -> child.getFileName().toString().startsWith(namePrefix) && Files.isRegularFile(child))
+            .map(child -> child.getFileName().toString());
+    }
+
+    /**
+     * Returns a stream of the names of the subdirectories of the directory, sorted to match S3 listings.
+     *
+     * @return A stream of directory names.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public Stream<String> listChildDirectories() throws IOException {
+        logger.debug("Listing directories: {}", path);
+        Path pathObj = Path.of(path);
+        if (!Files.isDirectory(pathObj)) {
+            return Stream.empty();
+        }
+
+        try (Stream<Path> children = Files.list(pathObj)) {
+            return children
+                .filter(Files::isDirectory)
+                .map(child -> child.getFileName().toString())
+                .sorted()
+                .collect(Collectors.toList())
+                .stream();
+        }
+    }
 }
@@ -3,6 +3,9 @@ package com.quiltdata.quiltcore.key;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -10,6 +13,10 @@ import java.util.stream.Stream;
  */
 public abstract class PhysicalKey {
 
+    private static final Map<String, Function<URI, PhysicalKey>> schemes = new ConcurrentHashMap<>(
+        Map.<String, Function<URI, PhysicalKey>>of("file", LocalPhysicalKey::new, "s3", S3PhysicalKey::new)
+    );
+
     /**
      * Represents the response when opening a physical key.
      */
@@ -36,6 +43,39 @@ public abstract class PhysicalKey {
         }
     }
 
+    /**
+     * Represents the response of a conditional read of a physical key.
+     */
+    public static class ConditionalResponse {
+        /**
+         * The contents of the physical key.
+         */
+        public final byte[] bytes;
+
+        /**
+         * An opaque token identifying this version of the contents, e.g. an ETag; null if not supported.
+         */
+        public final String validator;
+
+        /**
+         * The effective physical key of the contents, e.g. with the version ID of the S3 object that was read.
+         */
+        public final PhysicalKey effectivePhysicalKey;
+
+        /**
+         * Constructs a ConditionalResponse object.
+         *
+         * @param bytes      The contents of the physical key.
+         * @param validator  An opaque token identifying this version of the contents.
+         * @param effectivePhysicalKey The effective physical key of the contents.
+         */
+        public ConditionalResponse(byte[] bytes, String validator, PhysicalKey effectivePhysicalKey) {
+            this.bytes = bytes;
+            this.validator = validator;
+            this.effectivePhysicalKey = effectivePhysicalKey;
+        }
+    }
+
     /**
      * Opens the physical key and returns the OpenResponse object.
      *
@@ -64,6 +104,18 @@ public abstract class PhysicalKey {
         }
     }
 
+    /**
+     * Reads all bytes unless the contents still match the given validator.
+     * The default implementation doesn't support validators and always reads the contents.
+     *
+     * @param validator The validator returned by a previous call, or null to read unconditionally.
+     * @return The contents and their validator, or null if the contents have not changed.
+     * @throws IOException If an I/O error occurs while reading the contents.
+     */
+    public ConditionalResponse getBytesIfChanged(String validator) throws IOException {
+        return new ConditionalResponse(getBytes(), null, this);
+    }
+
     /**
      * Writes the given byte array to the physical key.
      *
@@ -105,6 +157,43 @@ public abstract class PhysicalKey {
      */
     public abstract Stream<String> listRecursively() throws IOException;
 
+    /**
+     * Lists the files directly under the physical key whose names start with the given prefix.
+     *
+     * <p>
+     * The default implementation filters {@link #listRecursively()}, so it visits every file below the key.
+     * The built-in keys override it to only fetch matching names, so the cost is proportional to the number
+     * of matches rather than to the size of the directory.
+     * </p>
+     *
+     * @param namePrefix The prefix of the file names.
+     * @return A lazily populated stream of matching file names; it should be closed after use.
+     * @throws IOException If an I/O error occurs while listing the files.
+     */
+    public Stream<String> listWithPrefix(String namePrefix) throws IOException {
+        return listRecursively().filter(name -> name.startsWith(namePrefix) && name.indexOf('/') < 0);
+    }
+
+    /**
+     * Lists the names of the directories directly under the physical key, in lexicographic order.
+     *
+     * <p>
+     * The default implementation takes the first path segment of each file of {@link #listRecursively()},
+     * so it visits every file below the key and, like S3, doesn't list empty directories. The built-in keys
+     * override it to only list the directory itself.
+     * </p>
+     *
+     * @return A lazily populated stream of directory names; it should be closed after use.
+     * @throws IOException If an I/O error occurs while listing the directories.
+     */
+    public Stream<String> listChildDirectories() throws IOException {
+        return listRecursively()
+            .filter(name -> name.indexOf('/') > 0)
+            .map(name -> name.substring(0, name.indexOf('/')))
+            .distinct()
+            .sorted();
+    }
+
     /**
      * Creates a PhysicalKey object from the given URI.
      *
@@ -114,13 +203,26 @@ public abstract class PhysicalKey {
      */
     public static PhysicalKey fromUri(URI uri) {
         String scheme = uri.getScheme();
-        if (scheme.equals("file")) {
-            return new LocalPhysicalKey(uri);
-        } else if (scheme.equals("s3")) {
-            return new S3PhysicalKey(uri);
-        } else {
+        Function<URI, PhysicalKey> factory = scheme == null ? null : schemes.get(scheme);
+        if (factory == null) {
             throw new IllegalArgumentException("Unsupported URI scheme: " + scheme);
         }
+        return factory.apply(uri);
+    }
+
+    /**
+     * Registers the factory of physical keys for a URI scheme, so that {@link #fromUri(URI)} supports it.
+     * The {@code file} and {@code s3} schemes are registered by default, and can be replaced.
+     *
+     * @param scheme The URI scheme.
+     * @param factory Creates the physical key for a URI of the scheme, or null to unregister the scheme.
+     */
+    public static void registerScheme(String scheme, Function<URI, PhysicalKey> factory) {
+        if (factory == null) {
+            schemes.remove(scheme);
+        } else {
+            schemes.put(scheme, factory);
+        }
     }
 
     /**
@@ -7,25 +7,24 @@ import java.net.URISyntaxException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.NoSuchFileException;
 import java.util.stream.Stream;
-import com.quiltdata.quiltcore.S3ClientStore;
-import software.amazon.awssdk.core.ResponseInputStream;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
-import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
-import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
-import software.amazon.awssdk.services.s3.model.S3Exception;
-import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+import com.quiltdata.quiltcore.metrics.CountingInputStream;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import com.quiltdata.quiltcore.storage.ObjectStore;
+import com.quiltdata.quiltcore.storage.ObjectStores;
+import com.quiltdata.quiltcore.transfer.AdaptiveConcurrencyLimiter;
+import com.quiltdata.quiltcore.transfer.PrefixLimiters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Represents a physical key for an object stored in Amazon S3.
+ *
+ * <p>
+ * Requests go to the {@link ObjectStore} registered for the bucket in {@link ObjectStores}, which is S3
+ * unless the bucket has been routed elsewhere, e.g. to an in-memory store.
+ * </p>
  */
 public class S3PhysicalKey extends PhysicalKey {
     private static final Logger logger = LoggerFactory.getLogger(S3PhysicalKey.class);
@@ -115,38 +114,17 @@ public class S3PhysicalKey extends PhysicalKey {
         return versionId;
     }
 
-    private S3Client getClient() throws IOException {
-        try {
-            return S3ClientStore.getClient(bucket);
-        } catch (NoSuchBucketException e) {
-            throw new IOException("Bucket " + bucket + " does not exist", e);
-        } catch (S3Exception e) {
-            throw new IOException("Could not look up bucket " + bucket, e);
-        }
+    private ObjectStore getStore() {
+        return ObjectStores.forBucket(bucket);
     }
 
-    private boolean looksLikeDir() {
-        return key.length() == 0 || key.charAt(key.length() - 1) == '/';
+    private <T> T call(AdaptiveConcurrencyLimiter.IOCallable<T> request) throws IOException {
+        // Throttled requests are retried, and count towards the concurrency of the prefix.
+        return PrefixLimiters.forKey(bucket, key).execute(request);
     }
 
-    private ResponseInputStream<GetObjectResponse> getObject() throws IOException {
-        S3Client s3 = getClient();
-
-        GetObjectRequest objectRequest = GetObjectRequest.builder()
-            .bucket(bucket)
-            .key(key)
-            .versionId(versionId)
-            .build();
-
-        logger.debug("Reading S3 object: {}", objectRequest);
-        try {
-            return s3.getObject(objectRequest);
-        } catch (NoSuchKeyException e) {
-            // Use NoSuchFileException rather than FileNotFoundException to stay consistent with LocalPhysicalKey.
-            throw new NoSuchFileException(toUri().toString());
-        } catch (S3Exception e) {
-            throw new IOException("Could not read uri: " + toUri(), e);
-        }
+    private boolean looksLikeDir() {
+        return key.length() == 0 || key.charAt(key.length() - 1) == '/';
     }
 
     /**
@@ -157,9 +135,11 @@ public class S3PhysicalKey extends PhysicalKey {
      */
     @Override
     public OpenResponse open() throws IOException {
-        var inputStream = getObject();
-        String effectiveVersionId = inputStream.response().versionId();
-        return new OpenResponse(inputStream, new S3PhysicalKey(bucket, key, effectiveVersionId));
+        ObjectStore.GetResponse response = call(() -> getStore().get(bucket, key, versionId));
+        return new OpenResponse(
+            new CountingInputStream(response.body, Metrics.counter(MetricNames.S3_BYTES_READ)),
+            new S3PhysicalKey(bucket, key, response.versionId)
+        );
     }
 
     /**
@@ -170,7 +150,29 @@ public class S3PhysicalKey extends PhysicalKey {
      */
     @Override
     public InputStream getInputStream() throws IOException {
-        return getObject();
+        ObjectStore.GetResponse response = call(() -> getStore().get(bucket, key, versionId));
+        return new CountingInputStream(response.body, Metrics.counter(MetricNames.S3_BYTES_READ));
+    }
+
+    /**
+     * Reads the S3 object unless its ETag still matches the validator, using If-None-Match.
+     *
+     * @param validator the ETag returned by a previous call, or null to read unconditionally
+     * @return the contents and their ETag, or null if the object has not changed
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public ConditionalResponse getBytesIfChanged(String validator) throws IOException {
+        ObjectStore.GetResponse response = call(() -> getStore().getIfNoneMatch(bucket, key, versionId, validator));
+        if (response == null) {
+            return null;
+        }
+        byte[] bytes;
+        try (InputStream in = response.body) {
+            bytes = in.readAllBytes();
+        }
+        Metrics.counter(MetricNames.S3_BYTES_READ).increment(bytes.length);
+        return new ConditionalResponse(bytes, response.eTag, new S3PhysicalKey(bucket, key, response.versionId));
     }
 
     /**
@@ -181,14 +183,8 @@ public class S3PhysicalKey extends PhysicalKey {
      */
     @Override
     public void putBytes(byte[] bytes) throws IOException {
-        S3Client s3 = getClient();
-
-        PutObjectRequest objectRequest = PutObjectRequest.builder()
-            .bucket(bucket)
-            .key(key)
-            .build();
-
-        s3.putObject(objectRequest, RequestBody.fromBytes(bytes));
+        call(() -> getStore().putBytes(bucket, key, bytes));
+        Metrics.counter(MetricNames.S3_BYTES_WRITTEN).increment(bytes.length);
     }
 
     /**
@@ -228,20 +224,36 @@ public class S3PhysicalKey extends PhysicalKey {
      */
     @Override
     public Stream<String> listRecursively() throws IOException {
-        S3Client s3 = getClient();
+        String prefix = looksLikeDir() ? key : key + "/";
+        return call(() -> getStore().list(bucket, prefix, true)).map(k -> k.substring(prefix.length()));
+    }
 
+    /**
+     * Lists the objects directly under the S3PhysicalKey whose names start with the given prefix,
+     * using the prefix in the list request so that only matching keys are returned.
+     * Pages are fetched lazily as the stream is consumed.
+     *
+     * @param namePrefix the prefix of the object names
+     * @return a stream of object names
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public Stream<String> listWithPrefix(String namePrefix) throws IOException {
         String prefix = looksLikeDir() ? key : key + "/";
+        return call(() -> getStore().list(bucket, prefix + namePrefix, false)).map(k -> k.substring(prefix.length()));
+    }
 
-        ListObjectsV2Request listRequest = ListObjectsV2Request
-            .builder()
-            .bucket(bucket)
-            .prefix(prefix)
-            .build();
-
-        ListObjectsV2Iterable listResp = s3.listObjectsV2Paginator(listRequest);
-        return listResp
-            .stream()
-            .flatMap(r -> r.contents().stream())
-            .map(obj -> obj.key().substring(prefix.length()));
+    /**
+     * Lists the common prefixes directly under the S3PhysicalKey, using a delimiter so that
+     * objects below them are not listed.
+     *
+     * @return a stream of directory names, without the trailing slash
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public Stream<String> listChildDirectories() throws IOException {
+        String prefix = looksLikeDir() ? key : key + "/";
+        return call(() -> getStore().listCommonPrefixes(bucket, prefix))
+            .map(p -> p.substring(prefix.length(), p.length() - 1));
     }
 }
@@ -0,0 +1,20 @@
+package com.quiltdata.quiltcore.metrics;
+
+/**
+ * A monotonically increasing count, e.g. of requests or bytes.
+ */
+public interface Counter {
+    /**
+     * Increments the counter by one.
+     */
+    default void increment() {
+        increment(1);
+    }
+
+    /**
+     * Increments the counter by the given amount.
+     *
+     * @param amount The amount to add.
+     */
+    void increment(long amount);
+}
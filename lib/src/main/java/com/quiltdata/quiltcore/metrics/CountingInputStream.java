@@ -0,0 +1,50 @@
+package com.quiltdata.quiltcore.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that adds the number of bytes read to a {@link Counter}.
+ */
+public class CountingInputStream extends FilterInputStream {
+    private final Counter counter;
+
+    /**
+     * Constructs a new CountingInputStream.
+     *
+     * @param in The stream to read from.
+     * @param counter The counter to increment.
+     */
+    public CountingInputStream(InputStream in, Counter counter) {
+        super(in);
+        this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            counter.increment();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = super.read(b, off, len);
+        if (count > 0) {
+            counter.increment(count);
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            counter.increment(skipped);
+        }
+        return skipped;
+    }
+}
@@ -0,0 +1,13 @@
+package com.quiltdata.quiltcore.metrics;
+
+/**
+ * Records the distribution of values, e.g. object sizes or entry counts.
+ */
+public interface Histogram {
+    /**
+     * Records a value.
+     *
+     * @param value The value to record.
+     */
+    void record(long value);
+}
@@ -0,0 +1,180 @@
+package com.quiltdata.quiltcore.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link MetricsRegistry} that keeps all metrics in memory.
+ * Intended for tests and for ad-hoc inspection, e.g. from benchmarks.
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+    /**
+     * An in-memory counter.
+     */
+    public static class InMemoryCounter implements Counter {
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void increment(long amount) {
+            count.add(amount);
+        }
+
+        /**
+         * Returns the current count.
+         *
+         * @return The count.
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount();
+        }
+    }
+
+    /**
+     * An in-memory distribution of values, used for both histograms and timers.
+     */
+    public static class InMemoryDistribution implements Histogram, Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        @Override
+        public void record(long value) {
+            count.increment();
+            total.add(value);
+            min.accumulate(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Returns the number of recorded values.
+         *
+         * @return The count.
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the sum of recorded values; for timers, in nanoseconds.
+         *
+         * @return The total.
+         */
+        public long getTotal() {
+            return total.sum();
+        }
+
+        /**
+         * Returns the smallest recorded value, or 0 if nothing was recorded.
+         *
+         * @return The minimum.
+         */
+        public long getMin() {
+            return getCount() == 0 ? 0 : min.get();
+        }
+
+        /**
+         * Returns the largest recorded value, or 0 if nothing was recorded.
+         *
+         * @return The maximum.
+         */
+        public long getMax() {
+            return getCount() == 0 ? 0 : max.get();
+        }
+
+        /**
+         * Returns the mean of recorded values, or 0 if nothing was recorded.
+         *
+         * @return The mean.
+         */
+        public double getMean() {
+            long n = getCount();
+            return n == 0 ? 0 : (double) getTotal() / n;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + ", total=" + getTotal() + ", min=" + getMin() + ", max=" + getMax();
+        }
+    }
+
+    private final Map<String, InMemoryCounter> counters = new ConcurrentHashMap<>();
+    private final Map<String, InMemoryDistribution> timers = new ConcurrentHashMap<>();
+    private final Map<String, InMemoryDistribution> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public InMemoryCounter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new InMemoryCounter());
+    }
+
+    @Override
+    public InMemoryDistribution timer(String name) {
+        return timers.computeIfAbsent(name, n -> new InMemoryDistribution());
+    }
+
+    @Override
+    public InMemoryDistribution histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new InMemoryDistribution());
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Returns the current value of a gauge.
+     *
+     * @param name The name of the gauge.
+     * @return The value, or null if no gauge is registered under the name.
+     */
+    public Long getGauge(String name) {
+        LongSupplier gauge = gauges.get(name);
+        return gauge == null ? null : gauge.getAsLong();
+    }
+
+    /**
+     * Returns the current value of a counter without creating it.
+     *
+     * @param name The name of the counter.
+     * @return The count, or 0 if the counter doesn't exist.
+     */
+    public long getCount(String name) {
+        InMemoryCounter counter = counters.get(name);
+        return counter == null ? 0 : counter.getCount();
+    }
+
+    /**
+     * Returns a sorted snapshot of all metrics, keyed by name. Gauges are included as their current values.
+     *
+     * @return The metrics.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        result.putAll(counters);
+        result.putAll(timers);
+        result.putAll(histograms);
+        gauges.forEach((name, gauge) -> result.put(name, gauge.getAsLong()));
+        return result;
+    }
+
+    /**
+     * Removes all metrics.
+     */
+    public void clear() {
+        counters.clear();
+        timers.clear();
+        histograms.clear();
+        gauges.clear();
+    }
+}
@@ -0,0 +1,214 @@
+package com.quiltdata.quiltcore.metrics;
+
+/**
+ * Names of the metrics reported by quiltcore.
+ */
+public class MetricNames {
+    /**
+     * Prefix of per-operation S3 metrics, followed by the operation name, e.g. {@code GetObject}.
+     */
+    public static final String S3_PREFIX = "quiltcore.s3.";
+
+    /**
+     * Suffix of the counter of S3 requests for an operation.
+     */
+    public static final String REQUESTS = ".requests";
+
+    /**
+     * Suffix of the counter of failed S3 requests for an operation.
+     */
+    public static final String ERRORS = ".errors";
+
+    /**
+     * Suffix of the timer of S3 request latency for an operation.
+     */
+    public static final String LATENCY = ".latency";
+
+    /**
+     * Counter of bytes read from S3.
+     */
+    public static final String S3_BYTES_READ = "quiltcore.s3.bytes.read";
+
+    /**
+     * Counter of bytes written to S3.
+     */
+    public static final String S3_BYTES_WRITTEN = "quiltcore.s3.bytes.written";
+
+    /**
+     * Timer of parsing a manifest with {@code Manifest.createFromFile}.
+     */
+    public static final String MANIFEST_PARSE = "quiltcore.manifest.parse";
+
+    /**
+     * Timer of serializing a manifest with {@code Manifest.serializeToOutputStream}.
+     */
+    public static final String MANIFEST_SERIALIZE = "quiltcore.manifest.serialize";
+
+    /**
+     * Histogram of the number of entries in parsed manifests.
+     */
+    public static final String MANIFEST_ENTRIES = "quiltcore.manifest.entries";
+
+    /**
+     * Timer of resolving a hash prefix with {@code Namespace.resolveHash}.
+     */
+    public static final String RESOLVE_HASH = "quiltcore.namespace.resolve_hash";
+
+    /**
+     * Timer of hashing an entry with {@code Entry.withHash}.
+     */
+    public static final String HASH_TIME = "quiltcore.hash.time";
+
+    /**
+     * Counter of bytes hashed by {@code Entry.withHash}; divide by {@link #HASH_TIME} for throughput.
+     */
+    public static final String HASH_BYTES = "quiltcore.hash.bytes";
+
+    /**
+     * Timer of validating a package with {@code WorkflowValidator.validate}.
+     */
+    public static final String VALIDATION_TIME = "quiltcore.workflow.validate";
+
+    /**
+     * Counter of entries that a dedup push reused from the previous revision instead of uploading.
+     */
+    public static final String PUSH_DEDUP_REUSED = "quiltcore.push.dedup.reused";
+
+    /**
+     * Counter of manifests served from the memory of a {@code ManifestCache}.
+     */
+    public static final String MANIFEST_CACHE_HITS = "quiltcore.manifest_cache.hits";
+
+    /**
+     * Counter of manifests a {@code ManifestCache} had to load.
+     */
+    public static final String MANIFEST_CACHE_MISSES = "quiltcore.manifest_cache.misses";
+
+    /**
+     * Counter of manifest misses served from the disk directory of a {@code ManifestCache}.
+     */
+    public static final String MANIFEST_CACHE_DISK_HITS = "quiltcore.manifest_cache.disk_hits";
+
+    /**
+     * Counter of manifests evicted from the memory of a {@code ManifestCache}.
+     */
+    public static final String MANIFEST_CACHE_EVICTIONS = "quiltcore.manifest_cache.evictions";
+
+    /**
+     * Counter of tags served by a {@code TagCache} within their TTL.
+     */
+    public static final String TAG_CACHE_HITS = "quiltcore.tag_cache.hits";
+
+    /**
+     * Counter of expired tags served by a {@code TagCache} while being revalidated in the background.
+     */
+    public static final String TAG_CACHE_STALE_HITS = "quiltcore.tag_cache.stale_hits";
+
+    /**
+     * Counter of tag revalidations that found the tag unchanged.
+     */
+    public static final String TAG_CACHE_NOT_MODIFIED = "quiltcore.tag_cache.not_modified";
+
+    /**
+     * Counter of tags a {@code TagCache} had to read in full.
+     */
+    public static final String TAG_CACHE_MISSES = "quiltcore.tag_cache.misses";
+
+    /**
+     * Counter of workflow configs a {@code Registry} served from its cache within their TTL.
+     */
+    public static final String WORKFLOW_CONFIG_CACHE_HITS = "quiltcore.workflow_config_cache.hits";
+
+    /**
+     * Counter of workflow config revalidations that found the config unchanged.
+     */
+    public static final String WORKFLOW_CONFIG_CACHE_NOT_MODIFIED = "quiltcore.workflow_config_cache.not_modified";
+
+    /**
+     * Counter of workflow configs a {@code Registry} had to read and parse.
+     */
+    public static final String WORKFLOW_CONFIG_CACHE_MISSES = "quiltcore.workflow_config_cache.misses";
+
+    /**
+     * Counter of compiled schema validators served by a {@code SchemaValidatorCache}.
+     */
+    public static final String SCHEMA_CACHE_HITS = "quiltcore.schema_cache.hits";
+
+    /**
+     * Counter of schemas a {@code SchemaValidatorCache} had to compile.
+     */
+    public static final String SCHEMA_CACHE_MISSES = "quiltcore.schema_cache.misses";
+
+    /**
+     * Counter of compiled schema validators evicted from a {@code SchemaValidatorCache}.
+     */
+    public static final String SCHEMA_CACHE_EVICTIONS = "quiltcore.schema_cache.evictions";
+
+    /**
+     * Counter of S3 requests that were throttled, e.g. with 503 SlowDown.
+     */
+    public static final String S3_THROTTLED = "quiltcore.s3.throttled";
+
+    /**
+     * Counter of S3 requests retried after being throttled.
+     */
+    public static final String S3_THROTTLE_RETRIES = "quiltcore.s3.throttle_retries";
+
+    /**
+     * Prefix of the per-prefix concurrency gauges, followed by {@code bucket/prefix/}.
+     */
+    public static final String S3_CONCURRENCY_PREFIX = "quiltcore.s3.concurrency.";
+
+    private MetricNames() {
+    }
+
+    /**
+     * Returns the name of the request counter for an S3 operation.
+     *
+     * @param operation The S3 operation, e.g. {@code GetObject}.
+     * @return The metric name.
+     */
+    public static String s3Requests(String operation) {
+        return S3_PREFIX + operation + REQUESTS;
+    }
+
+    /**
+     * Returns the name of the error counter for an S3 operation.
+     *
+     * @param operation The S3 operation, e.g. {@code GetObject}.
+     * @return The metric name.
+     */
+    public static String s3Errors(String operation) {
+        return S3_PREFIX + operation + ERRORS;
+    }
+
+    /**
+     * Returns the name of the latency timer for an S3 operation.
+     *
+     * @param operation The S3 operation, e.g. {@code GetObject}.
+     * @return The metric name.
+     */
+    public static String s3Latency(String operation) {
+        return S3_PREFIX + operation + LATENCY;
+    }
+
+    /**
+     * Returns the name of the gauge of the current concurrency limit for an S3 prefix.
+     *
+     * @param prefix The bucket and key prefix, e.g. {@code bucket/user/package/}.
+     * @return The metric name.
+     */
+    public static String s3ConcurrencyLimit(String prefix) {
+        return S3_CONCURRENCY_PREFIX + "limit." + prefix;
+    }
+
+    /**
+     * Returns the name of the gauge of the requests in flight for an S3 prefix.
+     *
+     * @param prefix The bucket and key prefix, e.g. {@code bucket/user/package/}.
+     * @return The metric name.
+     */
+    public static String s3InFlight(String prefix) {
+        return S3_CONCURRENCY_PREFIX + "in_flight." + prefix;
+    }
+}
@@ -0,0 +1,100 @@
+package com.quiltdata.quiltcore.metrics;
+
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Holds the process-wide {@link MetricsRegistry} used by quiltcore.
+ *
+ * <p>
+ * Metrics are discarded until a registry is installed:
+ * </p>
+ * <pre>{@code
+ * InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+ * Metrics.setRegistry(registry);
+ * }</pre>
+ */
+public class Metrics {
+    private static volatile MetricsRegistry registry = NoopMetricsRegistry.INSTANCE;
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the current registry.
+     *
+     * @return The registry.
+     */
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Installs a registry. Pass null to go back to discarding metrics.
+     *
+     * @param newRegistry The registry.
+     */
+    public static void setRegistry(MetricsRegistry newRegistry) {
+        registry = newRegistry == null ? NoopMetricsRegistry.INSTANCE : newRegistry;
+    }
+
+    /**
+     * Returns the counter with the given name from the current registry.
+     *
+     * @param name The name of the metric.
+     * @return The counter.
+     */
+    public static Counter counter(String name) {
+        return registry.counter(name);
+    }
+
+    /**
+     * Returns the timer with the given name from the current registry.
+     *
+     * @param name The name of the metric.
+     * @return The timer.
+     */
+    public static Timer timer(String name) {
+        return registry.timer(name);
+    }
+
+    /**
+     * Returns the histogram with the given name from the current registry.
+     *
+     * @param name The name of the metric.
+     * @return The histogram.
+     */
+    public static Histogram histogram(String name) {
+        return registry.histogram(name);
+    }
+
+    /**
+     * Registers a gauge with the current registry. Gauges registered before a registry is installed are not
+     * carried over to it.
+     *
+     * @param name The name of the metric.
+     * @param value The supplier of the current value.
+     */
+    public static void gauge(String name, LongSupplier value) {
+        registry.gauge(name, value);
+    }
+
+    /**
+     * Performs an S3 request, recording its count, latency and failures under the operation name.
+     *
+     * @param <T> The type of the response.
+     * @param operation The S3 operation, e.g. {@code GetObject}.
+     * @param call The request.
+     * @return The response.
+     */
+    public static <T> T recordS3Call(String operation, Supplier<T> call) {
+        MetricsRegistry r = registry;
+        r.counter(MetricNames.s3Requests(operation)).increment();
+        try (Timer.Sample sample = r.timer(MetricNames.s3Latency(operation)).start()) {
+            return call.get();
+        } catch (RuntimeException e) {
+            r.counter(MetricNames.s3Errors(operation)).increment();
+            throw e;
+        }
+    }
+}
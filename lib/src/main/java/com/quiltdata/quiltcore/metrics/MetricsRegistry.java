@@ -0,0 +1,53 @@
+package com.quiltdata.quiltcore.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A source of named metrics.
+ *
+ * <p>
+ * This is the service provider interface for exporting quiltcore metrics to a monitoring system:
+ * implement it on top of e.g. Micrometer or Dropwizard, and install it with {@link Metrics#setRegistry}.
+ * Implementations must be thread-safe, and should return the same instrument for the same name.
+ * Metric names are listed in {@link MetricNames}.
+ * </p>
+ */
+public interface MetricsRegistry {
+    /**
+     * Returns the counter with the given name.
+     *
+     * @param name The name of the metric.
+     * @return The counter.
+     */
+    Counter counter(String name);
+
+    /**
+     * Returns the timer with the given name.
+     *
+     * @param name The name of the metric.
+     * @return The timer.
+     */
+    Timer timer(String name);
+
+    /**
+     * Returns the histogram with the given name.
+     *
+     * @param name The name of the metric.
+     * @return The histogram.
+     */
+    Histogram histogram(String name);
+
+    /**
+     * Registers a gauge, whose value is read from the supplier whenever it is exported.
+     * Registering a gauge again under the same name replaces it.
+     *
+     * <p>
+     * The default implementation ignores gauges, so that existing registries keep working.
+     * </p>
+     *
+     * @param name The name of the metric.
+     * @param value The supplier of the current value; it must be cheap and thread-safe.
+     */
+    default void gauge(String name, LongSupplier value) {
+    }
+}
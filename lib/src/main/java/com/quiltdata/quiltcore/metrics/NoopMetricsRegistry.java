@@ -0,0 +1,43 @@
+package com.quiltdata.quiltcore.metrics;
+
+/**
+ * A {@link MetricsRegistry} that discards everything. This is the default registry.
+ */
+public class NoopMetricsRegistry implements MetricsRegistry {
+    /**
+     * The shared instance.
+     */
+    public static final NoopMetricsRegistry INSTANCE = new NoopMetricsRegistry();
+
+    private static final Counter COUNTER = amount -> { };
+    private static final Timer.Sample SAMPLE = () -> { };
+    private static final Timer NOOP_TIMER = new Timer() {
+        @Override
+        public void record(long nanos) {
+        }
+
+        @Override
+        public Sample start() {
+            return SAMPLE;
+        }
+    };
+    private static final Histogram HISTOGRAM = value -> { };
+
+    private NoopMetricsRegistry() {
+    }
+
+    @Override
+    public Counter counter(String name) {
+        return COUNTER;
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return NOOP_TIMER;
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return HISTOGRAM;
+    }
+}
@@ -0,0 +1,41 @@
+package com.quiltdata.quiltcore.metrics;
+
+/**
+ * Records the latency of an operation.
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * try (Timer.Sample sample = Metrics.timer(MetricNames.MANIFEST_PARSE).start()) {
+ *     ...
+ * }
+ * }</pre>
+ */
+public interface Timer {
+    /**
+     * A running measurement that is recorded when closed.
+     */
+    interface Sample extends AutoCloseable {
+        /**
+         * Stops the measurement and records the elapsed time.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds.
+     */
+    void record(long nanos);
+
+    /**
+     * Starts a measurement.
+     *
+     * @return The sample to close when the operation completes.
+     */
+    default Sample start() {
+        long start = System.nanoTime();
+        return () -> record(System.nanoTime() - start);
+    }
+}
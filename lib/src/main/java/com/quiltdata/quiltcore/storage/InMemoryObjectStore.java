@@ -0,0 +1,436 @@
+package com.quiltdata.quiltcore.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.utils.BinaryUtils;
+
+/**
+ * An {@link ObjectStore} that keeps versioned objects in memory, standing in for S3 in tests,
+ * benchmarks and load tests.
+ *
+ * <p>
+ * Every request waits for the configured latency before it is served, and object contents are
+ * streamed no faster than the configured bandwidth (per request, like a single S3 connection).
+ * Requests fail at random with the configured rates: throttled requests fail with
+ * 503 SlowDown and other failed requests with 500 InternalError, as S3 does under load. Requests are
+ * counted under the same metric names as S3 requests.
+ * </p>
+ */
+public class InMemoryObjectStore implements ObjectStore {
+    private static final class Version {
+        final String versionId;
+        final byte[] data;
+        final String eTag;
+
+        Version(String versionId, byte[] data, String eTag) {
+            this.versionId = versionId;
+            this.data = data;
+            this.eTag = eTag;
+        }
+    }
+
+    /**
+     * Represents a builder for creating an {@link InMemoryObjectStore} object.
+     */
+    public static class Builder {
+        private Duration latency = Duration.ZERO;
+        private long bandwidth = 0;
+        private double throttleRate = 0;
+        private double errorRate = 0;
+        private long seed = 0;
+        private boolean versioned = true;
+
+        /**
+         * Sets the time every request waits before it is served.
+         *
+         * @param latency The latency.
+         * @return This builder.
+         */
+        public Builder setLatency(Duration latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Sets the rate at which each request reads or writes object contents.
+         *
+         * @param bandwidth The bandwidth in bytes per second, or 0 for unlimited.
+         * @return This builder.
+         */
+        public Builder setBandwidth(long bandwidth) {
+            this.bandwidth = bandwidth;
+            return this;
+        }
+
+        /**
+         * Sets the fraction of requests that fail with 503 SlowDown.
+         *
+         * @param throttleRate The fraction, between 0 and 1.
+         * @return This builder.
+         */
+        public Builder setThrottleRate(double throttleRate) {
+            this.throttleRate = throttleRate;
+            return this;
+        }
+
+        /**
+         * Sets the fraction of requests that fail with 500 InternalError.
+         *
+         * @param errorRate The fraction, between 0 and 1.
+         * @return This builder.
+         */
+        public Builder setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Sets the seed of the random failures, so that runs can be repeated.
+         *
+         * @param seed The seed.
+         * @return This builder.
+         */
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets whether buckets keep every version of an object, like versioned S3 buckets.
+         *
+         * @param versioned Whether buckets are versioned.
+         * @return This builder.
+         */
+        public Builder setVersioned(boolean versioned) {
+            this.versioned = versioned;
+            return this;
+        }
+
+        /**
+         * Builds an {@link InMemoryObjectStore} object.
+         *
+         * @return The built {@link InMemoryObjectStore} object.
+         */
+        public InMemoryObjectStore build() {
+            if (latency.isNegative()) {
+                throw new IllegalArgumentException("Latency must not be negative");
+            }
+            if (bandwidth < 0) {
+                throw new IllegalArgumentException("Bandwidth must not be negative");
+            }
+            if (throttleRate < 0 || errorRate < 0 || throttleRate + errorRate > 1) {
+                throw new IllegalArgumentException("Failure rates must be between 0 and 1");
+            }
+            return new InMemoryObjectStore(this);
+        }
+    }
+
+    private final long latencyNanos;
+    private final long bandwidth;
+    private final double throttleRate;
+    private final double errorRate;
+    private final boolean versioned;
+    private final Random random;
+
+    private final Map<String, NavigableMap<String, List<Version>>> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong versionCounter = new AtomicLong();
+    private final LongAdder requests = new LongAdder();
+
+    private InMemoryObjectStore(Builder builder) {
+        latencyNanos = builder.latency.toNanos();
+        bandwidth = builder.bandwidth;
+        throttleRate = builder.throttleRate;
+        errorRate = builder.errorRate;
+        versioned = builder.versioned;
+        random = new Random(builder.seed);
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the InMemoryObjectStore class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates an empty bucket, unless it already exists.
+     *
+     * @param bucket The name of the bucket.
+     */
+    public void createBucket(String bucket) {
+        buckets.putIfAbsent(bucket, new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Returns the number of requests served or failed so far.
+     *
+     * @return The number of requests.
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    private NavigableMap<String, List<Version>> getBucket(String bucket) throws IOException {
+        NavigableMap<String, List<Version>> objects = buckets.get(bucket);
+        if (objects == null) {
+            throw new IOException("Bucket " + bucket + " does not exist");
+        }
+        return objects;
+    }
+
+    private static String uri(String bucket, String key) {
+        return "s3://" + bucket + "/" + key;
+    }
+
+    private void beginRequest(String operation, String bucket, String key) throws IOException {
+        requests.increment();
+        Metrics.counter(MetricNames.s3Requests(operation)).increment();
+        sleepNanos(latencyNanos);
+
+        double r;
+        synchronized (random) {
+            r = random.nextDouble();
+        }
+        if (r < throttleRate) {
+            throw failure(operation, bucket, key, 503, "SlowDown", "Please reduce your request rate.");
+        }
+        if (r < throttleRate + errorRate) {
+            throw failure(operation, bucket, key, 500, "InternalError", "We encountered an internal error.");
+        }
+    }
+
+    private static IOException failure(String operation, String bucket, String key, int status, String code, String message) {
+        Metrics.counter(MetricNames.s3Errors(operation)).increment();
+        S3Exception cause = (S3Exception) S3Exception.builder()
+            .statusCode(status)
+            .message(message)
+            .awsErrorDetails(AwsErrorDetails.builder().errorCode(code).errorMessage(message).build())
+            .build();
+        return new IOException("Could not access uri: " + uri(bucket, key), cause);
+    }
+
+    private static void sleepNanos(long nanos) throws IOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while simulating latency");
+        }
+    }
+
+    private Version findVersion(String bucket, String key, String versionId) throws IOException {
+        List<Version> versions = getBucket(bucket).get(key);
+        if (versions != null) {
+            if (versionId == null) {
+                return versions.get(versions.size() - 1);
+            }
+            for (Version version : versions) {
+                if (versionId.equals(version.versionId)) {
+                    return version;
+                }
+            }
+        }
+        throw new NoSuchFileException(uri(bucket, key));
+    }
+
+    private Version store(String bucket, String key, byte[] data) throws IOException {
+        NavigableMap<String, List<Version>> objects = getBucket(bucket);
+        String versionId = versioned ? Long.toString(versionCounter.incrementAndGet(), 36) : null;
+        Version version = new Version(versionId, data, eTagOf(data));
+        objects.compute(key, (k, versions) -> {
+            if (versions == null || !versioned) {
+                return Collections.singletonList(version);
+            }
+            List<Version> updated = new ArrayList<>(versions.size() + 1);
+            updated.addAll(versions);
+            updated.add(version);
+            return Collections.unmodifiableList(updated);
+        });
+        return version;
+    }
+
+    private static String eTagOf(byte[] data) {
+        try {
+            // Like S3 for single-part uploads.
+            return "\"" + BinaryUtils.toHex(MessageDigest.getInstance("MD5").digest(data)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private InputStream stream(byte[] data, int from, int to) {
+        InputStream in = new ByteArrayInputStream(data, from, to - from);
+        return bandwidth > 0 ? new ThrottledInputStream(in, bandwidth) : in;
+    }
+
+    @Override
+    public GetResponse get(String bucket, String key, String versionId) throws IOException {
+        beginRequest("GetObject", bucket, key);
+        Version version = findVersion(bucket, key, versionId);
+        return new GetResponse(stream(version.data, 0, version.data.length), version.versionId, version.eTag);
+    }
+
+    @Override
+    public GetResponse getIfNoneMatch(String bucket, String key, String versionId, String eTag) throws IOException {
+        beginRequest("GetObject", bucket, key);
+        Version version = findVersion(bucket, key, versionId);
+        if (eTag != null && eTag.equals(version.eTag)) {
+            return null;
+        }
+        return new GetResponse(stream(version.data, 0, version.data.length), version.versionId, version.eTag);
+    }
+
+    @Override
+    public InputStream getRange(String bucket, String key, String versionId, String ifMatch, long start, long end)
+        throws IOException {
+        beginRequest("GetObject", bucket, key);
+        Version version = findVersion(bucket, key, versionId);
+        if (ifMatch != null && !ifMatch.equals(version.eTag)) {
+            throw new IOException("Precondition failed for uri: " + uri(bucket, key));
+        }
+        if (start < 0 || start > end || end > version.data.length) {
+            throw new IOException("Invalid range " + start + "-" + end + " for uri: " + uri(bucket, key));
+        }
+        return stream(version.data, (int) start, (int) end);
+    }
+
+    @Override
+    public ObjectInfo head(String bucket, String key, String versionId) throws IOException {
+        beginRequest("HeadObject", bucket, key);
+        Version version = findVersion(bucket, key, versionId);
+        return new ObjectInfo(version.data.length, version.versionId, version.eTag);
+    }
+
+    @Override
+    public String put(String bucket, String key, InputStream body, long size) throws IOException {
+        beginRequest("PutObject", bucket, key);
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Object too large for an in-memory store: " + size + " bytes");
+        }
+        InputStream in = bandwidth > 0 ? new ThrottledInputStream(body, bandwidth) : body;
+        byte[] data = in.readNBytes((int) size);
+        if (data.length != size) {
+            throw new IOException("Expected " + size + " bytes for uri " + uri(bucket, key) + ", got " + data.length);
+        }
+        return store(bucket, key, data).versionId;
+    }
+
+    @Override
+    public String putBytes(String bucket, String key, byte[] bytes) throws IOException {
+        return put(bucket, key, new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    @Override
+    public String copy(String srcBucket, String srcKey, String srcVersionId, String destBucket, String destKey)
+        throws IOException {
+        // Copies are server-side in S3, so they don't use the bandwidth of the caller.
+        beginRequest("CopyObject", destBucket, destKey);
+        Version source = findVersion(srcBucket, srcKey, srcVersionId);
+        return store(destBucket, destKey, source.data).versionId;
+    }
+
+    @Override
+    public Stream<String> list(String bucket, String prefix, boolean recursive) throws IOException {
+        beginRequest("ListObjectsV2", bucket, prefix);
+        return getBucket(bucket)
+            .tailMap(prefix, true)
+            .keySet()
+            .stream()
+            .takeWhile(key -> key.startsWith(prefix))
+            .filter(key -> recursive || key.indexOf('/', prefix.length()) < 0);
+    }
+
+    @Override
+    public Stream<String> listCommonPrefixes(String bucket, String prefix) throws IOException {
+        beginRequest("ListObjectsV2", bucket, prefix);
+        NavigableMap<String, List<Version>> objects = getBucket(bucket);
+
+        // Skip over each common prefix rather than visiting every key below it.
+        List<String> result = new ArrayList<>();
+        String key = objects.ceilingKey(prefix);
+        while (key != null && key.startsWith(prefix)) {
+            int slash = key.indexOf('/', prefix.length());
+            if (slash < 0) {
+                key = objects.higherKey(key);
+                continue;
+            }
+            String commonPrefix = key.substring(0, slash + 1);
+            result.add(commonPrefix);
+            key = objects.ceilingKey(commonPrefix.substring(0, slash) + (char) ('/' + 1));
+        }
+        return result.stream();
+    }
+
+    /**
+     * Limits the rate at which a stream is read, sleeping when it is ahead of the bandwidth.
+     */
+    private static class ThrottledInputStream extends FilterInputStream {
+        private final long bandwidth;
+        private final long startNanos = System.nanoTime();
+        private long bytesRead;
+
+        ThrottledInputStream(InputStream in, long bandwidth) {
+            super(in);
+            this.bandwidth = bandwidth;
+        }
+
+        private void throttle(long count) throws IOException {
+            if (count <= 0) {
+                return;
+            }
+            bytesRead += count;
+            long dueNanos = startNanos + bytesRead * TimeUnit.SECONDS.toNanos(1) / bandwidth;
+            sleepNanos(dueNanos - System.nanoTime());
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            throttle(b < 0 ? 0 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            throttle(count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long count = super.skip(n);
+            throttle(count);
+            return count;
+        }
+    }
+}
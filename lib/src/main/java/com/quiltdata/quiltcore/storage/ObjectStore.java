@@ -0,0 +1,213 @@
+package com.quiltdata.quiltcore.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * A store of versioned objects in buckets, with the semantics of S3.
+ *
+ * <p>
+ * This is the service provider interface behind {@code s3://} physical keys: {@link S3ObjectStore}
+ * talks to S3, and {@link InMemoryObjectStore} keeps objects in memory, e.g. for tests and benchmarks.
+ * The store used for a bucket is looked up with {@link ObjectStores#forBucket(String)}.
+ * Implementations must be thread-safe. Missing objects are reported with
+ * {@link java.nio.file.NoSuchFileException}; other errors are wrapped in {@link IOException}, with the
+ * service error (e.g. an {@code S3Exception} for 503 SlowDown) as the cause.
+ * </p>
+ */
+public interface ObjectStore {
+    /**
+     * Represents the metadata of an object.
+     */
+    class ObjectInfo {
+        /**
+         * The size of the object in bytes.
+         */
+        public final long size;
+
+        /**
+         * The version ID of the object, or null if the bucket is not versioned.
+         */
+        public final String versionId;
+
+        /**
+         * The ETag of the object.
+         */
+        public final String eTag;
+
+        /**
+         * Constructs an ObjectInfo object.
+         *
+         * @param size       The size of the object in bytes.
+         * @param versionId  The version ID of the object.
+         * @param eTag       The ETag of the object.
+         */
+        public ObjectInfo(long size, String versionId, String eTag) {
+            this.size = size;
+            this.versionId = versionId;
+            this.eTag = eTag;
+        }
+    }
+
+    /**
+     * Represents the response of reading an object.
+     */
+    class GetResponse {
+        /**
+         * The contents of the object; must be closed by the caller.
+         */
+        public final InputStream body;
+
+        /**
+         * The version ID of the object that was read, or null if the bucket is not versioned.
+         */
+        public final String versionId;
+
+        /**
+         * The ETag of the object that was read.
+         */
+        public final String eTag;
+
+        /**
+         * Constructs a GetResponse object.
+         *
+         * @param body       The contents of the object.
+         * @param versionId  The version ID of the object that was read.
+         * @param eTag       The ETag of the object that was read.
+         */
+        public GetResponse(InputStream body, String versionId, String eTag) {
+            this.body = body;
+            this.versionId = versionId;
+            this.eTag = eTag;
+        }
+    }
+
+    /**
+     * Reads an object.
+     *
+     * @param bucket The bucket.
+     * @param key The key of the object.
+     * @param versionId The version to read, or null for the latest version.
+     * @return The contents and version of the object.
+     * @throws IOException If the object doesn't exist or can't be read.
+     */
+    GetResponse get(String bucket, String key, String versionId) throws IOException;
+
+    /**
+     * Reads an object unless its ETag matches the given one.
+     *
+     * @param bucket The bucket.
+     * @param key The key of the object.
+     * @param versionId The version to read, or null for the latest version.
+     * @param eTag The ETag of a previous read, or null to read unconditionally.
+     * @return The contents and version of the object, or null if the ETag matches.
+     * @throws IOException If the object doesn't exist or can't be read.
+     */
+    GetResponse getIfNoneMatch(String bucket, String key, String versionId, String eTag) throws IOException;
+
+    /**
+     * Reads a byte range of an object.
+     *
+     * @param bucket The bucket.
+     * @param key The key of the object.
+     * @param versionId The version to read, or null for the latest version.
+     * @param ifMatch The ETag the object must have, or null for any.
+     * @param start The offset of the first byte.
+     * @param end The offset after the last byte.
+     * @return The bytes of the range; must be closed by the caller.
+     * @throws IOException If the object doesn't exist, doesn't match, or can't be read.
+     */
+    InputStream getRange(String bucket, String key, String versionId, String ifMatch, long start, long end)
+        throws IOException;
+
+    /**
+     * Reads the metadata of an object.
+     *
+     * @param bucket The bucket.
+     * @param key The key of the object.
+     * @param versionId The version, or null for the latest version.
+     * @return The metadata of the object.
+     * @throws IOException If the object doesn't exist or can't be read.
+     */
+    ObjectInfo head(String bucket, String key, String versionId) throws IOException;
+
+    /**
+     * Writes an object, creating a new version of it.
+     *
+     * @param bucket The bucket.
+     * @param key The key of the object.
+     * @param body The contents of the object.
+     * @param size The number of bytes in {@code body}.
+     * @return The version ID of the new object, or null if the bucket is not versioned.
+     * @throws IOException If the object can't be written.
+     */
+    String put(String bucket, String key, InputStream body, long size) throws IOException;
+
+    /**
+     * Writes an object from a byte array.
+     *
+     * @param bucket The bucket.
+     * @param key The key of the object.
+     * @param bytes The contents of the object.
+     * @return The version ID of the new object, or null if the bucket is not versioned.
+     * @throws IOException If the object can't be written.
+     */
+    default String putBytes(String bucket, String key, byte[] bytes) throws IOException {
+        return put(bucket, key, new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    /**
+     * Writes an object from a local file.
+     *
+     * @param bucket The bucket.
+     * @param key The key of the object.
+     * @param source The file to upload.
+     * @return The version ID of the new object, or null if the bucket is not versioned.
+     * @throws IOException If the file can't be read or the object can't be written.
+     */
+    default String putFile(String bucket, String key, Path source) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            return put(bucket, key, in, Files.size(source));
+        }
+    }
+
+    /**
+     * Copies an object within the store.
+     *
+     * @param srcBucket The bucket of the source object.
+     * @param srcKey The key of the source object.
+     * @param srcVersionId The version of the source object, or null for the latest version.
+     * @param destBucket The bucket of the new object.
+     * @param destKey The key of the new object.
+     * @return The version ID of the new object, or null if the bucket is not versioned.
+     * @throws IOException If the source doesn't exist or the object can't be copied.
+     */
+    String copy(String srcBucket, String srcKey, String srcVersionId, String destBucket, String destKey)
+        throws IOException;
+
+    /**
+     * Lists the keys of the latest versions of objects starting with the prefix, in lexicographic order.
+     *
+     * @param bucket The bucket.
+     * @param prefix The prefix of the keys.
+     * @param recursive Whether to include keys with a slash after the prefix.
+     * @return A lazily populated stream of full keys; it should be closed after use.
+     * @throws IOException If the bucket can't be listed.
+     */
+    Stream<String> list(String bucket, String prefix, boolean recursive) throws IOException;
+
+    /**
+     * Lists the distinct "directories" directly under the prefix: the prefixes of keys up to
+     * and including the first slash after the prefix, in lexicographic order.
+     *
+     * @param bucket The bucket.
+     * @param prefix The prefix of the keys.
+     * @return A lazily populated stream of prefixes ending with a slash; it should be closed after use.
+     * @throws IOException If the bucket can't be listed.
+     */
+    Stream<String> listCommonPrefixes(String bucket, String prefix) throws IOException;
+}
@@ -0,0 +1,61 @@
+package com.quiltdata.quiltcore.storage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps buckets to the {@link ObjectStore}s that hold them. Buckets are in S3 unless registered otherwise.
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * InMemoryObjectStore store = InMemoryObjectStore.builder()
+ *     .setLatency(Duration.ofMillis(20))
+ *     .build();
+ * store.createBucket("test-bucket");
+ * ObjectStores.register("test-bucket", store);
+ *
+ * // s3://test-bucket/... now reads and writes the in-memory store.
+ * Registry registry = new Registry(PhysicalKey.fromUri(new URI("s3://test-bucket/")));
+ * }</pre>
+ */
+public final class ObjectStores {
+    private static final ObjectStore S3 = new S3ObjectStore();
+    private static final Map<String, ObjectStore> stores = new ConcurrentHashMap<>();
+
+    private ObjectStores() {
+    }
+
+    /**
+     * Returns the store holding a bucket.
+     *
+     * @param bucket The name of the bucket.
+     * @return The registered store, or the S3 store.
+     */
+    public static ObjectStore forBucket(String bucket) {
+        return stores.getOrDefault(bucket, S3);
+    }
+
+    /**
+     * Returns whether a bucket is in S3 rather than in a registered store.
+     *
+     * @param bucket The name of the bucket.
+     * @return Whether the bucket is handled by {@link S3ObjectStore}.
+     */
+    public static boolean isS3(String bucket) {
+        return forBucket(bucket) instanceof S3ObjectStore;
+    }
+
+    /**
+     * Routes a bucket to a store.
+     *
+     * @param bucket The name of the bucket.
+     * @param store The store, or null to route the bucket back to S3.
+     */
+    public static void register(String bucket, ObjectStore store) {
+        if (store == null) {
+            stores.remove(bucket);
+        } else {
+            stores.put(bucket, store);
+        }
+    }
+}
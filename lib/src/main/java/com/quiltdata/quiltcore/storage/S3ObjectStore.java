@@ -0,0 +1,231 @@
+package com.quiltdata.quiltcore.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import com.quiltdata.quiltcore.S3ClientStore;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CopyObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ObjectStore} backed by S3, using the clients of {@link S3ClientStore}.
+ *
+ * <p>
+ * Bulk transfers in {@code Manifest.push} and {@code Manifest.install} bypass this class for S3 buckets
+ * and use the CRT-based transfer manager, which splits large objects into parts.
+ * </p>
+ */
+public class S3ObjectStore implements ObjectStore {
+    private static final Logger logger = LoggerFactory.getLogger(S3ObjectStore.class);
+
+    private static final int NOT_MODIFIED = 304;
+
+    private static S3Client getClient(String bucket) throws IOException {
+        try {
+            return S3ClientStore.getClient(bucket);
+        } catch (NoSuchBucketException e) {
+            throw new IOException("Bucket " + bucket + " does not exist", e);
+        } catch (S3Exception e) {
+            throw new IOException("Could not look up bucket " + bucket, e);
+        }
+    }
+
+    private static String uri(String bucket, String key) {
+        return "s3://" + bucket + "/" + key;
+    }
+
+    @Override
+    public GetResponse get(String bucket, String key, String versionId) throws IOException {
+        S3Client s3 = getClient(bucket);
+
+        GetObjectRequest objectRequest = GetObjectRequest.builder()
+            .bucket(bucket)
+            .key(key)
+            .versionId(versionId)
+            .build();
+
+        logger.debug("Reading S3 object: {}", objectRequest);
+        ResponseInputStream<GetObjectResponse> response;
+        try {
+            response = Metrics.recordS3Call("GetObject", () -> s3.getObject(objectRequest));
+        } catch (NoSuchKeyException e) {
+            // Use NoSuchFileException rather than FileNotFoundException to stay consistent with LocalPhysicalKey.
+            throw new NoSuchFileException(uri(bucket, key));
+        } catch (S3Exception e) {
+            throw new IOException("Could not read uri: " + uri(bucket, key), e);
+        }
+        return new GetResponse(response, response.response().versionId(), response.response().eTag());
+    }
+
+    @Override
+    public GetResponse getIfNoneMatch(String bucket, String key, String versionId, String eTag) throws IOException {
+        S3Client s3 = getClient(bucket);
+
+        GetObjectRequest objectRequest = GetObjectRequest.builder()
+            .bucket(bucket)
+            .key(key)
+            .versionId(versionId)
+            .ifNoneMatch(eTag)
+            .build();
+
+        logger.debug("Conditionally reading S3 object: {}", objectRequest);
+        ResponseBytes<GetObjectResponse> response;
+        try {
+            response = Metrics.recordS3Call("GetObject", () -> s3.getObjectAsBytes(objectRequest));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(uri(bucket, key));
+        } catch (S3Exception e) {
+            if (eTag != null && e.statusCode() == NOT_MODIFIED) {
+                return null;
+            }
+            throw new IOException("Could not read uri: " + uri(bucket, key), e);
+        }
+        return new GetResponse(
+            new ByteArrayInputStream(response.asByteArray()),
+            response.response().versionId(),
+            response.response().eTag()
+        );
+    }
+
+    @Override
+    public InputStream getRange(String bucket, String key, String versionId, String ifMatch, long start, long end)
+        throws IOException {
+        S3Client s3 = getClient(bucket);
+
+        GetObjectRequest objectRequest = GetObjectRequest.builder()
+            .bucket(bucket)
+            .key(key)
+            .versionId(versionId)
+            .ifMatch(ifMatch)
+            .range("bytes=" + start + "-" + (end - 1))
+            .build();
+
+        try {
+            return Metrics.recordS3Call("GetObject", () -> s3.getObject(objectRequest));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(uri(bucket, key));
+        } catch (S3Exception e) {
+            throw new IOException("Could not read uri: " + uri(bucket, key), e);
+        }
+    }
+
+    @Override
+    public ObjectInfo head(String bucket, String key, String versionId) throws IOException {
+        S3Client s3 = getClient(bucket);
+
+        HeadObjectResponse response;
+        try {
+            response = Metrics.recordS3Call(
+                "HeadObject",
+                () -> s3.headObject(b -> b.bucket(bucket).key(key).versionId(versionId))
+            );
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(uri(bucket, key));
+        } catch (S3Exception e) {
+            throw new IOException("Could not read uri: " + uri(bucket, key), e);
+        }
+        return new ObjectInfo(response.contentLength(), response.versionId(), response.eTag());
+    }
+
+    @Override
+    public String put(String bucket, String key, InputStream body, long size) throws IOException {
+        return put(bucket, key, RequestBody.fromInputStream(body, size));
+    }
+
+    @Override
+    public String putBytes(String bucket, String key, byte[] bytes) throws IOException {
+        return put(bucket, key, RequestBody.fromBytes(bytes));
+    }
+
+    @Override
+    public String putFile(String bucket, String key, Path source) throws IOException {
+        return put(bucket, key, RequestBody.fromFile(source));
+    }
+
+    private String put(String bucket, String key, RequestBody body) throws IOException {
+        S3Client s3 = getClient(bucket);
+
+        PutObjectRequest objectRequest = PutObjectRequest.builder()
+            .bucket(bucket)
+            .key(key)
+            .build();
+
+        try {
+            return Metrics.recordS3Call("PutObject", () -> s3.putObject(objectRequest, body)).versionId();
+        } catch (S3Exception e) {
+            throw new IOException("Could not write uri: " + uri(bucket, key), e);
+        }
+    }
+
+    @Override
+    public String copy(String srcBucket, String srcKey, String srcVersionId, String destBucket, String destKey)
+        throws IOException {
+        S3Client s3 = getClient(destBucket);
+
+        CopyObjectResponse response;
+        try {
+            response = Metrics.recordS3Call("CopyObject", () -> s3.copyObject(b -> b
+                .sourceBucket(srcBucket)
+                .sourceKey(srcKey)
+                .sourceVersionId(srcVersionId)
+                .destinationBucket(destBucket)
+                .destinationKey(destKey)));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(uri(srcBucket, srcKey));
+        } catch (S3Exception e) {
+            throw new IOException("Could not copy " + uri(srcBucket, srcKey) + " to " + uri(destBucket, destKey), e);
+        }
+        return response.versionId();
+    }
+
+    private static ListObjectsV2Iterable listPages(S3Client s3, String bucket, String prefix, boolean recursive) {
+        ListObjectsV2Request.Builder listRequest = ListObjectsV2Request
+            .builder()
+            .bucket(bucket)
+            .prefix(prefix);
+        if (!recursive) {
+            listRequest.delimiter("/");
+        }
+        return s3.listObjectsV2Paginator(listRequest.build());
+    }
+
+    @Override
+    public Stream<String> list(String bucket, String prefix, boolean recursive) throws IOException {
+        S3Client s3 = getClient(bucket);
+        return listPages(s3, bucket, prefix, recursive)
+            .stream()
+            .peek(r -> Metrics.counter(MetricNames.s3Requests("ListObjectsV2")).increment())
+            .flatMap(r -> r.contents().stream())
+            .map(obj -> obj.key());
+    }
+
+    @Override
+    public Stream<String> listCommonPrefixes(String bucket, String prefix) throws IOException {
+        S3Client s3 = getClient(bucket);
+        return listPages(s3, bucket, prefix, false)
+            .stream()
+            .peek(r -> Metrics.counter(MetricNames.s3Requests("ListObjectsV2")).increment())
+            .flatMap(r -> r.commonPrefixes().stream())
+            .map(p -> p.prefix());
+    }
+}
@@ -0,0 +1,545 @@
+package com.quiltdata.quiltcore.transfer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of concurrent requests to S3, adapting the limit to throttling.
+ *
+ * <p>
+ * The limit grows by one for every successful request until the first throttling response
+ * (slow start), and by about one per limit's worth of successful requests after that. When S3
+ * responds with 503 SlowDown or another throttling error, the limit is multiplied by the backoff
+ * ratio, at most once per decrease interval so that a single burst of errors only counts once,
+ * and the throttled request is retried after an exponential delay with full jitter.
+ * A request keeps its slot while it backs off, so retries don't compete with new requests.
+ * </p>
+ *
+ * <p>
+ * Limiters shared by all quiltcore transfers are kept per S3 prefix by {@link PrefixLimiters}.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    /**
+     * A request that may throw an {@link IOException}.
+     *
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    public interface IOCallable<T> {
+        /**
+         * Performs the request.
+         *
+         * @return The result.
+         * @throws IOException If the request fails.
+         */
+        T call() throws IOException;
+    }
+
+    /**
+     * Starts an asynchronous request.
+     *
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    public interface AsyncCall<T> {
+        /**
+         * Starts the request.
+         *
+         * @return A future completed with the result of the request.
+         * @throws IOException If the request can't be started.
+         */
+        CompletableFuture<T> start() throws IOException;
+    }
+
+    /**
+     * Receives the outcome of the attempts of an asynchronous request, so that callers can tell
+     * a throttled attempt that is retried from the final failure of the request.
+     */
+    public interface AttemptListener {
+        /**
+         * A listener that ignores all events.
+         */
+        AttemptListener NO_OP = new AttemptListener() {};
+
+        /**
+         * Called when a throttled attempt failed and the request will be started again.
+         *
+         * @param cause The error of the attempt.
+         */
+        default void retrying(Throwable cause) {
+        }
+
+        /**
+         * Called when the last attempt of the request failed.
+         *
+         * @param cause The error.
+         */
+        default void failed(Throwable cause) {
+        }
+    }
+
+    // Holder class, so that the thread is only created when a request is first retried.
+    private static class RetrySchedulerHolder {
+        static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "quiltcore-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Represents a builder for creating an {@link AdaptiveConcurrencyLimiter} object.
+     */
+    public static class Builder {
+        private String name = "s3";
+        private int initialLimit = 32;
+        private int minLimit = 1;
+        private int maxLimit = 1024;
+        private double backoffRatio = 0.5;
+        private Duration decreaseInterval = Duration.ofMillis(500);
+        private int maxRetries = 10;
+        private Duration baseDelay = Duration.ofMillis(100);
+        private Duration maxDelay = Duration.ofSeconds(20);
+
+        /**
+         * Sets the name of the limiter, used in log messages.
+         *
+         * @param name The name.
+         * @return This builder.
+         */
+        public Builder setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Sets the number of concurrent requests allowed at first.
+         *
+         * @param initialLimit The initial limit.
+         * @return This builder.
+         */
+        public Builder setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Sets the lowest limit that throttling can reduce the limit to.
+         *
+         * @param minLimit The minimum limit.
+         * @return This builder.
+         */
+        public Builder setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * Sets the highest limit that successful requests can raise the limit to.
+         *
+         * @param maxLimit The maximum limit.
+         * @return This builder.
+         */
+        public Builder setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Sets the factor the limit is multiplied by when requests are throttled.
+         *
+         * @param backoffRatio The factor, between 0 and 1.
+         * @return This builder.
+         */
+        public Builder setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        /**
+         * Sets the minimum time between two decreases of the limit.
+         *
+         * @param decreaseInterval The interval.
+         * @return This builder.
+         */
+        public Builder setDecreaseInterval(Duration decreaseInterval) {
+            this.decreaseInterval = decreaseInterval;
+            return this;
+        }
+
+        /**
+         * Sets the number of times a throttled request is retried.
+         *
+         * @param maxRetries The number of retries.
+         * @return This builder.
+         */
+        public Builder setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets the delay before the first retry; it doubles with every retry, and a random
+         * delay of up to that length is used.
+         *
+         * @param baseDelay The base delay.
+         * @return This builder.
+         */
+        public Builder setBaseDelay(Duration baseDelay) {
+            this.baseDelay = baseDelay;
+            return this;
+        }
+
+        /**
+         * Sets the longest delay before a retry.
+         *
+         * @param maxDelay The maximum delay.
+         * @return This builder.
+         */
+        public Builder setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * Builds an {@link AdaptiveConcurrencyLimiter} object.
+         *
+         * @return The built {@link AdaptiveConcurrencyLimiter} object.
+         */
+        public AdaptiveConcurrencyLimiter build() {
+            if (minLimit <= 0 || maxLimit < minLimit) {
+                throw new IllegalArgumentException("Limits must satisfy 0 < min <= max");
+            }
+            if (initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("Initial limit must be between min and max");
+            }
+            if (!(backoffRatio > 0 && backoffRatio < 1)) {
+                throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+            }
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("Max retries must not be negative");
+            }
+            return new AdaptiveConcurrencyLimiter(this);
+        }
+    }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long decreaseIntervalNanos;
+    private final int maxRetries;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private boolean slowStart = true;
+    private long lastDecreaseNanos;
+
+    private AdaptiveConcurrencyLimiter(Builder builder) {
+        name = builder.name;
+        minLimit = builder.minLimit;
+        maxLimit = builder.maxLimit;
+        backoffRatio = builder.backoffRatio;
+        decreaseIntervalNanos = builder.decreaseInterval.toNanos();
+        maxRetries = builder.maxRetries;
+        baseDelayNanos = builder.baseDelay.toNanos();
+        maxDelayNanos = builder.maxDelay.toNanos();
+        limit = builder.initialLimit;
+        lastDecreaseNanos = System.nanoTime() - decreaseIntervalNanos;
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the AdaptiveConcurrencyLimiter class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return The number of requests allowed in flight.
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests in flight, including those backing off before a retry.
+     *
+     * @return The number of requests.
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a request is allowed, and counts it as in flight.
+     * Each call must be followed by {@link #release()}.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts a request as no longer in flight.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a successful request, raising the limit.
+     */
+    public void onSuccess() {
+        lock.lock();
+        try {
+            int before = (int) limit;
+            limit = Math.min(maxLimit, limit + (slowStart ? 1 : 1 / limit));
+            if ((int) limit > before) {
+                available.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a throttled request, lowering the limit unless it was lowered recently.
+     */
+    public void onThrottle() {
+        Metrics.counter(MetricNames.S3_THROTTLED).increment();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            slowStart = false;
+            if (now - lastDecreaseNanos < decreaseIntervalNanos) {
+                return;
+            }
+            lastDecreaseNanos = now;
+            limit = Math.max(minLimit, limit * backoffRatio);
+            logger.debug("Throttled by S3, lowering the concurrency limit of {} to {}", name, (int) limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Performs a request once it is allowed, retrying it while it is throttled.
+     *
+     * @param <T> The type of the result.
+     * @param call The request.
+     * @return The result of the request.
+     * @throws IOException If the request fails, or the thread is interrupted.
+     */
+    public <T> T execute(IOCallable<T> call) throws IOException {
+        try {
+            acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an S3 request slot");
+        }
+        try {
+            for (int retries = 0; ; retries++) {
+                try {
+                    T result = call.call();
+                    onSuccess();
+                    return result;
+                } catch (IOException | RuntimeException e) {
+                    if (!isThrottling(e)) {
+                        throw e;
+                    }
+                    onThrottle();
+                    if (retries >= maxRetries) {
+                        throw e;
+                    }
+                    Metrics.counter(MetricNames.S3_THROTTLE_RETRIES).increment();
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(retryDelayNanos(retries));
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while backing off after throttling");
+                    }
+                }
+            }
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Starts an asynchronous request once it is allowed, restarting it while it is throttled.
+     * Blocks the calling thread until the request is allowed, which keeps callers from queuing up
+     * more requests than S3 accepts.
+     *
+     * @param <T> The type of the result.
+     * @param call Starts the request; it is called again for every retry.
+     * @return A future completed with the result of the last attempt.
+     * @throws IOException If the first attempt can't be started, or the thread is interrupted.
+     */
+    public <T> CompletableFuture<T> executeAsync(AsyncCall<T> call) throws IOException {
+        return executeAsync(call, AttemptListener.NO_OP);
+    }
+
+    /**
+     * Starts an asynchronous request once it is allowed, restarting it while it is throttled,
+     * and reports each retry and the final failure, if any, to a listener.
+     *
+     * @param <T> The type of the result.
+     * @param call Starts the request; it is called again for every retry.
+     * @param attemptListener The listener of the attempts.
+     * @return A future completed with the result of the last attempt.
+     * @throws IOException If the first attempt can't be started, or the thread is interrupted.
+     */
+    public <T> CompletableFuture<T> executeAsync(AsyncCall<T> call, AttemptListener attemptListener) throws IOException {
+        try {
+            acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an S3 request slot");
+        }
+        CompletableFuture<T> first;
+        try {
+            first = call.start();
+        } catch (IOException | RuntimeException e) {
+            release();
+            attemptListener.failed(e);
+            throw e;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.whenComplete((value, error) -> release());
+        handleAttempt(call, attemptListener, first, 0, result);
+        return result;
+    }
+
+    private <T> void handleAttempt(
+        AsyncCall<T> call,
+        AttemptListener attemptListener,
+        CompletableFuture<T> attempt,
+        int retries,
+        CompletableFuture<T> result
+    ) {
+        attempt.whenComplete((value, error) -> {
+            if (error == null) {
+                onSuccess();
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (isThrottling(cause)) {
+                onThrottle();
+                if (retries < maxRetries) {
+                    Metrics.counter(MetricNames.S3_THROTTLE_RETRIES).increment();
+                    attemptListener.retrying(cause);
+                    RetrySchedulerHolder.SCHEDULER.schedule(
+                        () -> retry(call, attemptListener, retries + 1, result),
+                        retryDelayNanos(retries),
+                        TimeUnit.NANOSECONDS
+                    );
+                    return;
+                }
+            }
+            attemptListener.failed(cause);
+            result.completeExceptionally(cause);
+        });
+    }
+
+    private <T> void retry(AsyncCall<T> call, AttemptListener attemptListener, int retries, CompletableFuture<T> result) {
+        CompletableFuture<T> attempt;
+        try {
+            attempt = call.start();
+        } catch (IOException | RuntimeException e) {
+            attemptListener.failed(e);
+            result.completeExceptionally(e);
+            return;
+        }
+        handleAttempt(call, attemptListener, attempt, retries, result);
+    }
+
+    private long retryDelayNanos(int retries) {
+        long cap = baseDelayNanos << Math.min(retries, 30);
+        if (cap <= 0 || cap > maxDelayNanos) {
+            cap = maxDelayNanos;
+        }
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Returns whether an error, or any of its causes, is a throttling response from S3,
+     * such as 503 SlowDown.
+     *
+     * @param error The error.
+     * @return Whether the request was throttled.
+     */
+    public static boolean isThrottling(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof SdkServiceException) {
+                SdkServiceException e = (SdkServiceException) t;
+                if (e.isThrottlingException() || e.statusCode() == SERVICE_UNAVAILABLE) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
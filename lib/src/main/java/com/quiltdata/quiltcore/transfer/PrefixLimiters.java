@@ -0,0 +1,83 @@
+package com.quiltdata.quiltcore.transfer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+
+/**
+ * Holds the process-wide {@link AdaptiveConcurrencyLimiter}s used for S3 transfers, one per prefix.
+ *
+ * <p>
+ * S3 scales request rates per key prefix, so a push into one package can be throttled while
+ * other prefixes of the same bucket are not. Keys are grouped by the bucket and their first
+ * {@value #PREFIX_DEPTH} path segments, which for pushed objects is the package name.
+ * The limit and the number of requests in flight of each prefix are exported as gauges named by
+ * {@link MetricNames#s3ConcurrencyLimit(String)} and {@link MetricNames#s3InFlight(String)}.
+ * </p>
+ */
+public final class PrefixLimiters {
+    /**
+     * The number of leading path segments of a key that make up its prefix.
+     */
+    public static final int PREFIX_DEPTH = 2;
+
+    private static final Function<String, AdaptiveConcurrencyLimiter> DEFAULT_FACTORY =
+        prefix -> AdaptiveConcurrencyLimiter.builder().setName(prefix).build();
+
+    private static final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private static volatile Function<String, AdaptiveConcurrencyLimiter> factory = DEFAULT_FACTORY;
+
+    private PrefixLimiters() {
+    }
+
+    /**
+     * Returns the limiter for the prefix of an S3 object, creating it on first use.
+     *
+     * @param bucket The bucket of the object.
+     * @param key The key of the object.
+     * @return The limiter.
+     */
+    public static AdaptiveConcurrencyLimiter forKey(String bucket, String key) {
+        return limiters.computeIfAbsent(prefixOf(bucket, key), PrefixLimiters::create);
+    }
+
+    /**
+     * Sets the factory of new limiters, e.g. to change their limits or retries.
+     * Existing limiters are discarded.
+     *
+     * @param newFactory Creates the limiter for a prefix, or null for the default limiters.
+     */
+    public static void setLimiterFactory(Function<String, AdaptiveConcurrencyLimiter> newFactory) {
+        factory = newFactory == null ? DEFAULT_FACTORY : newFactory;
+        limiters.clear();
+    }
+
+    /**
+     * Returns the prefix of an S3 object that requests are limited by.
+     *
+     * @param bucket The bucket of the object.
+     * @param key The key of the object.
+     * @return The bucket and up to {@value #PREFIX_DEPTH} leading path segments, separated and ended by slashes.
+     */
+    public static String prefixOf(String bucket, String key) {
+        int end = 0;
+        for (int i = 0; i < PREFIX_DEPTH; i++) {
+            int slash = key.indexOf('/', end);
+            if (slash < 0) {
+                break;
+            }
+            end = slash + 1;
+        }
+        return bucket + "/" + key.substring(0, end);
+    }
+
+    private static AdaptiveConcurrencyLimiter create(String prefix) {
+        AdaptiveConcurrencyLimiter limiter = factory.apply(prefix);
+        Metrics.gauge(MetricNames.s3ConcurrencyLimit(prefix), limiter::getLimit);
+        Metrics.gauge(MetricNames.s3InFlight(prefix), limiter::getInFlight);
+        return limiter;
+    }
+}
@@ -0,0 +1,322 @@
+package com.quiltdata.quiltcore.transfer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.quiltdata.quiltcore.ChunkedChecksum;
+import com.quiltdata.quiltcore.Entry;
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+import com.quiltdata.quiltcore.key.S3PhysicalKey;
+import com.quiltdata.quiltcore.metrics.Counter;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import com.quiltdata.quiltcore.storage.ObjectStore;
+import com.quiltdata.quiltcore.storage.ObjectStores;
+import software.amazon.awssdk.core.exception.SdkException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads a single S3 object by fetching byte ranges concurrently and writing them
+ * into a preallocated file with positional writes.
+ *
+ * <p>
+ * All ranges are pinned to the same object version: the version ID of the physical key is used
+ * if present, otherwise the version (or ETag, for unversioned buckets) returned by a HEAD request.
+ * Ranges are read from the {@link ObjectStores object store} of the bucket.
+ * </p>
+ */
+public class RangedDownloader {
+    private static final Logger logger = LoggerFactory.getLogger(RangedDownloader.class);
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final long partSize;
+    private final int concurrency;
+
+    /**
+     * Constructs a new RangedDownloader.
+     *
+     * @param partSize The size of each byte range.
+     * @param concurrency The maximum number of ranges downloaded at the same time.
+     */
+    public RangedDownloader(long partSize, int concurrency) {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("Part size must be positive");
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive");
+        }
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Downloads the object to the destination path.
+     *
+     * <p>
+     * If {@code computeChecksum} is set, the ranges are aligned to the chunked checksum part size
+     * (rather than the configured part size), and the {@link Entry.HashType#SHA2_256_Chunked}
+     * checksum is computed from the ranges as they are written.
+     * </p>
+     *
+     * @param src The object to download.
+     * @param size The expected size of the object.
+     * @param dest The destination file; it is created or overwritten.
+     * @param computeChecksum Whether to compute the chunked checksum of the object.
+     * @return The chunked checksum, or null if {@code computeChecksum} is not set.
+     * @throws IOException If the download fails; the destination file is deleted in that case.
+     */
+    public Entry.Hash download(S3PhysicalKey src, long size, Path dest, boolean computeChecksum) throws IOException {
+        return download(src, size, dest, computeChecksum, TransferProgressListener.NO_OP);
+    }
+
+    /**
+     * Downloads the object to the destination path, reporting progress to the listener.
+     * A failed range is retried up to {@value #MAX_ATTEMPTS} times in total; throttled ranges are
+     * retried by the {@link PrefixLimiters limiter} of the object's prefix, which also bounds the
+     * number of ranges in flight.
+     *
+     * @param src The object to download.
+     * @param size The expected size of the object.
+     * @param dest The destination file; it is created or overwritten.
+     * @param computeChecksum Whether to compute the chunked checksum of the object.
+     * @param listener The listener receiving progress events.
+     * @return The chunked checksum, or null if {@code computeChecksum} is not set.
+     * @throws IOException If the download fails; the destination file is deleted in that case.
+     */
+    public Entry.Hash download(
+        S3PhysicalKey src,
+        long size,
+        Path dest,
+        boolean computeChecksum,
+        TransferProgressListener listener
+    ) throws IOException {
+        Entry.Hash hash = fetch(src, size, dest, computeChecksum, listener);
+        listener.objectCompleted(src.getBucket(), size);
+        return hash;
+    }
+
+    /**
+     * Downloads the object to the destination path and checks its hash, reporting progress to the listener.
+     * The object is only reported as completed once its hash matches; if it doesn't, it is reported as failed.
+     *
+     * <p>
+     * A {@link Entry.HashType#SHA2_256_Chunked} hash is computed from the ranges as they are written;
+     * a plain SHA-256 hash can't be computed from independent ranges, so the file is hashed once it's complete.
+     * </p>
+     *
+     * @param src The object to download.
+     * @param size The expected size of the object.
+     * @param dest The destination file; it is created or overwritten.
+     * @param expected The expected hash of the object, or null to skip the check.
+     * @param listener The listener receiving progress events.
+     * @throws IOException If the download fails or the hash doesn't match; the destination file is deleted in that case.
+     */
+    public void downloadVerified(
+        S3PhysicalKey src,
+        long size,
+        Path dest,
+        Entry.Hash expected,
+        TransferProgressListener listener
+    ) throws IOException {
+        boolean chunked = expected != null && expected.type == Entry.HashType.SHA2_256_Chunked;
+        Entry.Hash actual = fetch(src, size, dest, chunked, listener);
+        if (expected != null) {
+            try {
+                if (!chunked) {
+                    actual = new Entry(new LocalPhysicalKey(dest), size, null, null).withHash().getHash();
+                }
+                if (!expected.value.equals(actual.value)) {
+                    throw new IOException("Hash mismatch for " + src + ": expected " + expected.value + ", got " + actual.value);
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(dest);
+                listener.objectFailed(src.getBucket(), e);
+                throw e;
+            }
+        }
+        listener.objectCompleted(src.getBucket(), size);
+    }
+
+    private Entry.Hash fetch(
+        S3PhysicalKey src,
+        long size,
+        Path dest,
+        boolean computeChecksum,
+        TransferProgressListener listener
+    ) throws IOException {
+        String bucket = src.getBucket();
+        String key = src.getKey();
+
+        ObjectStore store = ObjectStores.forBucket(bucket);
+
+        String versionId = src.getVersionId();
+        String eTag = null;
+        if (versionId == null) {
+            ObjectStore.ObjectInfo head = store.head(bucket, key, null);
+            if (head.size != size) {
+                throw new IOException("Size mismatch for " + src + ": expected " + size + ", got " + head.size);
+            }
+            versionId = head.versionId;
+            if (versionId == null) {
+                eTag = head.eTag;
+            }
+        }
+
+        long rangeSize = computeChecksum ? ChunkedChecksum.getChunkSize(size) : partSize;
+        int parts = (int) ((size + rangeSize - 1) / rangeSize);
+        byte[][] digests = computeChecksum ? new byte[parts][] : null;
+
+        logger.debug("Downloading {} in {} ranges of {} bytes to {}", src, parts, rangeSize, dest);
+
+        try (RandomAccessFile file = new RandomAccessFile(dest.toFile(), "rw")) {
+            file.setLength(size);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, parts)));
+        boolean success = false;
+        try (FileChannel channel = FileChannel.open(dest, StandardOpenOption.WRITE)) {
+            List<Future<?>> futures = new ArrayList<>(parts);
+            for (int i = 0; i < parts; i++) {
+                int part = i;
+                long start = part * rangeSize;
+                long end = Math.min(start + rangeSize, size);
+                Range range = new Range(bucket, key, versionId, eTag, start, end);
+                futures.add(executor.submit(() -> {
+                    byte[] digest = downloadRangeWithRetries(store, range, channel, computeChecksum, listener);
+                    if (digests != null) {
+                        digests[part] = digest;
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            success = true;
+        } catch (ExecutionException e) {
+            listener.objectFailed(bucket, e.getCause());
+            throw new IOException("Download failed: " + src, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrupted: " + src, e);
+        } finally {
+            executor.shutdownNow();
+            if (!success) {
+                Files.deleteIfExists(dest);
+            }
+        }
+
+        return digests == null ? null : ChunkedChecksum.combine(digests);
+    }
+
+    private static byte[] downloadRangeWithRetries(
+        ObjectStore store,
+        Range range,
+        FileChannel channel,
+        boolean computeChecksum,
+        TransferProgressListener listener
+    ) throws IOException {
+        AdaptiveConcurrencyLimiter limiter = PrefixLimiters.forKey(range.bucket, range.key);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // The limiter retries throttled requests itself.
+                return limiter.execute(() -> {
+                    long[] written = new long[1];
+                    try {
+                        return downloadRange(store, range, channel, computeChecksum, listener, written);
+                    } catch (IOException | SdkException e) {
+                        listener.bytesTransferred(range.bucket, -written[0]);
+                        throw e;
+                    }
+                });
+            } catch (IOException | SdkException e) {
+                if (attempt >= MAX_ATTEMPTS || AdaptiveConcurrencyLimiter.isThrottling(e)) {
+                    throw e;
+                }
+                logger.debug("Retrying range {} of {} after error", range, range.key, e);
+                listener.requestRetried(range.bucket);
+            }
+        }
+    }
+
+    private static byte[] downloadRange(
+        ObjectStore store,
+        Range range,
+        FileChannel channel,
+        boolean computeChecksum,
+        TransferProgressListener listener,
+        long[] written
+    ) throws IOException {
+        MessageDigest digest = computeChecksum ? ChunkedChecksum.newDigest() : null;
+        Counter bytesRead = Metrics.counter(MetricNames.S3_BYTES_READ);
+        long position = range.start;
+
+        try (InputStream in = store.getRange(range.bucket, range.key, range.versionId, range.eTag, range.start, range.end)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                if (position + count > range.end) {
+                    throw new IOException("Received more data than requested for range " + range);
+                }
+                ByteBuffer bb = ByteBuffer.wrap(buffer, 0, count);
+                while (bb.hasRemaining()) {
+                    position += channel.write(bb, position);
+                }
+                if (digest != null) {
+                    digest.update(buffer, 0, count);
+                }
+                written[0] += count;
+                bytesRead.increment(count);
+                listener.bytesTransferred(range.bucket, count);
+            }
+        }
+
+        if (position != range.end) {
+            throw new IOException("Received less data than requested for range " + range);
+        }
+        return digest == null ? null : digest.digest();
+    }
+
+    /**
+     * A byte range of an object version, from {@code start} to {@code end} exclusive.
+     */
+    private static final class Range {
+        final String bucket;
+        final String key;
+        final String versionId;
+        final String eTag;
+        final long start;
+        final long end;
+
+        Range(String bucket, String key, String versionId, String eTag, long start, long end) {
+            this.bucket = bucket;
+            this.key = key;
+            this.versionId = versionId;
+            this.eTag = eTag;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String toString() {
+            return "bytes=" + start + "-" + (end - 1);
+        }
+    }
+}
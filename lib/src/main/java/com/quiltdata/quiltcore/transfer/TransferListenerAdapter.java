@@ -0,0 +1,86 @@
+package com.quiltdata.quiltcore.transfer;
+
+import software.amazon.awssdk.transfer.s3.progress.TransferListener;
+import com.quiltdata.quiltcore.transfer.AdaptiveConcurrencyLimiter.AttemptListener;
+
+/**
+ * Forwards the events of a single transfer manager transfer to a {@link TransferProgressListener}.
+ *
+ * <p>
+ * The transfer manager reports cumulative progress per file; this adapter converts it into
+ * byte deltas so that one listener can aggregate many transfers. Server-side copies may not
+ * report any intermediate progress, so the full object size is reported when a transfer completes.
+ * When a transfer fails, its progress is taken back.
+ * </p>
+ * <p>
+ * Whether a failed transfer is retried is only known to the {@link AdaptiveConcurrencyLimiter} running it,
+ * so failures are reported by the listener returned by {@link #attemptListener(String, TransferProgressListener)}:
+ * throttled attempts that are retried as {@link TransferProgressListener#requestRetried(String)}, and the last
+ * failed attempt as {@link TransferProgressListener#objectFailed(String, Throwable)}.
+ * </p>
+ */
+public class TransferListenerAdapter implements TransferListener {
+    private final String bucket;
+    private final long size;
+    private final TransferProgressListener listener;
+    private long reportedBytes;
+
+    /**
+     * Constructs a new TransferListenerAdapter.
+     *
+     * @param bucket The bucket of the transferred object.
+     * @param size The size of the transferred object.
+     * @param listener The listener to forward events to.
+     */
+    public TransferListenerAdapter(String bucket, long size, TransferProgressListener listener) {
+        this.bucket = bucket;
+        this.size = size;
+        this.listener = listener;
+    }
+
+    private synchronized void report(long transferredBytes) {
+        long delta = transferredBytes - reportedBytes;
+        if (delta != 0) {
+            reportedBytes = transferredBytes;
+            listener.bytesTransferred(bucket, delta);
+        }
+    }
+
+    @Override
+    public void bytesTransferred(Context.BytesTransferred context) {
+        report(context.progressSnapshot().transferredBytes());
+    }
+
+    @Override
+    public void transferComplete(Context.TransferComplete context) {
+        report(size);
+        listener.objectCompleted(bucket, size);
+    }
+
+    @Override
+    public void transferFailed(Context.TransferFailed context) {
+        // Take back partial progress, so that a retried transfer isn't counted twice.
+        report(0);
+    }
+
+    /**
+     * Returns a listener of the attempts of a transfer that forwards retries and the final failure.
+     *
+     * @param bucket The bucket of the transferred object.
+     * @param listener The listener to forward events to.
+     * @return The attempt listener, to pass to {@link AdaptiveConcurrencyLimiter#executeAsync(AdaptiveConcurrencyLimiter.AsyncCall, AttemptListener)}.
+     */
+    public static AttemptListener attemptListener(String bucket, TransferProgressListener listener) {
+        return new AttemptListener() {
+            @Override
+            public void retrying(Throwable cause) {
+                listener.requestRetried(bucket);
+            }
+
+            @Override
+            public void failed(Throwable cause) {
+                listener.objectFailed(bucket, cause);
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package com.quiltdata.quiltcore.transfer;
+
+/**
+ * Receives progress events for a whole install or push operation.
+ *
+ * <p>
+ * Unlike the per-file listeners of the AWS transfer manager, a single instance receives the events
+ * of every object in the operation, from many threads at once. Implementations must be thread-safe
+ * and cheap; see {@link TransferStats} for a lock-free implementation.
+ * </p>
+ */
+public interface TransferProgressListener {
+    /**
+     * A listener that ignores all events.
+     */
+    TransferProgressListener NO_OP = new TransferProgressListener() {};
+
+    /**
+     * Called once before any object is transferred.
+     *
+     * @param totalObjects The number of objects in the operation.
+     * @param totalBytes The total size of the objects in bytes.
+     */
+    default void operationStarted(long totalObjects, long totalBytes) {
+    }
+
+    /**
+     * Called when more bytes of an object have been transferred.
+     * The count may be negative if a partially transferred range is retried.
+     *
+     * @param bucket The bucket of the object.
+     * @param bytes The number of newly transferred bytes.
+     */
+    default void bytesTransferred(String bucket, long bytes) {
+    }
+
+    /**
+     * Called when an object has been transferred.
+     *
+     * @param bucket The bucket of the object.
+     * @param size The size of the object in bytes.
+     */
+    default void objectCompleted(String bucket, long size) {
+    }
+
+    /**
+     * Called when an object could not be transferred.
+     *
+     * @param bucket The bucket of the object.
+     * @param cause The error.
+     */
+    default void objectFailed(String bucket, Throwable cause) {
+    }
+
+    /**
+     * Called when a request is retried by quiltcore. Retries done internally by the AWS SDK are not reported.
+     *
+     * @param bucket The bucket of the object.
+     */
+    default void requestRetried(String bucket) {
+    }
+
+    /**
+     * Called once after all objects have been transferred, or the operation has failed.
+     */
+    default void operationCompleted() {
+    }
+}
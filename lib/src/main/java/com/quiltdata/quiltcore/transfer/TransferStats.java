@@ -0,0 +1,222 @@
+package com.quiltdata.quiltcore.transfer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link TransferProgressListener} that aggregates whole-operation statistics
+ * using lock-free counters.
+ *
+ * <p>
+ * The statistics can be read from any thread while the operation is running,
+ * e.g. to render a progress bar or to export throughput metrics.
+ * </p>
+ */
+public class TransferStats implements TransferProgressListener {
+    /**
+     * Counters for a single bucket.
+     */
+    public static class BucketStats {
+        private final LongAdder bytesTransferred = new LongAdder();
+        private final LongAdder objectsCompleted = new LongAdder();
+        private final LongAdder objectsFailed = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+
+        /**
+         * Returns the number of bytes transferred.
+         *
+         * @return The number of bytes.
+         */
+        public long getBytesTransferred() {
+            return bytesTransferred.sum();
+        }
+
+        /**
+         * Returns the number of objects transferred.
+         *
+         * @return The number of objects.
+         */
+        public long getObjectsCompleted() {
+            return objectsCompleted.sum();
+        }
+
+        /**
+         * Returns the number of objects that failed to transfer.
+         *
+         * @return The number of objects.
+         */
+        public long getObjectsFailed() {
+            return objectsFailed.sum();
+        }
+
+        /**
+         * Returns the number of retried requests.
+         *
+         * @return The number of retries.
+         */
+        public long getRetries() {
+            return retries.sum();
+        }
+    }
+
+    private final BucketStats totals = new BucketStats();
+    private final Map<String, BucketStats> bucketStats = new ConcurrentHashMap<>();
+
+    private volatile long totalObjects;
+    private volatile long totalBytes;
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    private BucketStats forBucket(String bucket) {
+        return bucketStats.computeIfAbsent(bucket, b -> new BucketStats());
+    }
+
+    @Override
+    public void operationStarted(long totalObjects, long totalBytes) {
+        this.totalObjects = totalObjects;
+        this.totalBytes = totalBytes;
+        this.startNanos = System.nanoTime();
+        this.endNanos = 0;
+    }
+
+    @Override
+    public void bytesTransferred(String bucket, long bytes) {
+        totals.bytesTransferred.add(bytes);
+        forBucket(bucket).bytesTransferred.add(bytes);
+    }
+
+    @Override
+    public void objectCompleted(String bucket, long size) {
+        totals.objectsCompleted.increment();
+        forBucket(bucket).objectsCompleted.increment();
+    }
+
+    @Override
+    public void objectFailed(String bucket, Throwable cause) {
+        totals.objectsFailed.increment();
+        forBucket(bucket).objectsFailed.increment();
+    }
+
+    @Override
+    public void requestRetried(String bucket) {
+        totals.retries.increment();
+        forBucket(bucket).retries.increment();
+    }
+
+    @Override
+    public void operationCompleted() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the number of objects in the operation.
+     *
+     * @return The number of objects.
+     */
+    public long getTotalObjects() {
+        return totalObjects;
+    }
+
+    /**
+     * Returns the total size of the objects in the operation.
+     *
+     * @return The number of bytes.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the number of bytes transferred so far.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesTransferred() {
+        return totals.getBytesTransferred();
+    }
+
+    /**
+     * Returns the number of objects transferred so far.
+     *
+     * @return The number of objects.
+     */
+    public long getObjectsCompleted() {
+        return totals.getObjectsCompleted();
+    }
+
+    /**
+     * Returns the number of objects that failed to transfer.
+     *
+     * @return The number of objects.
+     */
+    public long getObjectsFailed() {
+        return totals.getObjectsFailed();
+    }
+
+    /**
+     * Returns the number of retried requests.
+     *
+     * @return The number of retries.
+     */
+    public long getRetries() {
+        return totals.getRetries();
+    }
+
+    /**
+     * Returns the per-bucket breakdown of the statistics.
+     *
+     * @return An unmodifiable view of the statistics by bucket name.
+     */
+    public Map<String, BucketStats> getBucketStats() {
+        return Collections.unmodifiableMap(bucketStats);
+    }
+
+    /**
+     * Returns the time elapsed since the operation started, or its total duration if it has completed.
+     *
+     * @return The elapsed time.
+     */
+    public Duration getElapsed() {
+        long end = endNanos;
+        return Duration.ofNanos((end == 0 ? System.nanoTime() : end) - startNanos);
+    }
+
+    /**
+     * Returns the average throughput since the operation started.
+     *
+     * @return The throughput in bytes per second.
+     */
+    public double getThroughput() {
+        long nanos = getElapsed().toNanos();
+        return nanos <= 0 ? 0 : getBytesTransferred() * 1e9 / nanos;
+    }
+
+    /**
+     * Returns the estimated time until all bytes are transferred, based on the average throughput.
+     *
+     * @return The estimated remaining time, or null if no bytes have been transferred yet.
+     */
+    public Duration getEstimatedTimeRemaining() {
+        double throughput = getThroughput();
+        if (throughput <= 0) {
+            return null;
+        }
+        long remaining = Math.max(0, totalBytes - getBytesTransferred());
+        return Duration.ofMillis((long) (remaining * 1000 / throughput));
+    }
+
+    @Override
+    public String toString() {
+        return "TransferStats{" +
+                "objects=" + getObjectsCompleted() + "/" + totalObjects +
+                ", bytes=" + getBytesTransferred() + "/" + totalBytes +
+                ", failed=" + getObjectsFailed() +
+                ", retries=" + getRetries() +
+                ", throughput=" + (long) getThroughput() + "B/s" +
+                ", elapsed=" + getElapsed() +
+                '}';
+    }
+}
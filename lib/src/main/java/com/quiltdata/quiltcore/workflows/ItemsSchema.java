@@ -0,0 +1,108 @@
+package com.quiltdata.quiltcore.workflows;
+
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.vertx.json.schema.JsonSchema;
+import io.vertx.json.schema.JsonSchemaOptions;
+import io.vertx.json.schema.Validator;
+
+/**
+ * The item-wise form of an array schema that only constrains its items and its length.
+ *
+ * <p>
+ * Such a schema accepts an array if and only if every item is valid against the {@code items} schema
+ * and the number of items is within {@code minItems} and {@code maxItems}. This lets
+ * {@link WorkflowValidator} validate package entries one at a time, instead of building and validating
+ * an array of all of them. Schemas using other array keywords, such as {@code uniqueItems} or
+ * {@code contains}, don't have an item-wise form.
+ * </p>
+ */
+public final class ItemsSchema {
+    // Keywords that are annotations, or only matter for arrays in a way handled here.
+    private static final Set<String> SUPPORTED_KEYWORDS = Set.of(
+        "$schema", "$id", "$comment", "title", "description", "default", "examples",
+        "definitions", "$defs", "type", "items", "additionalItems", "minItems", "maxItems"
+    );
+
+    private final Validator itemValidator;
+    private final long minItems;
+    private final long maxItems;
+
+    private ItemsSchema(Validator itemValidator, long minItems, long maxItems) {
+        this.itemValidator = itemValidator;
+        this.minItems = minItems;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Returns the item-wise form of a schema, if it has one.
+     *
+     * @param schemaNode The schema.
+     * @param options The options the schema is compiled with.
+     * @return The item-wise form, or null if the schema constrains arrays in other ways, or doesn't require an array.
+     */
+    public static ItemsSchema of(JsonNode schemaNode, JsonSchemaOptions options) {
+        if (!schemaNode.isObject()) {
+            return null;
+        }
+        var names = schemaNode.fieldNames();
+        while (names.hasNext()) {
+            if (!SUPPORTED_KEYWORDS.contains(names.next())) {
+                return null;
+            }
+        }
+
+        JsonNode type = schemaNode.get("type");
+        if (type == null || !type.isTextual() || !type.asText().equals("array")) {
+            return null;
+        }
+        JsonNode items = schemaNode.get("items");
+        // A list of schemas validates items by position (and additionalItems applies to the rest).
+        if (items != null && !items.isObject() && !items.isBoolean()) {
+            return null;
+        }
+        JsonNode minItems = schemaNode.get("minItems");
+        JsonNode maxItems = schemaNode.get("maxItems");
+        if ((minItems != null && !minItems.canConvertToExactIntegral()) || (maxItems != null && !maxItems.canConvertToExactIntegral())) {
+            return null;
+        }
+
+        // Keep the definitions, so that references from the item schema still resolve against the root.
+        ObjectNode itemSchema = JsonNodeFactory.instance.objectNode();
+        for (String keyword : new String[] { "$schema", "$id", "definitions", "$defs" }) {
+            if (schemaNode.has(keyword)) {
+                itemSchema.set(keyword, schemaNode.get(keyword));
+            }
+        }
+        itemSchema.putArray("allOf").add(items != null ? items : JsonNodeFactory.instance.booleanNode(true));
+
+        Validator itemValidator = Validator.create(JsonSchema.of(JsonNodeAdapter.toJsonObject(itemSchema)), options);
+        return new ItemsSchema(
+            itemValidator,
+            minItems != null ? minItems.asLong() : 0,
+            maxItems != null ? maxItems.asLong() : Long.MAX_VALUE
+        );
+    }
+
+    /**
+     * Returns the validator of a single item.
+     *
+     * @return The validator.
+     */
+    public Validator getItemValidator() {
+        return itemValidator;
+    }
+
+    /**
+     * Returns whether the schema accepts the given number of items.
+     *
+     * @param count The number of items.
+     * @return Whether the count is within {@code minItems} and {@code maxItems}.
+     */
+    public boolean acceptsCount(long count) {
+        return count >= minItems && count <= maxItems;
+    }
+}
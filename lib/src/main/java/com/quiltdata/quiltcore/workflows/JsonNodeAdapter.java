@@ -0,0 +1,173 @@
+package com.quiltdata.quiltcore.workflows;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Adapts Jackson trees to the values the vertx validators accept.
+ *
+ * <p>
+ * {@link #adapt(JsonNode)} returns read-only {@link Map} and {@link java.util.List} views that convert
+ * the nodes lazily, as the validator visits them, rather than copying the whole tree with
+ * {@code treeToValue(node, Object.class)}. Scalars are converted to the same Java types as {@code treeToValue}.
+ * </p>
+ */
+final class JsonNodeAdapter {
+    private JsonNodeAdapter() {
+    }
+
+    /**
+     * Returns the value of a node as seen by a validator.
+     *
+     * @param node The node, or null.
+     * @return A read-only view of an object or an array, or a scalar value.
+     */
+    static Object adapt(JsonNode node) {
+        if (node == null) {
+            return null;
+        }
+        switch (node.getNodeType()) {
+            case OBJECT:
+                return new ObjectView((ObjectNode) node);
+            case ARRAY:
+                return new ArrayView((ArrayNode) node);
+            default:
+                return scalarValue(node);
+        }
+    }
+
+    /**
+     * Copies an object node into a {@link JsonObject}, e.g. to compile it as a schema.
+     * Unlike {@link JsonObject#mapFrom(Object)}, it doesn't serialize the tree.
+     *
+     * @param node The object node.
+     * @return A mutable copy of the node.
+     */
+    static JsonObject toJsonObject(ObjectNode node) {
+        JsonObject obj = new JsonObject();
+        var fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            obj.put(field.getKey(), copy(field.getValue()));
+        }
+        return obj;
+    }
+
+    private static JsonArray toJsonArray(ArrayNode node) {
+        JsonArray arr = new JsonArray();
+        for (JsonNode element : node) {
+            arr.add(copy(element));
+        }
+        return arr;
+    }
+
+    private static Object copy(JsonNode node) {
+        switch (node.getNodeType()) {
+            case OBJECT:
+                return toJsonObject((ObjectNode) node);
+            case ARRAY:
+                return toJsonArray((ArrayNode) node);
+            default:
+                return scalarValue(node);
+        }
+    }
+
+    private static Object scalarValue(JsonNode node) {
+        switch (node.getNodeType()) {
+            case STRING:
+                return node.textValue();
+            case NUMBER:
+                return node.numberValue();
+            case BOOLEAN:
+                return node.booleanValue();
+            case BINARY:
+                return node.asText();
+            case POJO:
+                throw new IllegalArgumentException("POJO nodes are not supported");
+            default:
+                return null;
+        }
+    }
+
+    private static class ObjectView extends AbstractMap<String, Object> {
+        private final ObjectNode node;
+
+        ObjectView(ObjectNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String ? adapt(node.get((String) key)) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && node.has((String) key);
+        }
+
+        @Override
+        public int size() {
+            return node.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    var fields = node.fields();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return fields.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Map.Entry<String, JsonNode> field = fields.next();
+                            return new SimpleImmutableEntry<>(field.getKey(), adapt(field.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return node.size();
+                }
+            };
+        }
+    }
+
+    private static class ArrayView extends AbstractList<Object> implements RandomAccess {
+        private final ArrayNode node;
+
+        ArrayView(ArrayNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= node.size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + node.size());
+            }
+            return adapt(node.get(index));
+        }
+
+        @Override
+        public int size() {
+            return node.size();
+        }
+    }
+}
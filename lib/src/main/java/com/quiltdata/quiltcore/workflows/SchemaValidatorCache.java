@@ -0,0 +1,410 @@
+package com.quiltdata.quiltcore.workflows;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.quiltdata.quiltcore.LazyParallel;
+import com.quiltdata.quiltcore.key.PhysicalKey;
+import com.quiltdata.quiltcore.key.S3PhysicalKey;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import software.amazon.awssdk.utils.BinaryUtils;
+import io.vertx.json.schema.Draft;
+import io.vertx.json.schema.JsonSchema;
+import io.vertx.json.schema.JsonSchemaOptions;
+import io.vertx.json.schema.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of compiled JSON schema validators, keyed by the effective physical key of the schema.
+ *
+ * <p>
+ * A schema at an S3 key with a version ID is immutable, so it is compiled once and served without any request.
+ * Other schemas are revalidated with a conditional read (If-None-Match for S3, modification time for local files);
+ * they are only compiled again if their effective key (e.g. the version ID of the S3 object) or, for unversioned
+ * objects, their contents changed. The least recently used validators are evicted once there are more than
+ * the configured number.
+ * </p>
+ *
+ * <p>
+ * The cache is thread-safe. By default, all {@link WorkflowConfig} instances share the
+ * {@linkplain #getShared() process-wide cache}; concurrent requests for the same schema only load it once.
+ * </p>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * SchemaValidatorCache.setShared(SchemaValidatorCache.builder()
+ *     .setMaxEntries(1024)
+ *     .build());
+ * }</pre>
+ */
+public class SchemaValidatorCache {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaValidatorCache.class);
+
+    /**
+     * The default maximum number of compiled validators kept in the cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static final Map<String, Draft> SUPPORTED_META_SCHEMAS = Map.of(
+        "http://json-schema.org/draft-07/schema#", Draft.DRAFT7
+    );
+
+    private static volatile SchemaValidatorCache shared = builder().build();
+
+    /**
+     * Represents a builder for creating a {@link SchemaValidatorCache} object.
+     */
+    public static class Builder {
+        private int maxEntries = DEFAULT_MAX_ENTRIES;
+        private Executor executor = LazyParallel.ioExecutor();
+
+        /**
+         * Sets the maximum number of compiled validators kept in the cache.
+         *
+         * @param maxEntries The maximum number of validators.
+         * @return This builder.
+         */
+        public Builder setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Sets the executor loading schemas requested with {@link SchemaValidatorCache#getAsync(PhysicalKey)}.
+         * Loading blocks on reads, so it defaults to the shared I/O pool, {@link LazyParallel#ioExecutor()}.
+         *
+         * @param executor The executor.
+         * @return This builder.
+         */
+        public Builder setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Builds a {@link SchemaValidatorCache} object.
+         *
+         * @return The built {@link SchemaValidatorCache} object.
+         */
+        public SchemaValidatorCache build() {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("Max entries must be positive");
+            }
+            if (executor == null) {
+                throw new IllegalArgumentException("Executor is required");
+            }
+            return new SchemaValidatorCache(this);
+        }
+    }
+
+    /**
+     * A compiled schema validator and the effective physical key of the schema it was compiled from.
+     */
+    public static class CompiledSchema {
+        private final Validator validator;
+        private final ItemsSchema itemsSchema;
+        private final PhysicalKey physicalKey;
+
+        CompiledSchema(Validator validator, ItemsSchema itemsSchema, PhysicalKey physicalKey) {
+            this.validator = validator;
+            this.itemsSchema = itemsSchema;
+            this.physicalKey = physicalKey;
+        }
+
+        /**
+         * Returns the compiled validator.
+         *
+         * @return The validator.
+         */
+        public Validator getValidator() {
+            return validator;
+        }
+
+        /**
+         * Returns the item-wise form of the schema, if it only constrains the items and the length of an array.
+         *
+         * @return The item-wise form, or null.
+         */
+        public ItemsSchema getItemsSchema() {
+            return itemsSchema;
+        }
+
+        /**
+         * Returns the effective physical key of the schema, e.g. with the version ID of the S3 object.
+         *
+         * @return The physical key.
+         */
+        public PhysicalKey getPhysicalKey() {
+            return physicalKey;
+        }
+    }
+
+    private static class Resolution {
+        final String validator;
+        final String cacheKey;
+
+        Resolution(String validator, String cacheKey) {
+            this.validator = validator;
+            this.cacheKey = cacheKey;
+        }
+    }
+
+    private final int maxEntries;
+    private final Executor executor;
+
+    // Access-ordered, so iteration starts from the least recently used validator.
+    private final LinkedHashMap<String, CompiledSchema> compiled = new LinkedHashMap<>(16, 0.75f, true);
+    // The last known version of each requested key, for conditional reads.
+    private final LinkedHashMap<String, Resolution> resolutions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<String, CompletableFuture<CompiledSchema>> loading = new ConcurrentHashMap<>();
+
+    private SchemaValidatorCache(Builder builder) {
+        maxEntries = builder.maxEntries;
+        executor = builder.executor;
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the SchemaValidatorCache class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the process-wide cache used by {@link WorkflowConfig}.
+     *
+     * @return The shared cache.
+     */
+    public static SchemaValidatorCache getShared() {
+        return shared;
+    }
+
+    /**
+     * Replaces the process-wide cache used by {@link WorkflowConfig}.
+     *
+     * @param cache The new cache, or null to use a new cache with the default settings.
+     */
+    public static void setShared(SchemaValidatorCache cache) {
+        shared = cache == null ? builder().build() : cache;
+    }
+
+    /**
+     * Returns the compiled validator of the schema at the given physical key, loading it if needed.
+     *
+     * @param schemaKey The physical key of the schema.
+     * @return The compiled schema.
+     * @throws ConfigurationException If the schema can't be loaded or compiled.
+     */
+    public CompiledSchema get(PhysicalKey schemaKey) throws ConfigurationException {
+        String key = schemaKey.toString();
+
+        if (isImmutable(schemaKey)) {
+            CompiledSchema cached = getCompiled(key);
+            if (cached != null) {
+                Metrics.counter(MetricNames.SCHEMA_CACHE_HITS).increment();
+                return cached;
+            }
+        }
+
+        CompletableFuture<CompiledSchema> future = new CompletableFuture<>();
+        CompletableFuture<CompiledSchema> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            logger.debug("Waiting for schema being loaded by another thread: {}", key);
+            return join(existing);
+        }
+
+        try {
+            CompiledSchema schema = load(key, schemaKey);
+            future.complete(schema);
+            return schema;
+        } catch (ConfigurationException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * Starts loading the compiled validator of the schema at the given physical key on the cache's executor.
+     *
+     * @param schemaKey The physical key of the schema.
+     * @return A future of the compiled schema; it fails with a {@link CompletionException} wrapping
+     *         a {@link ConfigurationException} if the schema can't be loaded or compiled.
+     */
+    public CompletableFuture<CompiledSchema> getAsync(PhysicalKey schemaKey) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return get(schemaKey);
+            } catch (ConfigurationException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Waits for a future returned by {@link #getAsync(PhysicalKey)}.
+     *
+     * @param future The future.
+     * @return The compiled schema.
+     * @throws ConfigurationException If the schema can't be loaded or compiled.
+     */
+    public static CompiledSchema join(CompletableFuture<CompiledSchema> future) throws ConfigurationException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ConfigurationException) {
+                throw (ConfigurationException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes all validators from the cache.
+     */
+    public synchronized void clear() {
+        compiled.clear();
+        resolutions.clear();
+    }
+
+    /**
+     * Returns the number of compiled validators in the cache.
+     *
+     * @return The number of validators.
+     */
+    public synchronized int size() {
+        return compiled.size();
+    }
+
+    private CompiledSchema load(String key, PhysicalKey schemaKey) throws ConfigurationException {
+        Resolution resolution = getResolution(key);
+        PhysicalKey.ConditionalResponse response;
+        try {
+            response = schemaKey.getBytesIfChanged(resolution == null ? null : resolution.validator);
+            if (response == null) {
+                CompiledSchema cached = getCompiled(resolution.cacheKey);
+                if (cached != null) {
+                    Metrics.counter(MetricNames.SCHEMA_CACHE_HITS).increment();
+                    return cached;
+                }
+                // Evicted since it was last resolved.
+                response = schemaKey.getBytesIfChanged(null);
+            }
+        } catch (IOException e) {
+            throw new ConfigurationException("Couldn't load schema at " + schemaKey, e);
+        }
+
+        String effectiveKey = response.effectivePhysicalKey.toString();
+        // An unversioned key can point to different contents over time, so it is qualified with their digest.
+        String cacheKey = isImmutable(response.effectivePhysicalKey) ? effectiveKey : effectiveKey + "#sha256=" + digest(response.bytes);
+
+        CompiledSchema schema = getCompiled(cacheKey);
+        if (schema != null) {
+            Metrics.counter(MetricNames.SCHEMA_CACHE_HITS).increment();
+        } else {
+            Metrics.counter(MetricNames.SCHEMA_CACHE_MISSES).increment();
+            schema = compile(response.bytes, schemaKey, response.effectivePhysicalKey);
+            putCompiled(cacheKey, schema);
+        }
+        if (response.validator != null) {
+            putResolution(key, new Resolution(response.validator, cacheKey));
+        }
+        return schema;
+    }
+
+    private static CompiledSchema compile(byte[] bytes, PhysicalKey schemaKey, PhysicalKey effectivePhysicalKey)
+        throws ConfigurationException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode schemaNode;
+        try {
+            schemaNode = mapper.readTree(bytes);
+        } catch (StreamReadException e) {
+            throw new ConfigurationException("Couldn't parse " + schemaKey + " as JSON", e);
+        } catch (IOException e) {
+            throw new ConfigurationException("Couldn't load schema at " + schemaKey, e);
+        }
+
+        if (!schemaNode.isObject()) {
+            throw new ConfigurationException("Schema at " + schemaKey + " must be a JSON object");
+        }
+
+        Draft draft = Draft.DRAFT7;
+        JsonNode metaSchemaNode = schemaNode.get("$schema");
+        if (metaSchemaNode != null) {
+            if (!metaSchemaNode.isTextual()) {
+                throw new ConfigurationException("$schema must be a string");
+            }
+            draft = SUPPORTED_META_SCHEMAS.get(metaSchemaNode.asText());
+            if (draft == null) {
+                throw new ConfigurationException("Unsupported meta-schema: " + metaSchemaNode.asText());
+            }
+        }
+
+        JsonSchema schema = JsonSchema.of(JsonNodeAdapter.toJsonObject((ObjectNode) schemaNode));
+        JsonSchemaOptions options = new JsonSchemaOptions()
+            .setBaseUri("https://quiltdata.com/")  // TODO: remove it; not actually used.
+            .setDraft(draft);
+        logger.debug("Creating validator for schema: {}", schema);
+        return new CompiledSchema(Validator.create(schema, options), ItemsSchema.of(schemaNode, options), effectivePhysicalKey);
+    }
+
+    private static boolean isImmutable(PhysicalKey key) {
+        return key instanceof S3PhysicalKey && ((S3PhysicalKey) key).getVersionId() != null;
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return BinaryUtils.toHex(digest.digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized CompiledSchema getCompiled(String cacheKey) {
+        return compiled.get(cacheKey);
+    }
+
+    private synchronized void putCompiled(String cacheKey, CompiledSchema schema) {
+        compiled.put(cacheKey, schema);
+        var it = compiled.entrySet().iterator();
+        while (compiled.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            Metrics.counter(MetricNames.SCHEMA_CACHE_EVICTIONS).increment();
+        }
+    }
+
+    private synchronized Resolution getResolution(String key) {
+        return resolutions.get(key);
+    }
+
+    private synchronized void putResolution(String key, Resolution resolution) {
+        resolutions.put(key, resolution);
+        var it = resolutions.entrySet().iterator();
+        while (resolutions.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
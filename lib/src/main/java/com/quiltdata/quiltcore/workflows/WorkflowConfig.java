@@ -4,16 +4,18 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.NoSuchFileException;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
-import com.fasterxml.jackson.core.exc.StreamReadException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.quiltdata.quiltcore.key.LocalPhysicalKey;
 import com.quiltdata.quiltcore.key.PhysicalKey;
+import com.quiltdata.quiltcore.workflows.SchemaValidatorCache.CompiledSchema;
 import io.vertx.core.json.JsonObject;
 import io.vertx.json.schema.Draft;
 import io.vertx.json.schema.JsonSchema;
@@ -34,10 +36,6 @@ public class WorkflowConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(WorkflowConfig.class);
 
-    private static final Map<String, Draft> SUPPORTED_META_SCHEMAS = Map.of(
-        "http://json-schema.org/draft-07/schema#", Draft.DRAFT7
-    );
-
     private static final Validator configValidator;
 
     static {
@@ -56,20 +54,21 @@ public class WorkflowConfig {
         }
     }
 
-    private static class SchemaInfo {
-        public final Validator validator;
-        public final PhysicalKey physicalKey;
+    private static class CachedValidator {
+        final CompiledSchema metadataSchema;
+        final CompiledSchema entriesSchema;
+        final WorkflowValidator validator;
 
-        public SchemaInfo(Validator validator, PhysicalKey physicalKey) {
+        CachedValidator(CompiledSchema metadataSchema, CompiledSchema entriesSchema, WorkflowValidator validator) {
+            this.metadataSchema = metadataSchema;
+            this.entriesSchema = entriesSchema;
             this.validator = validator;
-            this.physicalKey = physicalKey;
         }
     }
 
     private final JsonNode config;
     private final PhysicalKey physicalKey;
-    private final Map<String, SchemaInfo> loadedSchemas;
-    private final Map<String, SchemaInfo> loadedSchemasById;
+    private final Map<String, CachedValidator> workflowValidators;
 
     /**
      * Constructs a new WorkflowConfig instance.
@@ -80,8 +79,8 @@ public class WorkflowConfig {
     public WorkflowConfig(JsonNode config, PhysicalKey physicalKey) {
         this.config = config;
         this.physicalKey = physicalKey;
-        loadedSchemas = new HashMap<>();
-        loadedSchemasById = new HashMap<>();
+        // A config can be cached by its registry and shared by concurrent pushes.
+        workflowValidators = new ConcurrentHashMap<>();
     }
 
     /**
@@ -105,22 +104,32 @@ public class WorkflowConfig {
         } catch (IOException e) {
             throw new ConfigurationException("Couldn't load workflows config", e);
         }
+        return parse(data, effectivePhysicalKey);
+    }
+
+    /**
+     * Parses and validates a WorkflowConfig that has already been read.
+     *
+     * @param data The contents of the configuration file.
+     * @param effectivePhysicalKey The effective (versioned) physical key the contents were read from.
+     * @return The parsed WorkflowConfig instance, or null if the configuration is empty.
+     * @throws ConfigurationException If there is an error parsing the configuration.
+     */
+    public static WorkflowConfig parse(byte[] data, PhysicalKey effectivePhysicalKey) throws ConfigurationException {
         if (data.length == 0) {
             return null;
         }
 
         ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
         JsonNode node;
-        Object value;
 
         logger.debug("Parsing workflows config from {}", data);
         try {
             node = mapper.readTree(data);
-            value = mapper.treeToValue(node, Object.class);
         } catch (IOException e) {
             throw new ConfigurationException("Couldn't parse workflows config as YAML", e);
         }
-        OutputUnit output = configValidator.validate(value);
+        OutputUnit output = configValidator.validate(JsonNodeAdapter.adapt(node));
 
         if (!output.getValid()) {
             throw new ConfigurationException("Workflows config failed validation");
@@ -154,8 +163,21 @@ public class WorkflowConfig {
         return node == null ? "" : node.asText();
     }
 
+    /**
+     * Returns the effective physical key the configuration was loaded from,
+     * e.g. with the version ID of the S3 object.
+     *
+     * @return The physical key.
+     */
+    public PhysicalKey getPhysicalKey() {
+        return physicalKey;
+    }
+
     /**
      * Gets the WorkflowValidator for the specified workflow.
+     * The workflow's schemas are resolved through {@link SchemaValidatorCache#getShared()} on every call, so a schema
+     * edited at an unversioned URL is picked up even while the configuration itself is unchanged. The validator is
+     * only created again if one of its compiled schemas changed.
      *
      * @param workflow The name of the workflow. If null, the default workflow will be used.
      * @return The WorkflowValidator instance.
@@ -186,10 +208,32 @@ public class WorkflowConfig {
         Pattern pkgNamePattern = pkgNamePatternNode != null ? Pattern.compile(pkgNamePatternNode.asText()) : null;
 
         JsonNode metadataSchemaId = workflowData.get("metadata_schema");
-        Validator metadataValidator = metadataSchemaId != null ? makeValidatorFromSchema(metadataSchemaId.asText()) : null;
-
         JsonNode entriesSchemaId = workflowData.get("entries_schema");
-        Validator entriesValidator = entriesSchemaId != null ? makeValidatorFromSchema(entriesSchemaId.asText()) : null;
+        CompletableFuture<CompiledSchema> metadataSchema = metadataSchemaId != null ? loadSchema(metadataSchemaId.asText()) : null;
+        CompletableFuture<CompiledSchema> entriesSchema = entriesSchemaId != null ? loadSchema(entriesSchemaId.asText()) : null;
+
+        CompiledSchema compiledMetadataSchema = metadataSchema != null ? SchemaValidatorCache.join(metadataSchema) : null;
+        CompiledSchema compiledEntriesSchema = entriesSchema != null ? SchemaValidatorCache.join(entriesSchema) : null;
+
+        // The cache returns the same compiled schema for the same contents.
+        CachedValidator cached = workflowValidators.get(workflow);
+        if (cached != null && cached.metadataSchema == compiledMetadataSchema && cached.entriesSchema == compiledEntriesSchema) {
+            return cached.validator;
+        }
+
+        Map<String, CompiledSchema> usedSchemas = new LinkedHashMap<>();
+        Validator metadataValidator = null;
+        if (compiledMetadataSchema != null) {
+            usedSchemas.put(metadataSchemaId.asText(), compiledMetadataSchema);
+            metadataValidator = compiledMetadataSchema.getValidator();
+        }
+        Validator entriesValidator = null;
+        ItemsSchema entriesItemsSchema = null;
+        if (compiledEntriesSchema != null) {
+            usedSchemas.put(entriesSchemaId.asText(), compiledEntriesSchema);
+            entriesValidator = compiledEntriesSchema.getValidator();
+            entriesItemsSchema = compiledEntriesSchema.getItemsSchema();
+        }
 
         JsonNode isMessageRequiredNode = workflowData.get("is_message_required");
         boolean isMessageRequired = isMessageRequiredNode != null && isMessageRequiredNode.asBoolean(false);
@@ -197,67 +241,25 @@ public class WorkflowConfig {
         var dataToStore = JsonNodeFactory.instance.objectNode()
             .put("id", workflow.isEmpty() ? null : workflow)
             .put("config", physicalKey.toString());
-        if (!loadedSchemasById.isEmpty()) {
+        if (!usedSchemas.isEmpty()) {
             var schemaNode = JsonNodeFactory.instance.objectNode();
-            for (var entry : loadedSchemasById.entrySet()) {
-                schemaNode.put(entry.getKey(), entry.getValue().physicalKey.toString());
+            for (var entry : usedSchemas.entrySet()) {
+                schemaNode.put(entry.getKey(), entry.getValue().getPhysicalKey().toString());
             }
             dataToStore.set("schemas", schemaNode);
         }
 
-        return new WorkflowValidator(dataToStore, isMessageRequired, pkgNamePattern, metadataValidator, entriesValidator);
+        WorkflowValidator validator = new WorkflowValidator(
+            dataToStore, isMessageRequired, pkgNamePattern, metadataValidator, entriesValidator, entriesItemsSchema
+        );
+        // Concurrent callers may both build a validator; the last one wins.
+        workflowValidators.put(workflow, new CachedValidator(compiledMetadataSchema, compiledEntriesSchema, validator));
+        return validator;
     }
 
-    private Validator makeValidatorFromSchema(String schemaId) throws ConfigurationException {
-        SchemaInfo info = loadedSchemasById.get(schemaId);
-        if (info != null) {
-            return info.validator;
-        }
-
-        PhysicalKey schemaPhysicalKey = getPhysicalKeyForSchemaId(schemaId);
-        info = loadedSchemas.get(schemaPhysicalKey.toString());
-        if (info != null) {
-            loadedSchemasById.put(schemaId, info);
-            return info.validator;
-        }
-
-        ObjectMapper mapper = new ObjectMapper();
-        JsonNode schemaNode;
-        PhysicalKey schemaEffectivePhysicalKey;
-
-        try {
-            var response = schemaPhysicalKey.open();
-            schemaNode = mapper.readTree(response.inputStream);
-            schemaEffectivePhysicalKey = response.effectivePhysicalKey;
-        } catch (StreamReadException e) {
-            throw new ConfigurationException("Couldn't parse " + schemaPhysicalKey + " as JSON", e);
-        } catch (IOException e) {
-            throw new ConfigurationException("Couldn't load schema at " + schemaPhysicalKey, e);
-        }
-
-        Draft draft = Draft.DRAFT7;
-        JsonNode metaSchemaNode = schemaNode.get("$schema");
-        if (metaSchemaNode != null) {
-            if (!metaSchemaNode.isTextual()) {
-                throw new ConfigurationException("$schema must be a string");
-            }
-            draft = SUPPORTED_META_SCHEMAS.get(metaSchemaNode.asText());
-            if (draft == null) {
-                throw new ConfigurationException("Unsupported meta-schema: " + metaSchemaNode.asText());
-            }
-        }
-
-        JsonSchema schema = JsonSchema.of(JsonObject.mapFrom(schemaNode));
-        JsonSchemaOptions options = new JsonSchemaOptions()
-            .setBaseUri("https://quiltdata.com/")  // TODO: remove it; not actually used.
-            .setDraft(draft);
-        logger.debug("Creating validator for schema: {}", schema);
-        Validator validator = Validator.create(schema, options);
-
-        info = new SchemaInfo(validator, schemaEffectivePhysicalKey);
-        loadedSchemasById.put(schemaId, info);
-        loadedSchemas.put(schemaPhysicalKey.toString(), info);
-        return validator;
+    private CompletableFuture<CompiledSchema> loadSchema(String schemaId) throws ConfigurationException {
+        // Unversioned schemas are revalidated by the cache with a conditional read.
+        return SchemaValidatorCache.getShared().getAsync(getPhysicalKeyForSchemaId(schemaId));
     }
 
     private PhysicalKey getPhysicalKeyForSchemaId(String schemaId) throws ConfigurationException {
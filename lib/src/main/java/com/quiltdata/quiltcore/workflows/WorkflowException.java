@@ -1,9 +1,12 @@
 package com.quiltdata.quiltcore.workflows;
 
+import java.util.List;
+
 /**
  * Represents an exception that can occur during a workflow execution.
  */
 public class WorkflowException extends Exception {
+    private final List<String> failedLogicalKeys;
 
     /**
      * Constructs a new WorkflowException with the specified detail message and cause.
@@ -13,6 +16,7 @@ public class WorkflowException extends Exception {
      */
     public WorkflowException(String message, Throwable cause) {
         super(message, cause);
+        failedLogicalKeys = List.of();
     }
 
     /**
@@ -22,5 +26,27 @@ public class WorkflowException extends Exception {
      */
     public WorkflowException(String message) {
         super(message);
+        failedLogicalKeys = List.of();
+    }
+
+    /**
+     * Constructs a new WorkflowException for package entries that failed validation.
+     *
+     * @param message the detail message (which is saved for later retrieval by the getMessage() method).
+     * @param failedLogicalKeys the logical keys of (some of) the entries that failed validation.
+     */
+    public WorkflowException(String message, List<String> failedLogicalKeys) {
+        super(message);
+        this.failedLogicalKeys = List.copyOf(failedLogicalKeys);
+    }
+
+    /**
+     * Returns the logical keys of the entries that failed validation, if they are known.
+     * At most {@link WorkflowValidator#MAX_REPORTED_FAILURES} keys are reported.
+     *
+     * @return The logical keys, in lexicographic order, or an empty list.
+     */
+    public List<String> getFailedLogicalKeys() {
+        return failedLogicalKeys;
     }
 }
@@ -1,15 +1,18 @@
 package com.quiltdata.quiltcore.workflows;
 
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.quiltdata.quiltcore.Entry;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import com.quiltdata.quiltcore.metrics.Timer;
 
 import io.vertx.json.schema.OutputUnit;
 import io.vertx.json.schema.Validator;
@@ -23,6 +26,11 @@ import org.slf4j.LoggerFactory;
 public class WorkflowValidator {
     private static final Logger logger = LoggerFactory.getLogger(WorkflowValidator.class);
 
+    /**
+     * The maximum number of failing logical keys reported when entries are validated one at a time.
+     */
+    public static final int MAX_REPORTED_FAILURES = 10;
+
     /**
      * The data to store.
      */
@@ -48,6 +56,11 @@ public class WorkflowValidator {
      */
     private final Validator entriesValidator;
 
+    /**
+     * The item-wise form of the entries schema, or null if entries are validated as a single array.
+     */
+    private final ItemsSchema entriesItemsSchema;
+
     /**
      * Constructs a WorkflowValidator object.
      *
@@ -63,12 +76,35 @@ public class WorkflowValidator {
         Pattern pkgNamePattern,
         Validator metadataValidator,
         Validator entriesValidator
+    ) {
+        this(dataToStore, isMessageRequired, pkgNamePattern, metadataValidator, entriesValidator, null);
+    }
+
+    /**
+     * Constructs a WorkflowValidator object that validates entries one at a time, in parallel,
+     * if the entries schema has an item-wise form.
+     *
+     * @param dataToStore The data to store.
+     * @param isMessageRequired Indicates whether a message is required.
+     * @param pkgNamePattern The pattern for package names.
+     * @param metadataValidator The validator for metadata.
+     * @param entriesValidator The validator for entries.
+     * @param entriesItemsSchema The item-wise form of the entries schema, or null to validate entries as a single array.
+     */
+    public WorkflowValidator(
+        JsonNode dataToStore,
+        boolean isMessageRequired,
+        Pattern pkgNamePattern,
+        Validator metadataValidator,
+        Validator entriesValidator,
+        ItemsSchema entriesItemsSchema
     ) {
         this.dataToStore = dataToStore;
         this.isMessageRequired = isMessageRequired;
         this.pkgNamePattern = pkgNamePattern;
         this.metadataValidator = metadataValidator;
         this.entriesValidator = entriesValidator;
+        this.entriesItemsSchema = entriesItemsSchema;
     }
 
     /**
@@ -81,12 +117,12 @@ public class WorkflowValidator {
      * @throws WorkflowException If the workflow fails validation.
      */
     public void validate(String name, Map<String, Entry> entries, ObjectNode metadata, String message) throws WorkflowException {
-        ObjectMapper mapper = new ObjectMapper();
-
-        validateName(name);
-        validateEntries(mapper, entries);
-        validateMetadata(mapper, metadata);
-        validateMessage(message);
+        try (Timer.Sample sample = Metrics.timer(MetricNames.VALIDATION_TIME).start()) {
+            validateName(name);
+            validateEntries(entries);
+            validateMetadata(metadata);
+            validateMessage(message);
+        }
     }
 
     /**
@@ -119,40 +155,37 @@ public class WorkflowValidator {
     /**
      * Creates an entry for validation.
      *
-     * @param mapper The ObjectMapper instance.
      * @param logicalKey The logical key of the entry.
      * @param entry The entry to be validated.
      * @return The entry for validation.
      */
-    private static Map<String, Object> entryForValidation(ObjectMapper mapper, String logicalKey, Entry entry) {
+    private static Map<String, Object> entryForValidation(String logicalKey, Entry entry) {
         logger.debug("entryForValidation: logicalKey={}, entry={}", logicalKey, entry);
-        try {
-            return Map.of(
-                "logical_key", logicalKey,
-                "size", entry.getSize(),
-                "meta", mapper.treeToValue(entry.getMetadata(), Object.class)
-            );
-        } catch (JsonProcessingException e) {
-            // Should never happen.
-            throw new RuntimeException(e);
-        }
+        return Map.of(
+            "logical_key", logicalKey,
+            "size", entry.getSize(),
+            "meta", JsonNodeAdapter.adapt(entry.getMetadata())
+        );
     }
 
     /**
      * Validates the entries of the workflow.
      *
-     * @param mapper The ObjectMapper instance.
      * @param entries The entries of the workflow.
      * @throws WorkflowException If the entries fail validation.
      */
-    private void validateEntries(ObjectMapper mapper, Map<String, Entry> entries) throws WorkflowException {
+    private void validateEntries(Map<String, Entry> entries) throws WorkflowException {
         if (entriesValidator == null) {
             return;
         }
+        if (entriesItemsSchema != null) {
+            validateEntriesItemWise(entries);
+            return;
+        }
 
         var entriesForValidation = entries.entrySet()
             .stream()
-            .map(entry -> entryForValidation(mapper, entry.getKey(), entry.getValue()))
+            .map(entry -> entryForValidation(entry.getKey(), entry.getValue()))
             .collect(Collectors.toList());
 
         OutputUnit output = entriesValidator.validate(entriesForValidation);
@@ -162,14 +195,58 @@ public class WorkflowValidator {
         }
     }
 
+    /**
+     * Validates the entries of the workflow one at a time, in parallel, against the item-wise form of the
+     * entries schema. Only one entry per thread is converted for validation at any time, and only the first
+     * {@value #MAX_REPORTED_FAILURES} failing logical keys are kept.
+     *
+     * @param entries The entries of the workflow.
+     * @throws WorkflowException If the entries fail validation.
+     */
+    private void validateEntriesItemWise(Map<String, Entry> entries) throws WorkflowException {
+        if (!entriesItemsSchema.acceptsCount(entries.size())) {
+            logger.error("failed: validateEntries: unexpected number of entries: {}", entries.size());
+            throw new WorkflowException("Package entries failed validation: unexpected number of entries: " + entries.size());
+        }
+
+        Validator itemValidator = entriesItemsSchema.getItemValidator();
+        TreeSet<String> failed = new TreeSet<>();
+        entries.entrySet().parallelStream().forEach(entry -> {
+            String logicalKey = entry.getKey();
+            synchronized (failed) {
+                // Keys after the last reported one wouldn't be reported anyway.
+                if (failed.size() == MAX_REPORTED_FAILURES && logicalKey.compareTo(failed.last()) > 0) {
+                    return;
+                }
+            }
+            OutputUnit output = itemValidator.validate(entryForValidation(logicalKey, entry.getValue()));
+            if (!output.getValid()) {
+                logger.debug("failed: {} validateEntries: {}", output, logicalKey);
+                synchronized (failed) {
+                    failed.add(logicalKey);
+                    if (failed.size() > MAX_REPORTED_FAILURES) {
+                        failed.pollLast();
+                    }
+                }
+            }
+        });
+
+        if (!failed.isEmpty()) {
+            logger.error("failed: validateEntries: {} for validator: {}", failed, itemValidator);
+            throw new WorkflowException(
+                "Package entries failed validation: " + String.join(", ", failed),
+                List.copyOf(failed)
+            );
+        }
+    }
+
     /**
      * Validates the metadata of the workflow.
      *
-     * @param mapper The ObjectMapper instance.
      * @param metadata The metadata of the workflow.
      * @throws WorkflowException If the metadata fails validation.
      */
-    private void validateMetadata(ObjectMapper mapper, ObjectNode metadata) throws WorkflowException {
+    private void validateMetadata(ObjectNode metadata) throws WorkflowException {
         if (metadataValidator == null) {
             return;
         }
@@ -177,15 +254,10 @@ public class WorkflowValidator {
         JsonNode userMeta = metadata.get("user_meta");
 
         logger.debug("validateMetadata: userMeta={}", userMeta);
-        try {
-            OutputUnit output = metadataValidator.validate(mapper.treeToValue(userMeta, Object.class));
-            if (!output.getValid()) {
-                logger.error("failed: {} validateMetadata: {} for validator: {}", output, userMeta, metadataValidator);
-                throw new WorkflowException("Metadata failed validation");
-            }
-        } catch (JsonProcessingException e) {
-            // Should never happen.
-            throw new RuntimeException(e);
+        OutputUnit output = metadataValidator.validate(JsonNodeAdapter.adapt(userMeta));
+        if (!output.getValid()) {
+            logger.error("failed: {} validateMetadata: {} for validator: {}", output, userMeta, metadataValidator);
+            throw new WorkflowException("Metadata failed validation");
         }
     }
 
@@ -0,0 +1,168 @@
+package com.quiltdata.quiltcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.quiltdata.quiltcore.metrics.InMemoryMetricsRegistry;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+import com.quiltdata.quiltcore.transfer.AdaptiveConcurrencyLimiter;
+import com.quiltdata.quiltcore.transfer.PrefixLimiters;
+import com.quiltdata.quiltcore.transfer.TransferListenerAdapter;
+import com.quiltdata.quiltcore.transfer.TransferStats;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+
+public class AdaptiveConcurrencyLimiterTest {
+    private InMemoryMetricsRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new InMemoryMetricsRegistry();
+        Metrics.setRegistry(registry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Metrics.setRegistry(null);
+        PrefixLimiters.setLimiterFactory(null);
+    }
+
+    private static S3Exception slowDown() {
+        return (S3Exception) S3Exception.builder()
+            .statusCode(503)
+            .awsErrorDetails(AwsErrorDetails.builder().errorCode("SlowDown").build())
+            .build();
+    }
+
+    private static AdaptiveConcurrencyLimiter newLimiter() {
+        return AdaptiveConcurrencyLimiter.builder()
+            .setInitialLimit(16)
+            .setMaxRetries(3)
+            .setBaseDelay(Duration.ofMillis(1))
+            .setDecreaseInterval(Duration.ZERO)
+            .build();
+    }
+
+    @Test
+    public void testExecuteRetriesThrottledRequests() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = limiter.execute(() -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw slowDown();
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, registry.getCount(MetricNames.S3_THROTTLED));
+        assertEquals(2, registry.getCount(MetricNames.S3_THROTTLE_RETRIES));
+        assertEquals(0, limiter.getInFlight());
+        // Halved twice, then raised by one success.
+        assertTrue(limiter.getLimit() < 16);
+    }
+
+    @Test
+    public void testExecuteGivesUp() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(S3Exception.class, () -> limiter.execute(() -> {
+            attempts.incrementAndGet();
+            throw slowDown();
+        }));
+        assertEquals(4, attempts.get());
+
+        // Other errors are not retried.
+        attempts.set(0);
+        assertThrows(IOException.class, () -> limiter.execute(() -> {
+            attempts.incrementAndGet();
+            throw new IOException("broken");
+        }));
+        assertEquals(1, attempts.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testExecuteAsyncRetriesThrottledRequests() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> future = limiter.executeAsync(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                return CompletableFuture.failedFuture(slowDown());
+            }
+            return CompletableFuture.completedFuture("ok");
+        });
+
+        assertEquals("ok", future.join());
+        assertEquals(2, attempts.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testExecuteAsyncReportsRetriesAndFailure() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+        TransferStats stats = new TransferStats();
+        stats.operationStarted(1, 10);
+
+        CompletableFuture<String> future = limiter.executeAsync(
+            () -> CompletableFuture.failedFuture(slowDown()),
+            TransferListenerAdapter.attemptListener("bucket", stats)
+        );
+
+        assertThrows(CompletionException.class, future::join);
+        // Three retries, then the last attempt fails the object.
+        assertEquals(3, stats.getRetries());
+        assertEquals(1, stats.getObjectsFailed());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testLimitAdapts() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter();
+
+        // Slow start: one more slot per success.
+        limiter.onSuccess();
+        assertEquals(17, limiter.getLimit());
+
+        limiter.onThrottle();
+        assertEquals(8, limiter.getLimit());
+
+        // Additive increase: one more slot per limit's worth of successes.
+        for (int i = 0; i < 8; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    public void testPrefixLimiters() throws Exception {
+        assertEquals("bucket/user/pkg/", PrefixLimiters.prefixOf("bucket", "user/pkg/a/b.txt"));
+        assertEquals("bucket/user/", PrefixLimiters.prefixOf("bucket", "user/file"));
+        assertEquals("bucket/", PrefixLimiters.prefixOf("bucket", "file"));
+
+        AdaptiveConcurrencyLimiter limiter = PrefixLimiters.forKey("bucket", "user/pkg/a.txt");
+        assertSame(limiter, PrefixLimiters.forKey("bucket", "user/pkg/b.txt"));
+        assertNotSame(limiter, PrefixLimiters.forKey("bucket", "user/other/b.txt"));
+
+        assertEquals((long) limiter.getLimit(), registry.getGauge(MetricNames.s3ConcurrencyLimit("bucket/user/pkg/")));
+        limiter.acquire();
+        assertEquals(1L, registry.getGauge(MetricNames.s3InFlight("bucket/user/pkg/")));
+        limiter.release();
+    }
+}
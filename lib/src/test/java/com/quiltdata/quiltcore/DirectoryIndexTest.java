@@ -0,0 +1,76 @@
+package com.quiltdata.quiltcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.quiltdata.quiltcore.key.PhysicalKey;
+
+
+public class DirectoryIndexTest {
+    private static Manifest manifest(String... logicalKeys) throws Exception {
+        PhysicalKey physicalKey = PhysicalKey.fromUri(new URI("s3://bucket/object?versionId=v1"));
+        Manifest.Builder builder = Manifest.builder();
+        for (int i = 0; i < logicalKeys.length; i++) {
+            builder.addEntry(logicalKeys[i], new Entry(physicalKey, i + 1, null, null));
+        }
+        return builder.build();
+    }
+
+    private static List<String> paths(List<DirectoryIndex.Directory> directories) {
+        return directories.stream().map(DirectoryIndex.Directory::getPath).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testDirectories() throws Exception {
+        // Sizes are 1 to 7, in this order.
+        Manifest m = manifest("a.txt", "a/b.txt", "a/b/c.csv", "a/b/d.csv", "a/c.txt", "b/x/y/z.csv", "top.csv");
+        DirectoryIndex index = m.getDirectoryIndex();
+        assertSame(index, m.getDirectoryIndex());
+
+        DirectoryIndex.Directory root = index.getRoot();
+        assertEquals("", root.getPath());
+        assertEquals(28, root.getTotalSize());
+        assertEquals(7, root.getFileCount());
+        assertEquals(List.of("a/", "b/"), paths(root.getDirectories()));
+        assertEquals(List.of("a.txt", "top.csv"), new ArrayList<>(root.getFiles().keySet()));
+
+        DirectoryIndex.Directory a = index.getDirectory("a");
+        assertSame(a, index.getDirectory("a/"));
+        assertEquals("a", a.getName());
+        assertEquals(2 + 3 + 4 + 5, a.getTotalSize());
+        assertEquals(4, a.getFileCount());
+        assertEquals(List.of("a/b/"), paths(a.getDirectories()));
+        assertEquals(List.of("a/b.txt", "a/c.txt"), new ArrayList<>(a.getFiles().keySet()));
+        assertEquals(2, a.getFiles().get("a/b.txt").getSize());
+
+        DirectoryIndex.Directory y = index.getDirectory("b/x/y/");
+        assertEquals("y", y.getName());
+        assertEquals(6, y.getTotalSize());
+        assertEquals(6, index.getDirectory("b").getTotalSize());
+        assertNull(index.getDirectory("c/"));
+        assertNull(index.getDirectory("a.txt"));
+    }
+
+    @Test
+    public void testGlob() throws Exception {
+        Manifest m = manifest("a.txt", "a/b.txt", "a/b/c.csv", "a/b/d.csv", "a/c.txt", "b/x/y/z.csv", "top.csv");
+        DirectoryIndex index = m.getDirectoryIndex();
+
+        assertEquals(List.of("a/b/c.csv"), new ArrayList<>(index.glob("a/b/c.csv").keySet()));
+        assertEquals(List.of("a.txt", "top.csv"), new ArrayList<>(index.glob("*").keySet()));
+        assertEquals(List.of("a/b.txt", "a/c.txt"), new ArrayList<>(index.glob("a/*.txt").keySet()));
+        assertEquals(List.of("a/b/c.csv", "a/b/d.csv", "b/x/y/z.csv", "top.csv"), new ArrayList<>(index.glob("**/*.csv").keySet()));
+        assertEquals(List.of("a/b/c.csv", "a/b/d.csv"), new ArrayList<>(index.glob("a/**/*.csv").keySet()));
+        assertEquals(List.of("b/x/y/z.csv"), new ArrayList<>(index.glob("b/**").keySet()));
+        assertEquals(List.of("a/b/c.csv", "b/x/y/z.csv"), new ArrayList<>(index.glob("*/**/{c,z}.csv").keySet()));
+        assertEquals(List.of("a/b/c.csv"), new ArrayList<>(index.glob("?/?/[a-c].csv").keySet()));
+        assertTrue(index.glob("missing/**").isEmpty());
+        assertEquals(4, index.glob("a/**").get("a/b/d.csv").getSize());
+    }
+}
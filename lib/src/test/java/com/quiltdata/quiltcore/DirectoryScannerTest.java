@@ -0,0 +1,108 @@
+package com.quiltdata.quiltcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+
+public class DirectoryScannerTest {
+    private static void write(Path root, String logicalKey, String contents) throws Exception {
+        Path file = root.resolve(logicalKey);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, contents);
+    }
+
+    private static List<String> keys(DirectoryScanner scanner, Path root) throws Exception {
+        return scanner.scan(root).stream()
+            .map(DirectoryScanner.ScannedFile::getLogicalKey)
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testScan(@TempDir Path root) throws Exception {
+        write(root, "a.txt", "a");
+        write(root, "a/b.csv", "bb");
+        write(root, "a/c/d.txt", "ddd");
+        write(root, "e/f.csv", "ffff");
+        Files.createDirectories(root.resolve("empty"));
+
+        List<DirectoryScanner.ScannedFile> files = DirectoryScanner.builder().setParallelism(2).build().scan(root);
+        assertEquals(
+            List.of("a.txt", "a/b.csv", "a/c/d.txt", "e/f.csv"),
+            files.stream().map(DirectoryScanner.ScannedFile::getLogicalKey).collect(Collectors.toList())
+        );
+        assertEquals(3, files.get(2).getSize());
+        assertEquals(root.resolve("a/c/d.txt"), files.get(2).getPath());
+        assertEquals(Files.getLastModifiedTime(root.resolve("a/c/d.txt")).toInstant(), files.get(2).getLastModified());
+
+        assertEquals(List.of("a.txt", "a/c/d.txt"), keys(DirectoryScanner.builder().setFilter(".*\\.txt").build(), root));
+        assertEquals(List.of("a/b.csv", "e/f.csv"), keys(DirectoryScanner.builder().setGlob("**/*.csv").build(), root));
+        assertEquals(List.of("a/b.csv"), keys(DirectoryScanner.builder().setGlob("a/*.{csv,json}").build(), root));
+        assertEquals(List.of("a/c/d.txt"), keys(DirectoryScanner.builder().setGlob("a/**").setFilter(".*\\.txt").build(), root));
+
+        assertThrows(IllegalArgumentException.class, () -> DirectoryScanner.builder().setParallelism(0).build());
+        assertThrows(java.io.IOException.class, () -> DirectoryScanner.builder().build().scan(root.resolve("missing")));
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testIgnoreFiles(@TempDir Path root) throws Exception {
+        write(root, ".quiltignore", "# comment\n\n*.log\nbuild/\n/top.txt\n!keep.log\n");
+        write(root, "top.txt", "");
+        write(root, "data/top.txt", "");
+        write(root, "data/debug.log", "");
+        write(root, "data/keep.log", "");
+        write(root, "build/out.bin", "");
+        write(root, "data/build", "a file, not a directory");
+        write(root, "nested/.quiltignore", "tmp/*\n");
+        write(root, "nested/tmp/x", "");
+        write(root, "nested/tmp2/x", "");
+        write(root, "tmp/x", "");
+
+        DirectoryScanner scanner = DirectoryScanner.builder().setIgnoreFileName(".quiltignore").build();
+        assertEquals(
+            List.of(
+                ".quiltignore",
+                "data/build",
+                "data/keep.log",
+                "data/top.txt",
+                "nested/.quiltignore",
+                "nested/tmp2/x",
+                "tmp/x"
+            ),
+            keys(scanner, root)
+        );
+        assertEquals(11, DirectoryScanner.builder().build().scan(root).size());
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testBuildFromDir(@TempDir Path root) throws Exception {
+        SyntheticPackages packages = SyntheticPackages.builder()
+            .setEntryCount(500)
+            .setKeyDepth(2)
+            .setSizeDistribution(SyntheticPackages.SizeDistribution.uniform(0, 100))
+            .build();
+        long totalSize = packages.writeDirectory(root);
+
+        Manifest m = Manifest.BuildFromDir(root, null, ".*\\.csv");
+        assertEquals(100, m.getEntries().size());
+        assertTrue(m.getEntries().containsKey(packages.logicalKey(0)));
+
+        m = Manifest.BuildFromDir(root, null, null);
+        assertEquals(500, m.getEntries().size());
+        assertEquals(totalSize, m.getEntries().values().stream().mapToLong(Entry::getSize).sum());
+        Entry entry = m.getEntries().get(packages.logicalKey(42));
+        assertEquals(Files.size(root.resolve(packages.logicalKey(42))), entry.getSize());
+        assertNull(entry.getHash());
+    }
+}
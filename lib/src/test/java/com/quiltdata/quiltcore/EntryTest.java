@@ -1,7 +1,16 @@
 package com.quiltdata.quiltcore;
 
 import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
 
 public class EntryTest {
 
@@ -39,5 +48,29 @@ public class EntryTest {
             assertEquals("No enum constant com.quiltdata.quiltcore.Entry.HashType.SHA-512", e.getMessage());
         }
     }
-    
+
+    @Test
+    void testWithHashChunked(@TempDir Path dir) throws Exception {
+        Path foo = Path.of("src", "test", "resources", "dir", "foo.txt").toAbsolutePath();
+        Entry entry = new Entry(new LocalPhysicalKey(foo), 3, null, null);
+
+        Entry chunked = entry.withHash(Entry.HashType.SHA2_256_Chunked);
+        assertEquals(Entry.HashType.SHA2_256_Chunked, chunked.getHash().type);
+        assertEquals("WnfR6WEtNQs3NPYoIlm3/wo/h9Ys/vXzXpGlYEwEkKM=", chunked.getHash().value);
+        assertSame(chunked, chunked.withHash(Entry.HashType.SHA2_256_Chunked));
+        assertSame(chunked, chunked.withHash());
+        assertEquals(Entry.HashType.SHA256, chunked.withHash(Entry.HashType.SHA256).getHash().type);
+
+        // One byte past the first part.
+        byte[] data = new byte[(int) ChunkedChecksum.MIN_CHUNK_SIZE + 1];
+        Arrays.fill(data, (byte) 'x');
+        Path large = dir.resolve("large.bin");
+        Files.write(large, data);
+        byte[][] parts = {
+            MessageDigest.getInstance("SHA-256").digest(Arrays.copyOf(data, data.length - 1)),
+            MessageDigest.getInstance("SHA-256").digest(new byte[] {'x'}),
+        };
+        Entry largeEntry = new Entry(new LocalPhysicalKey(large), data.length, null, null);
+        assertEquals(ChunkedChecksum.combine(parts).value, largeEntry.withHash(Entry.HashType.SHA2_256_Chunked).getHash().value);
+    }
 }
@@ -0,0 +1,203 @@
+package com.quiltdata.quiltcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.quiltdata.quiltcore.key.PhysicalKey;
+import com.quiltdata.quiltcore.key.S3PhysicalKey;
+import com.quiltdata.quiltcore.storage.InMemoryObjectStore;
+import com.quiltdata.quiltcore.storage.ObjectStore;
+import com.quiltdata.quiltcore.storage.ObjectStores;
+import com.quiltdata.quiltcore.transfer.AdaptiveConcurrencyLimiter;
+import com.quiltdata.quiltcore.transfer.PrefixLimiters;
+import com.quiltdata.quiltcore.transfer.TransferStats;
+
+
+public class InMemoryObjectStoreTest {
+    private static final String BUCKET = "quilt-test-in-memory";
+
+    @AfterEach
+    public void tearDown() {
+        ObjectStores.register(BUCKET, null);
+        PrefixLimiters.setLimiterFactory(null);
+    }
+
+    @Test
+    public void testObjects() throws Exception {
+        InMemoryObjectStore store = InMemoryObjectStore.builder().build();
+        store.createBucket(BUCKET);
+
+        String v1 = store.putBytes(BUCKET, "a/b/one.txt", "one".getBytes(StandardCharsets.UTF_8));
+        String v2 = store.putBytes(BUCKET, "a/b/one.txt", "uno".getBytes(StandardCharsets.UTF_8));
+        store.putBytes(BUCKET, "a/c/two.txt", "two".getBytes(StandardCharsets.UTF_8));
+        store.putBytes(BUCKET, "a/three.txt", "three".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(v1, v2);
+
+        try (InputStream in = store.get(BUCKET, "a/b/one.txt", v1).body) {
+            assertEquals("one", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        ObjectStore.GetResponse latest = store.get(BUCKET, "a/b/one.txt", null);
+        assertEquals(v2, latest.versionId);
+        assertNull(store.getIfNoneMatch(BUCKET, "a/b/one.txt", null, latest.eTag));
+        try (InputStream in = store.getRange(BUCKET, "a/three.txt", null, null, 1, 4)) {
+            assertEquals("hre", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(5, store.head(BUCKET, "a/three.txt", null).size);
+        assertThrows(NoSuchFileException.class, () -> store.get(BUCKET, "a/missing.txt", null));
+
+        assertEquals(
+            List.of("a/b/one.txt", "a/c/two.txt", "a/three.txt"),
+            store.list(BUCKET, "a/", true).collect(Collectors.toList())
+        );
+        assertEquals(List.of("a/three.txt"), store.list(BUCKET, "a/", false).collect(Collectors.toList()));
+        assertEquals(List.of("a/b/", "a/c/"), store.listCommonPrefixes(BUCKET, "a/").collect(Collectors.toList()));
+
+        store.copy(BUCKET, "a/b/one.txt", v1, BUCKET, "copy.txt");
+        try (InputStream in = store.get(BUCKET, "copy.txt", null).body) {
+            assertEquals("one", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testPhysicalKeys() throws Exception {
+        InMemoryObjectStore store = InMemoryObjectStore.builder().build();
+        store.createBucket(BUCKET);
+        ObjectStores.register(BUCKET, store);
+
+        PhysicalKey root = PhysicalKey.fromUri(new URI("s3://" + BUCKET + "/"));
+        root.resolve("dir/file.txt").putBytes("hello".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("hello", new String(root.resolve("dir/file.txt").getBytes(), StandardCharsets.UTF_8));
+        PhysicalKey.OpenResponse response = root.resolve("dir/file.txt").open();
+        response.inputStream.close();
+        assertNotNull(((S3PhysicalKey) response.effectivePhysicalKey).getVersionId());
+        assertEquals(List.of("dir"), root.listChildDirectories().collect(Collectors.toList()));
+        assertEquals(List.of("dir/file.txt"), root.listRecursively().collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testPushAndInstall(@TempDir Path dest) throws Exception {
+        // Every fifth request is throttled; the limiters retry them.
+        InMemoryObjectStore store = InMemoryObjectStore.builder()
+            .setLatency(Duration.ofMillis(1))
+            .setThrottleRate(0.2)
+            .setSeed(42)
+            .build();
+        store.createBucket(BUCKET);
+        ObjectStores.register(BUCKET, store);
+        PrefixLimiters.setLimiterFactory(prefix -> AdaptiveConcurrencyLimiter.builder()
+            .setName(prefix)
+            .setBaseDelay(Duration.ofMillis(1))
+            .setMaxRetries(20)
+            .build());
+
+        Namespace n = Registry.CreateNamespaceAtUri("test/pkg", "s3://" + BUCKET);
+        Path dir = Path.of("src", "test", "resources", "dir").toAbsolutePath();
+        Manifest m = Manifest.BuildFromDir(dir, null, ".*\\.txt");
+        Manifest pushed = m.push(n, "message", null);
+
+        String topHash = pushed.calculateTopHash();
+        assertEquals(topHash, n.getHash("latest"));
+        assertEquals(topHash, n.resolveHash(topHash.substring(0, 8)));
+
+        Manifest installed = n.getManifest(topHash);
+        installed.install(dest);
+        assertEquals("123", Files.readString(dest.resolve("foo.txt")));
+        assertTrue(store.getRequestCount() > 0);
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testPushDedupWithChunkedHashes() throws Exception {
+        InMemoryObjectStore store = InMemoryObjectStore.builder().build();
+        store.createBucket(BUCKET);
+        ObjectStores.register(BUCKET, store);
+
+        Namespace n = Registry.CreateNamespaceAtUri("test/pkg", "s3://" + BUCKET);
+        PushOptions options = PushOptions.builder().setDedup(true).build();
+        Path dir = Path.of("src", "test", "resources", "dir").toAbsolutePath();
+        Manifest local = Manifest.BuildFromDir(dir, null, ".*\\.txt");
+        Manifest pushed = local.push(n, "message", null, options);
+
+        // A revision like quilt3 pushes it, with chunked checksums.
+        Manifest.Builder builder = pushed.toBuilder();
+        for (var e : local.getEntries().entrySet()) {
+            Entry hashed = e.getValue().withHash(Entry.HashType.SHA2_256_Chunked);
+            Entry remote = pushed.getEntries().get(e.getKey());
+            builder.addEntry(e.getKey(), new Entry(remote.getPhysicalKey(), remote.getSize(), hashed.getHash(), remote.getMetadata()));
+        }
+        builder.build().push(n, "quilt3", null, options);
+
+        TransferStats stats = new TransferStats();
+        Manifest deduped = local.push(n, "again", null, PushOptions.builder().setDedup(true).setProgressListener(stats).build());
+        assertEquals(0, stats.getTotalObjects());
+        assertEquals(Entry.HashType.SHA2_256_Chunked, deduped.getEntries().get("foo.txt").getHash().type);
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testRepushInPlaceUnversioned() throws Exception {
+        InMemoryObjectStore store = InMemoryObjectStore.builder().setVersioned(false).build();
+        store.createBucket(BUCKET);
+        ObjectStores.register(BUCKET, store);
+
+        Namespace n = Registry.CreateNamespaceAtUri("test/pkg", "s3://" + BUCKET);
+        Path dir = Path.of("src", "test", "resources", "dir").toAbsolutePath();
+        Manifest pushed = Manifest.BuildFromDir(dir, null, ".*\\.txt").push(n, "message", null);
+        S3PhysicalKey key = (S3PhysicalKey) pushed.getEntries().get("foo.txt").getPhysicalKey();
+        assertNull(key.getVersionId());
+
+        // The objects are already at their destination, so nothing is copied, but progress still adds up.
+        TransferStats stats = new TransferStats();
+        Manifest repushed = pushed.push(n, "again", null, PushOptions.builder().setProgressListener(stats).build());
+        assertEquals(key.toUri(), repushed.getEntries().get("foo.txt").getPhysicalKey().toUri());
+        assertEquals(stats.getTotalObjects(), stats.getObjectsCompleted());
+        assertEquals(stats.getTotalBytes(), stats.getBytesTransferred());
+        assertEquals("123", new String(repushed.getEntries().get("foo.txt").getBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testRangedInstallHashMismatch(@TempDir Path dest) throws Exception {
+        InMemoryObjectStore store = InMemoryObjectStore.builder().build();
+        store.createBucket(BUCKET);
+        ObjectStores.register(BUCKET, store);
+
+        Namespace n = Registry.CreateNamespaceAtUri("test/pkg", "s3://" + BUCKET);
+        Path dir = Path.of("src", "test", "resources", "dir").toAbsolutePath();
+        Manifest pushed = Manifest.BuildFromDir(dir, null, ".*\\.txt").push(n, "message", null);
+        Manifest.Builder builder = Manifest.builder();
+        builder.setMetadata(pushed.getMetadata());
+        Entry entry = pushed.getEntries().get("foo.txt");
+        builder.addEntry("foo.txt", new Entry(entry.getPhysicalKey(), entry.getSize(), new Entry.Hash(Entry.HashType.SHA256, "0".repeat(64)), null));
+
+        // The object is downloaded, but isn't reported as completed because its hash doesn't match.
+        TransferStats stats = new TransferStats();
+        InstallOptions options = InstallOptions.builder()
+            .setLargeObjectThreshold(0)
+            .setVerifyHashes(true)
+            .setProgressListener(stats)
+            .build();
+        assertThrows(IOException.class, () -> builder.build().install(dest, options));
+        assertFalse(Files.exists(dest.resolve("foo.txt")));
+        assertEquals(0, stats.getObjectsCompleted());
+        assertEquals(1, stats.getObjectsFailed());
+    }
+}
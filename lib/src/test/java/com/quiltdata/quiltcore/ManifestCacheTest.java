@@ -0,0 +1,70 @@
+package com.quiltdata.quiltcore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+
+
+public class ManifestCacheTest {
+    String TOP_HASH = "848238cb1cd8d8c06c3657d50e71c515cb913f0659ae55ffbfcec0f0e3e37e2c";
+
+    private Namespace namespace(ManifestCache cache) {
+        Path dir = Path.of("src", "test", "resources", "packages").toAbsolutePath();
+        Registry registry = Registry.builder()
+            .setRoot(new LocalPhysicalKey(dir))
+            .setManifestCache(cache)
+            .build();
+        return registry.getNamespace("test/test");
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testSharedAcrossRegistries() throws Exception {
+        ManifestCache cache = ManifestCache.builder().build();
+
+        Manifest m1 = namespace(cache).getManifest(TOP_HASH);
+        Manifest m2 = namespace(cache).getManifest(TOP_HASH.substring(0, 8));
+
+        assertSame(m1, m2);
+        assertEquals(1, cache.size());
+        assertTrue(cache.getMemoryBytes() > 0);
+        assertEquals(TOP_HASH, m1.calculateTopHash());
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testMemoryLimit() throws Exception {
+        ManifestCache cache = ManifestCache.builder().setMaxMemoryBytes(0).build();
+
+        Manifest m1 = namespace(cache).getManifest(TOP_HASH);
+        Manifest m2 = namespace(cache).getManifest(TOP_HASH);
+
+        assertNotSame(m1, m2);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testDiskCache(@TempDir Path cacheDir) throws Exception {
+        ManifestCache cache = ManifestCache.builder().setDiskDirectory(cacheDir).build();
+        Manifest m1 = namespace(cache).getManifest(TOP_HASH);
+
+        try (var files = Files.list(cacheDir)) {
+            assertEquals(1, files.count());
+        }
+
+        cache.clear();
+        Manifest m2 = namespace(cache).getManifest(TOP_HASH);
+
+        assertNotSame(m1, m2);
+        assertEquals(m1.calculateTopHash(), m2.calculateTopHash());
+    }
+}
@@ -0,0 +1,171 @@
+package com.quiltdata.quiltcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+import com.quiltdata.quiltcore.key.PhysicalKey;
+
+
+public class ManifestDiffTest {
+    private static List<String> keys(List<ManifestDiff.Change> changes) {
+        return changes.stream().map(ManifestDiff.Change::getLogicalKey).collect(Collectors.toList());
+    }
+
+    private static Manifest edit(Manifest older, SyntheticPackages packages) {
+        Manifest.Builder builder = older.toBuilder();
+        builder.removeEntry(packages.logicalKey(3));
+
+        String modified = packages.logicalKey(5);
+        Entry entry = older.getEntries().get(modified);
+        builder.addEntry(modified, new Entry(entry.getPhysicalKey(), entry.getSize() + 1, entry.getHash(), entry.getMetadata()));
+
+        // The same digest with different hex case is not a change.
+        String upperCase = packages.logicalKey(6);
+        entry = older.getEntries().get(upperCase);
+        Entry.Hash hash = new Entry.Hash(entry.getHash().type, entry.getHash().value.toUpperCase());
+        builder.addEntry(upperCase, new Entry(entry.getPhysicalKey(), entry.getSize(), hash, entry.getMetadata()));
+
+        String metadataChanged = packages.logicalKey(7);
+        entry = older.getEntries().get(metadataChanged);
+        builder.addEntry(metadataChanged, new Entry(entry.getPhysicalKey(), entry.getSize(), entry.getHash(), entry.getMetadata().put("new", 1)));
+
+        builder.addEntry("zzz/added.txt", entry);
+        return builder.build();
+    }
+
+    @Test
+    public void testDiff() {
+        SyntheticPackages packages = SyntheticPackages.builder().setEntryCount(100).build();
+        Manifest older = packages.buildManifest();
+        Manifest newer = edit(older, packages);
+
+        ManifestDiff diff = older.diff(newer);
+        assertEquals(
+            List.of(packages.logicalKey(3), packages.logicalKey(5), packages.logicalKey(7), "zzz/added.txt"),
+            keys(diff.getChanges())
+        );
+        assertEquals(List.of(packages.logicalKey(3)), keys(diff.getChanges(ManifestDiff.ChangeType.REMOVED)));
+        assertEquals(List.of(packages.logicalKey(5)), keys(diff.getChanges(ManifestDiff.ChangeType.MODIFIED)));
+        assertEquals(List.of(packages.logicalKey(7)), keys(diff.getChanges(ManifestDiff.ChangeType.METADATA_CHANGED)));
+        assertEquals(List.of("zzz/added.txt"), keys(diff.getChanges(ManifestDiff.ChangeType.ADDED)));
+        assertNull(diff.getChanges(ManifestDiff.ChangeType.ADDED).get(0).getOldEntry());
+        assertNull(diff.getChanges(ManifestDiff.ChangeType.REMOVED).get(0).getNewEntry());
+        assertFalse(diff.isMetadataChanged());
+
+        // Reversed, additions become removals.
+        ManifestDiff reversed = newer.diff(older);
+        assertEquals(List.of("zzz/added.txt"), keys(reversed.getChanges(ManifestDiff.ChangeType.REMOVED)));
+        assertEquals(List.of(packages.logicalKey(3)), keys(reversed.getChanges(ManifestDiff.ChangeType.ADDED)));
+
+        assertTrue(older.diff(older).isEmpty());
+        Manifest.Builder builder = older.toBuilder();
+        builder.setMetadata(JsonNodeFactory.instance.objectNode().put("version", Manifest.VERSION).put("message", "other"));
+        ManifestDiff metadataOnly = older.diff(builder.build());
+        assertTrue(metadataOnly.getChanges().isEmpty());
+        assertTrue(metadataOnly.isMetadataChanged());
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testStreamedDiff(@TempDir Path dir) throws Exception {
+        SyntheticPackages packages = SyntheticPackages.builder().setEntryCount(1000).build();
+        Path olderFile = dir.resolve("older.jsonl");
+        Path newerFile = dir.resolve("newer.jsonl");
+        Manifest older = packages.writeManifest(olderFile);
+        try (OutputStream out = Files.newOutputStream(newerFile)) {
+            edit(older, packages).serializeToOutputStream(out);
+        }
+
+        ManifestDiff diff = ManifestDiff.compare(new LocalPhysicalKey(olderFile), new LocalPhysicalKey(newerFile));
+        assertEquals(keys(older.diff(edit(older, packages)).getChanges()), keys(diff.getChanges()));
+
+        List<ManifestDiff.Change> streamed = new ArrayList<>();
+        try (
+            ManifestReader olderReader = ManifestReader.open(new LocalPhysicalKey(olderFile));
+            ManifestReader newerReader = ManifestReader.open(new LocalPhysicalKey(newerFile))
+        ) {
+            ManifestDiff.stream(olderReader, newerReader, streamed::add);
+        }
+        assertEquals(keys(diff.getChanges()), keys(streamed));
+
+        Path unsorted = dir.resolve("unsorted.jsonl");
+        String hash = "{\"type\":\"SHA256\",\"value\":\"" + "0".repeat(64) + "\"}";
+        Files.writeString(unsorted, String.join("\n",
+            "{\"version\":\"v0\"}",
+            "{\"logical_key\":\"b\",\"physical_keys\":[\"s3://bucket/b\"],\"size\":1,\"hash\":" + hash + ",\"meta\":{}}",
+            "{\"logical_key\":\"a\",\"physical_keys\":[\"s3://bucket/a\"],\"size\":1,\"hash\":" + hash + ",\"meta\":{}}"
+        ));
+        assertThrows(IOException.class, () -> ManifestDiff.compare(new LocalPhysicalKey(olderFile), new LocalPhysicalKey(unsorted)));
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testQuilt3Order(@TempDir Path dir) throws Exception {
+        // quilt3 sorts one path segment at a time, so data/x.csv comes before data.csv.
+        PhysicalKey olderFile = new LocalPhysicalKey(Path.of("src", "test", "resources", "manifests", "quilt3_order_older.jsonl").toAbsolutePath());
+        PhysicalKey newerFile = new LocalPhysicalKey(Path.of("src", "test", "resources", "manifests", "quilt3_order_newer.jsonl").toAbsolutePath());
+
+        ManifestDiff diff = ManifestDiff.compare(olderFile, newerFile);
+        assertEquals(List.of("a-b/c.txt", "data/x.csv", "data/y.csv", "data.csv"), keys(diff.getChanges()));
+        assertEquals(List.of("a-b/c.txt"), keys(diff.getChanges(ManifestDiff.ChangeType.MODIFIED)));
+        assertEquals(List.of("data/x.csv"), keys(diff.getChanges(ManifestDiff.ChangeType.REMOVED)));
+        assertEquals(List.of("data/y.csv"), keys(diff.getChanges(ManifestDiff.ChangeType.ADDED)));
+        assertEquals(List.of("data.csv"), keys(diff.getChanges(ManifestDiff.ChangeType.METADATA_CHANGED)));
+        assertTrue(diff.isMetadataChanged());
+
+        // Loaded manifests are compared in logical key order, with the same changes.
+        Manifest older = Manifest.createFromFile(olderFile);
+        Manifest newer = Manifest.createFromFile(newerFile);
+        assertEquals(List.of("a-b/c.txt", "data.csv", "data/x.csv", "data/y.csv"), keys(older.diff(newer).getChanges()));
+
+        // Manifests are written back in logical key order, like their top hash.
+        Path written = dir.resolve("written.jsonl");
+        try (OutputStream out = Files.newOutputStream(written)) {
+            newer.serializeToOutputStream(out);
+        }
+        List<String> writtenKeys = new ArrayList<>();
+        try (ManifestReader reader = ManifestReader.open(new LocalPhysicalKey(written))) {
+            ManifestReader.Row row;
+            while ((row = reader.next()) != null) {
+                writtenKeys.add(row.logicalKey);
+            }
+        }
+        assertEquals(List.of("a-b/c.txt", "a/b.txt", "data.csv", "data/y.csv"), writtenKeys);
+        assertEquals(newer.calculateTopHash(), Manifest.createFromFile(new LocalPhysicalKey(written)).calculateTopHash());
+
+        // Files in both orders are compared in memory from the first key whose order differs.
+        ManifestDiff mixed = ManifestDiff.compare(olderFile, new LocalPhysicalKey(written));
+        assertEquals(List.of("a-b/c.txt", "data.csv", "data/x.csv", "data/y.csv"), keys(mixed.getChanges()));
+        assertEquals(List.of("data/y.csv"), keys(mixed.getChanges(ManifestDiff.ChangeType.ADDED)));
+        assertEquals(List.of("data/x.csv"), keys(mixed.getChanges(ManifestDiff.ChangeType.REMOVED)));
+
+        // Manifests written by this library are merged in logical key order.
+        Path writtenOlder = dir.resolve("written_older.jsonl");
+        try (OutputStream out = Files.newOutputStream(writtenOlder)) {
+            older.serializeToOutputStream(out);
+        }
+        assertEquals(
+            keys(older.diff(newer).getChanges()),
+            keys(ManifestDiff.compare(new LocalPhysicalKey(writtenOlder), new LocalPhysicalKey(written)).getChanges())
+        );
+
+        // Base64 chunked checksums are case-sensitive.
+        Entry entry = older.getEntries().get("data.csv");
+        Entry.Hash otherCase = new Entry.Hash(entry.getHash().type, entry.getHash().value.toLowerCase());
+        assertFalse(ManifestDiff.sameDigest(entry.getHash(), otherCase));
+    }
+}
@@ -48,4 +48,32 @@ public class ManifestTest {
         }
     }
 
+    @Test
+    void testToBuilder() throws Exception {
+        Manifest original = SyntheticPackages.builder().setEntryCount(1000).build().buildManifest();
+        String topHash = original.calculateTopHash();
+        String removed = original.getEntries().firstKey();
+        String updated = original.getEntries().lastKey();
+        Entry entry = original.getEntries().get(updated);
+
+        Manifest.Builder builder = original.toBuilder();
+        builder.removeEntry(removed);
+        builder.addEntry(updated, new Entry(entry.getPhysicalKey(), entry.getSize() + 1, entry.getHash(), entry.getMetadata()));
+        builder.addEntry("added.txt", entry);
+        Manifest derived = builder.build();
+
+        assertEquals(1000, derived.getEntries().size());
+        assertFalse(derived.getEntries().containsKey(removed));
+        assertEquals(entry.getSize() + 1, derived.getEntries().get(updated).getSize());
+        assertSame(entry, derived.getEntries().get("added.txt"));
+        assertEquals(original.getMetadata(), derived.getMetadata());
+
+        // The original is unchanged, even by edits made after the derived manifest was built.
+        builder.removeEntry(updated);
+        assertEquals(1000, original.getEntries().size());
+        assertSame(entry, original.getEntries().get(updated));
+        assertEquals(topHash, original.calculateTopHash());
+        assertTrue(derived.getEntries().containsKey(updated));
+        assertThrows(UnsupportedOperationException.class, () -> derived.getEntries().put("x", entry));
+    }
 }
@@ -0,0 +1,55 @@
+package com.quiltdata.quiltcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+import com.quiltdata.quiltcore.metrics.InMemoryMetricsRegistry;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+
+
+public class MetricsTest {
+    private InMemoryMetricsRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new InMemoryMetricsRegistry();
+        Metrics.setRegistry(registry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Metrics.setRegistry(null);
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testManifestMetrics() throws Exception {
+        Path dir = Path.of("src", "test", "resources", "packages");
+        Namespace n = Registry.CreateNamespaceAtUri("test/test", dir.toUri().toString());
+        String hash = n.getHash("latest");
+        n.getManifest(hash.substring(0, 8));
+
+        assertEquals(1, registry.timer(MetricNames.RESOLVE_HASH).getCount());
+        assertEquals(1, registry.timer(MetricNames.MANIFEST_PARSE).getCount());
+        assertEquals(1, registry.histogram(MetricNames.MANIFEST_ENTRIES).getMax());
+    }
+
+    @Test
+    public void testHashMetrics() throws Exception {
+        Path foo = Path.of("src", "test", "resources", "dir", "foo.txt").toAbsolutePath();
+        Entry entry = new Entry(new LocalPhysicalKey(foo), 3, null, null).withHash();
+
+        assertEquals("a665a45920422f9d417e4867efdc4fb8a04a1f3fff1fa07e998e86f7f7a27ae3", entry.getHash().value);
+        assertEquals(1, registry.timer(MetricNames.HASH_TIME).getCount());
+        assertEquals(3, registry.getCount(MetricNames.HASH_BYTES));
+    }
+}
@@ -0,0 +1,96 @@
+package com.quiltdata.quiltcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+
+public class PersistentSortedMapTest {
+    private static void assertSameMap(SortedMap<String, Integer> expected, SortedMap<String, Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+        assertEquals(expected, actual);
+        assertEquals(expected.hashCode(), actual.hashCode());
+        for (String key : expected.keySet()) {
+            assertEquals(expected.get(key), actual.get(key));
+        }
+    }
+
+    @Test
+    public void testAgainstTreeMap() {
+        Random random = new Random(42);
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        PersistentSortedMap.Builder<String, Integer> builder = PersistentSortedMap.builder();
+        List<TreeMap<String, Integer>> expectedSnapshots = new ArrayList<>();
+        List<PersistentSortedMap<String, Integer>> snapshots = new ArrayList<>();
+
+        for (int i = 0; i < 20000; i++) {
+            String key = "key" + random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                builder.remove(key);
+            } else {
+                expected.put(key, i);
+                builder.put(key, i);
+            }
+            if (i % 1000 == 0) {
+                // The builder keeps editing after a snapshot; the snapshot must not change.
+                expectedSnapshots.add(new TreeMap<>(expected));
+                snapshots.add(builder.build());
+            }
+        }
+        PersistentSortedMap<String, Integer> map = builder.build();
+        assertSameMap(expected, map);
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertSameMap(expectedSnapshots.get(i), snapshots.get(i));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String from = "key" + random.nextInt(1100);
+            String to = "key" + random.nextInt(1100);
+            if (from.compareTo(to) > 0) {
+                String tmp = from;
+                from = to;
+                to = tmp;
+            }
+            assertSameMap(expected.subMap(from, to), map.subMap(from, to));
+            assertSameMap(expected.headMap(to), map.headMap(to));
+            assertSameMap(expected.tailMap(from), map.tailMap(from));
+            assertSameMap(expected.tailMap(from).headMap(to), map.tailMap(from).headMap(to));
+        }
+        assertEquals(expected.firstKey(), map.firstKey());
+        assertEquals(expected.lastKey(), map.lastKey());
+    }
+
+    @Test
+    public void testPersistence() {
+        PersistentSortedMap<String, Integer> empty = PersistentSortedMap.empty();
+        PersistentSortedMap<String, Integer> one = empty.plus("b", 2);
+        PersistentSortedMap<String, Integer> two = one.plus("a", 1);
+        PersistentSortedMap<String, Integer> updated = two.plus("a", 10);
+
+        assertTrue(empty.isEmpty());
+        assertEquals(List.of("b"), new ArrayList<>(one.keySet()));
+        assertEquals(List.of("a", "b"), new ArrayList<>(two.keySet()));
+        assertEquals(1, two.get("a"));
+        assertEquals(10, updated.get("a"));
+        assertSame(two, two.minus("c"));
+        assertEquals(one, two.minus("a"));
+        assertTrue(one.minus("b").isEmpty());
+
+        assertThrows(UnsupportedOperationException.class, () -> two.put("c", 3));
+        assertThrows(UnsupportedOperationException.class, () -> two.remove("a"));
+        assertThrows(UnsupportedOperationException.class, () -> two.entrySet().iterator().next().setValue(0));
+        assertThrows(NoSuchElementException.class, empty::firstKey);
+        assertThrows(NoSuchElementException.class, () -> two.subMap("aa", "ab").lastKey());
+        assertThrows(IllegalArgumentException.class, () -> two.subMap("b", "a"));
+        assertThrows(IllegalArgumentException.class, () -> two.headMap("b").tailMap("c"));
+    }
+}
@@ -1,8 +1,11 @@
 package com.quiltdata.quiltcore;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import software.amazon.awssdk.services.s3.model.S3Exception;
@@ -12,11 +15,47 @@ import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
 
 import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+import com.quiltdata.quiltcore.key.PhysicalKey;
 import com.quiltdata.quiltcore.key.S3PhysicalKey;
 
 
 
 public class PhysicalKeyTest {
+    // A key of another scheme, which only implements the abstract methods.
+    private static PhysicalKey minimalKey(PhysicalKey delegate) {
+        return new PhysicalKey() {
+            @Override
+            public OpenResponse open() throws IOException {
+                return delegate.open();
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return delegate.getInputStream();
+            }
+
+            @Override
+            public void putBytes(byte[] bytes) throws IOException {
+                delegate.putBytes(bytes);
+            }
+
+            @Override
+            public PhysicalKey resolve(String child) {
+                return minimalKey(delegate.resolve(child));
+            }
+
+            @Override
+            public URI toUri() {
+                return delegate.toUri();
+            }
+
+            @Override
+            public Stream<String> listRecursively() throws IOException {
+                return delegate.listRecursively();
+            }
+        };
+    }
+
     @Test
     public void testFileUris() throws Exception {
         String uri = "file:///foo/a+b%20c";
@@ -48,6 +87,29 @@ public class PhysicalKeyTest {
         assertArrayEquals(new String[] { "a/blah", "bar.txt", "foo.txt" }, files);
     }
 
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testLocalListWithPrefix() throws Exception {
+        Path dir = Path.of("src", "test", "resources", "dir");
+        LocalPhysicalKey pk = new LocalPhysicalKey(dir.toAbsolutePath().toString());
+        assertArrayEquals(new String[] { "foo.txt" }, pk.listWithPrefix("fo").toArray(String[]::new));
+        assertArrayEquals(new String[0], pk.listWithPrefix("a").toArray(String[]::new));
+
+        PhysicalKey minimal = minimalKey(pk);
+        assertArrayEquals(new String[] { "foo.txt" }, minimal.listWithPrefix("fo").toArray(String[]::new));
+        assertArrayEquals(new String[0], minimal.listWithPrefix("a").toArray(String[]::new));
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testLocalListChildDirectories() throws Exception {
+        Path dir = Path.of("src", "test", "resources", "dir");
+        LocalPhysicalKey pk = new LocalPhysicalKey(dir.toAbsolutePath().toString());
+        assertArrayEquals(new String[] { "a" }, pk.listChildDirectories().toArray(String[]::new));
+        assertArrayEquals(new String[] { "a" }, minimalKey(pk).listChildDirectories().toArray(String[]::new));
+        assertArrayEquals(new String[0], minimalKey(pk.resolve("a")).listChildDirectories().toArray(String[]::new));
+    }
+
     @Test
     public void testS3List() throws Exception {
         String[] contents = {
@@ -3,6 +3,8 @@ package com.quiltdata.quiltcore;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+import com.quiltdata.quiltcore.key.S3PhysicalKey;
+import com.quiltdata.quiltcore.transfer.TransferStats;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
@@ -11,7 +13,11 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +36,60 @@ public class RegistryTest {
         Manifest m = n.getManifest(hash);
 
         assertEquals(hash, m.calculateTopHash());
+        assertEquals(hash, n.resolveHash(hash.substring(0, 6)));
+        assertThrows(IOException.class, () -> n.resolveHash("ffffff"));
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testLocalRevisions() throws Exception {
+        Path dir = Path.of("src", "test", "resources", "packages");
+        Namespace n = Registry.CreateNamespaceAtUri("test/test", dir.toUri().toString());
+
+        List<Revision> revisions;
+        try (Stream<Revision> stream = n.getRevisions()) {
+            revisions = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(1, revisions.size());
+        assertEquals(Instant.ofEpochSecond(1692646567), revisions.get(0).getTimestamp());
+        assertEquals(n.getHash("latest"), revisions.get(0).getTopHash());
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testLocalListPackages() throws Exception {
+        Path dir = Path.of("src", "test", "resources", "packages").toAbsolutePath();
+        Registry r = new Registry(new LocalPhysicalKey(dir));
+
+        try (Stream<String> packages = r.listPackages()) {
+            assertEquals(List.of("test/test"), packages.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testS3ListPackages() throws Exception {
+        Namespace n = Registry.CreateNamespaceAtUri("examples/metadata", READ_BUCKET);
+
+        try (Stream<String> packages = n.getRegistry().listPackages(4)) {
+            assertTrue(packages.anyMatch("examples/metadata"::equals));
+        }
+    }
+
+    @Test
+    public void testS3Revisions() throws Exception {
+        Namespace n = Registry.CreateNamespaceAtUri("examples/metadata", READ_BUCKET);
+
+        List<Revision> revisions;
+        try (Stream<Revision> stream = n.getRevisions(4)) {
+            revisions = stream.limit(3).collect(Collectors.toList());
+        }
+
+        assertFalse(revisions.isEmpty());
+        assertEquals(n.getHash("latest"), revisions.get(0).getTopHash());
+        for (int i = 1; i < revisions.size(); i++) {
+            assertTrue(revisions.get(i - 1).getTimestamp().isAfter(revisions.get(i).getTimestamp()));
+        }
     }
 
     @Test
@@ -60,6 +120,23 @@ public class RegistryTest {
         assertTrue(Files.exists(dest.resolve("cluster0v2.csv")));
     }
 
+    @Test
+    public void testS3InstallRanged(@TempDir Path dest) throws Exception {
+        Namespace n = Registry.CreateNamespaceAtUri("examples/metadata", READ_BUCKET);
+        Manifest m = n.getManifest(n.getHash("latest"));
+
+        InstallOptions options = InstallOptions.builder()
+            .setLargeObjectThreshold(0)
+            .setPartSize(1024)
+            .setVerifyHashes(true)
+            .build();
+        m.install(dest, options);
+
+        Path readme = dest.resolve("README.md");
+        assertEquals(m.getEntries().get("README.md").getSize(), Files.size(readme));
+        assertTrue(Files.readString(readme).startsWith("# Working with metadata in Quilt packages"));
+    }
+
     @Test
     public void testResolveHash() throws Exception {
         Namespace n = Registry.CreateNamespaceAtUri("examples/metadata", READ_BUCKET);
@@ -85,6 +162,40 @@ public class RegistryTest {
         assertEquals("71cba8513adfbe7dc4e4b4e03d9e71ba36c3f10745cc4f54949028c2339a35e2", topHash);
     }
 
+    @Test
+    public void testS3PushCopy() throws Exception {
+        Namespace n = Registry.CreateNamespaceAtUri("dima/java_test", WRITE_BUCKET);
+        Path dir = Path.of("src", "test", "resources", "dir").toAbsolutePath();
+        Manifest m = Manifest.BuildFromDir(dir, null, ".*\\.txt").push(n, null, null);
+
+        Namespace n2 = Registry.CreateNamespaceAtUri("dima/java_copy_test", WRITE_BUCKET);
+        Manifest m2 = m.push(n2, null, null);
+
+        assertEquals(m.calculateTopHash(), m2.calculateTopHash());
+        S3PhysicalKey key = (S3PhysicalKey) m2.getEntries().get("foo.txt").getPhysicalKey();
+        assertEquals("dima/java_copy_test/foo.txt", key.getKey());
+        assertEquals("123", new String(m2.getEntries().get("foo.txt").getBytes()));
+    }
+
+    @Test
+    public void testS3PushDedup() throws Exception {
+        Namespace n = Registry.CreateNamespaceAtUri("dima/java_test", WRITE_BUCKET);
+        Path dir = Path.of("src", "test", "resources", "dir").toAbsolutePath();
+        Manifest m = Manifest.BuildFromDir(dir, null, ".*\\.txt");
+        Manifest m1 = m.push(n, null, null);
+
+        TransferStats stats = new TransferStats();
+        PushOptions options = PushOptions.builder().setDedup(true).setProgressListener(stats).build();
+        Manifest m2 = m.push(n, null, null, options);
+
+        assertEquals(0, stats.getTotalObjects());
+        assertEquals(m1.calculateTopHash(), m2.calculateTopHash());
+        assertEquals(
+            m1.getEntries().get("foo.txt").getPhysicalKey().toUri(),
+            m2.getEntries().get("foo.txt").getPhysicalKey().toUri()
+        );
+    }
+
     @Test
     public void testS3PushErrors() throws Exception {
         Path dir = Path.of("src", "test", "resources", "dir").toAbsolutePath();
@@ -0,0 +1,65 @@
+package com.quiltdata.quiltcore;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import software.amazon.awssdk.regions.Region;
+
+
+public class S3ClientStoreTest {
+    @AfterEach
+    public void tearDown() {
+        S3ClientStore.setRegionCacheFile(null);
+        S3ClientStore.setConfig(null);
+    }
+
+    @Test
+    public void testRegionCacheFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("regions.properties");
+        Files.writeString(file, "quilt-test-cached-bucket=eu-west-1\n");
+
+        S3ClientStore.setRegionCacheFile(file);
+
+        assertEquals(Region.EU_WEST_1, S3ClientStore.getBucketRegion("quilt-test-cached-bucket"));
+    }
+
+    @Test
+    public void testSetBucketRegion() {
+        S3ClientStore.setBucketRegion("quilt-test-configured-bucket", Region.US_WEST_2);
+
+        assertEquals(Region.US_WEST_2, S3ClientStore.getBucketRegion("quilt-test-configured-bucket"));
+    }
+
+    @Test
+    public void testConfig() {
+        S3ClientConfig config = S3ClientConfig.builder()
+            .setTargetThroughputInGbps(100.0)
+            .setMaxConcurrency(256)
+            .setMinimumPartSize(64L * 1024 * 1024)
+            .setMaxConnections(256)
+            .setMaxRetries(5)
+            .setEndpointOverride(URI.create("http://localhost:9000"))
+            .setForcePathStyle(true)
+            .build();
+        S3ClientStore.setConfig(config);
+        S3ClientStore.setBucketRegion("quilt-test-configured-bucket", Region.US_WEST_2);
+
+        assertSame(config, S3ClientStore.getConfig());
+        assertNotNull(S3ClientStore.getClient("quilt-test-configured-bucket"));
+        assertNotNull(S3ClientStore.getAsyncClient("quilt-test-configured-bucket"));
+
+        S3ClientStore.setConfig(null);
+        assertSame(S3ClientConfig.DEFAULT, S3ClientStore.getConfig());
+        assertEquals(S3ClientConfig.DEFAULT_MINIMUM_PART_SIZE, S3ClientStore.getConfig().getMinimumPartSize());
+
+        assertThrows(IllegalArgumentException.class, () -> S3ClientConfig.builder().setMinimumPartSize(0).build());
+        assertThrows(IllegalArgumentException.class, () -> S3ClientConfig.builder().setMaxRetries(-1).build());
+    }
+}
@@ -0,0 +1,54 @@
+package com.quiltdata.quiltcore;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+
+
+public class SearchIndexTest {
+    String TOP_HASH = "848238cb1cd8d8c06c3657d50e71c515cb913f0659ae55ffbfcec0f0e3e37e2c";
+    String FOO_HASH = "a665a45920422f9d417e4867efdc4fb8a04a1f3fff1fa07e998e86f7f7a27ae3";
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testLocalIndex(@TempDir Path indexDir) throws Exception {
+        Path dir = Path.of("src", "test", "resources", "packages").toAbsolutePath();
+        Registry r = new Registry(new LocalPhysicalKey(dir));
+
+        SearchIndex index = SearchIndex.update(r, indexDir);
+
+        List<SearchIndex.Match> matches = index.findLogicalKey("foo");
+        assertEquals(1, matches.size());
+        assertEquals("test/test", matches.get(0).getPackageName());
+        assertEquals(TOP_HASH, matches.get(0).getTopHash());
+        assertEquals(FOO_HASH, matches.get(0).getHash());
+
+        assertEquals(1, index.findLogicalKeyPrefix("fo", 10).size());
+        assertTrue(index.findLogicalKey("fo").isEmpty());
+        assertEquals("foo", index.findHash(FOO_HASH).get(0).getLogicalKey());
+
+        // Nothing new to index; the existing files are reused.
+        SearchIndex updated = SearchIndex.update(r, indexDir);
+        assertEquals(1, updated.findLogicalKey("foo").size());
+        assertEquals(1, SearchIndex.open(indexDir).findHash(FOO_HASH).size());
+    }
+
+    @Test
+    public void testEscaping() {
+        String key = "a\tb\nc\\d\u0001";
+        String escaped = SortedRecordFile.escape(key);
+
+        assertEquals(-1, escaped.indexOf('\t'));
+        assertEquals(-1, escaped.indexOf('\n'));
+        assertEquals(key, SortedRecordFile.unescape(escaped));
+        assertTrue(SortedRecordFile.escape(key + "xyz").startsWith(escaped));
+    }
+}
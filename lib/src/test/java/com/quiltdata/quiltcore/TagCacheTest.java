@@ -0,0 +1,125 @@
+package com.quiltdata.quiltcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.quiltdata.quiltcore.key.LocalPhysicalKey;
+import com.quiltdata.quiltcore.metrics.InMemoryMetricsRegistry;
+import com.quiltdata.quiltcore.metrics.MetricNames;
+import com.quiltdata.quiltcore.metrics.Metrics;
+
+
+public class TagCacheTest {
+    private InMemoryMetricsRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new InMemoryMetricsRegistry();
+        Metrics.setRegistry(registry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Metrics.setRegistry(null);
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testTtlAndInvalidation(@TempDir Path dir) throws Exception {
+        Path tag = dir.resolve("latest");
+        LocalPhysicalKey key = new LocalPhysicalKey(tag);
+        TagCache cache = TagCache.builder().setTtl(Duration.ofHours(1)).build();
+
+        Files.writeString(tag, "aaa");
+        assertEquals("aaa", cache.get(key));
+
+        Files.writeString(tag, "bbbb");
+        assertEquals("aaa", cache.get(key));
+        assertEquals(1, registry.getCount(MetricNames.TAG_CACHE_HITS));
+
+        cache.invalidate(key);
+        assertEquals("bbbb", cache.get(key));
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testInvalidationOfOtherTag(@TempDir Path dir) throws Exception {
+        Path tag = dir.resolve("latest");
+        LocalPhysicalKey other = new LocalPhysicalKey(dir.resolve("other"));
+        TagCache cache = TagCache.builder().setTtl(Duration.ofHours(1)).build();
+        LocalPhysicalKey key = new LocalPhysicalKey(tag) {
+            @Override
+            public ConditionalResponse getBytesIfChanged(String validator) throws IOException {
+                // Another tag is invalidated while this one is being read.
+                cache.invalidate(other);
+                return super.getBytesIfChanged(validator);
+            }
+        };
+
+        Files.writeString(tag, "aaa");
+        assertEquals("aaa", cache.get(key));
+        assertEquals("aaa", cache.get(key));
+        assertEquals(1, registry.getCount(MetricNames.TAG_CACHE_HITS));
+
+        // Invalidating the tag itself while it is being read still keeps the read from being cached.
+        LocalPhysicalKey self = new LocalPhysicalKey(dir.resolve("self")) {
+            @Override
+            public ConditionalResponse getBytesIfChanged(String validator) throws IOException {
+                cache.invalidate(this);
+                return super.getBytesIfChanged(validator);
+            }
+        };
+        Files.writeString(dir.resolve("self"), "bbb");
+        assertEquals("bbb", cache.get(self));
+        assertEquals("bbb", cache.get(self));
+        assertEquals(3, registry.getCount(MetricNames.TAG_CACHE_MISSES));
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testRevalidation(@TempDir Path dir) throws Exception {
+        Path tag = dir.resolve("latest");
+        LocalPhysicalKey key = new LocalPhysicalKey(tag);
+        TagCache cache = TagCache.builder().setTtl(Duration.ZERO).build();
+
+        Files.writeString(tag, "aaa");
+        assertEquals("aaa", cache.get(key));
+        assertEquals("aaa", cache.get(key));
+        assertEquals(1, registry.getCount(MetricNames.TAG_CACHE_NOT_MODIFIED));
+
+        Files.writeString(tag, "bbbb");
+        assertEquals("bbbb", cache.get(key));
+        assertEquals(2, registry.getCount(MetricNames.TAG_CACHE_MISSES));
+    }
+
+    @Test
+    @DisabledOnOs({ OS.WINDOWS })
+    public void testNamespace(@TempDir Path dir) throws Exception {
+        Path tags = Files.createDirectories(dir.resolve(".quilt/named_packages/test/test"));
+        Files.writeString(tags.resolve("latest"), "aaa");
+
+        Registry r = Registry.builder()
+            .setRoot(new LocalPhysicalKey(dir))
+            .setTagCache(TagCache.builder().build())
+            .build();
+        Namespace n = r.getNamespace("test/test");
+        assertEquals("aaa", n.getHash("latest"));
+
+        Files.writeString(tags.resolve("latest"), "bbbb");
+        assertEquals("aaa", n.getHash("latest"));
+
+        n.invalidateTag("latest");
+        assertEquals("bbbb", n.getHash("latest"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.quiltdata.quiltcore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.quiltdata.quiltcore.transfer.TransferListenerAdapter;
+import com.quiltdata.quiltcore.transfer.TransferStats;
+
+import software.amazon.awssdk.transfer.s3.progress.TransferListener;
+import software.amazon.awssdk.transfer.s3.progress.TransferProgressSnapshot;
+
+
+public class TransferStatsTest {
+    // The adapter only reads these properties; everything else of the SDK's contexts is left out.
+    @SuppressWarnings("unchecked")
+    private static <T> T context(Class<T> type, Map<String, Object> properties) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            if (!properties.containsKey(method.getName())) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            return properties.get(method.getName());
+        });
+    }
+
+    private static TransferListener.Context.BytesTransferred bytesTransferred(long transferredBytes) {
+        TransferProgressSnapshot snapshot = context(TransferProgressSnapshot.class, Map.of("transferredBytes", transferredBytes));
+        return context(TransferListener.Context.BytesTransferred.class, Map.of("progressSnapshot", snapshot));
+    }
+
+    @Test
+    public void testCounters() {
+        TransferStats stats = new TransferStats();
+        stats.operationStarted(3, 300);
+
+        stats.bytesTransferred("a", 100);
+        stats.objectCompleted("a", 100);
+        stats.bytesTransferred("b", 50);
+        stats.bytesTransferred("b", -20);
+        stats.requestRetried("b");
+        stats.objectFailed("b", new IOException("broken"));
+
+        assertEquals(3, stats.getTotalObjects());
+        assertEquals(300, stats.getTotalBytes());
+        assertEquals(130, stats.getBytesTransferred());
+        assertEquals(1, stats.getObjectsCompleted());
+        assertEquals(1, stats.getObjectsFailed());
+        assertEquals(1, stats.getRetries());
+
+        assertEquals(100, stats.getBucketStats().get("a").getBytesTransferred());
+        assertEquals(1, stats.getBucketStats().get("a").getObjectsCompleted());
+        assertEquals(0, stats.getBucketStats().get("a").getRetries());
+        assertEquals(30, stats.getBucketStats().get("b").getBytesTransferred());
+        assertEquals(1, stats.getBucketStats().get("b").getObjectsFailed());
+        assertEquals(1, stats.getBucketStats().get("b").getRetries());
+        assertThrows(UnsupportedOperationException.class, () -> stats.getBucketStats().clear());
+
+        stats.operationCompleted();
+        Duration elapsed = stats.getElapsed();
+        assertEquals(elapsed, stats.getElapsed());
+        assertTrue(stats.getThroughput() >= 0);
+    }
+
+    @Test
+    public void testEstimatedTimeRemaining() {
+        TransferStats stats = new TransferStats();
+        stats.operationStarted(1, 100);
+        assertNull(stats.getEstimatedTimeRemaining());
+
+        stats.bytesTransferred("a", 100);
+        assertEquals(Duration.ZERO, stats.getEstimatedTimeRemaining());
+    }
+
+    @Test
+    public void testAdapter() {
+        TransferStats stats = new TransferStats();
+        stats.operationStarted(2, 200);
+
+        // Cumulative progress is converted to deltas.
+        TransferListenerAdapter adapter = new TransferListenerAdapter("a", 100, stats);
+        adapter.bytesTransferred(bytesTransferred(40));
+        adapter.bytesTransferred(bytesTransferred(70));
+        assertEquals(70, stats.getBytesTransferred());
+
+        // Copies may not report progress, so completing reports the rest of the object.
+        adapter.transferComplete(context(TransferListener.Context.TransferComplete.class, Map.of()));
+        assertEquals(100, stats.getBytesTransferred());
+        assertEquals(1, stats.getObjectsCompleted());
+
+        // A failed transfer takes its partial progress back; the failure itself is reported by the limiter.
+        TransferListenerAdapter failing = new TransferListenerAdapter("b", 100, stats);
+        failing.bytesTransferred(bytesTransferred(60));
+        assertEquals(160, stats.getBytesTransferred());
+        failing.transferFailed(context(TransferListener.Context.TransferFailed.class, Map.of("exception", new IOException("broken"))));
+        assertEquals(100, stats.getBytesTransferred());
+        assertEquals(0, stats.getBucketStats().get("b").getBytesTransferred());
+        assertEquals(0, stats.getObjectsFailed());
+
+        // A retry of the same request starts from zero again.
+        failing.bytesTransferred(bytesTransferred(30));
+        assertEquals(130, stats.getBytesTransferred());
+
+        TransferListenerAdapter.attemptListener("b", stats).retrying(new IOException("throttled"));
+        TransferListenerAdapter.attemptListener("b", stats).failed(new IOException("broken"));
+        assertEquals(1, stats.getRetries());
+        assertEquals(1, stats.getObjectsFailed());
+        assertEquals(1, stats.getBucketStats().get("b").getObjectsFailed());
+    }
+}
@@ -2,19 +2,29 @@ package com.quiltdata.quiltcore;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.quiltdata.quiltcore.key.LocalPhysicalKey;
 import com.quiltdata.quiltcore.key.PhysicalKey;
+import com.quiltdata.quiltcore.storage.InMemoryObjectStore;
+import com.quiltdata.quiltcore.storage.ObjectStores;
 import com.quiltdata.quiltcore.workflows.ConfigDataVersion;
+import com.quiltdata.quiltcore.workflows.ConfigurationException;
+import com.quiltdata.quiltcore.workflows.ItemsSchema;
+import com.quiltdata.quiltcore.workflows.SchemaValidatorCache;
 import com.quiltdata.quiltcore.workflows.WorkflowConfig;
 import com.quiltdata.quiltcore.workflows.WorkflowException;
 import com.quiltdata.quiltcore.workflows.WorkflowValidator;
@@ -70,4 +80,160 @@ public class WorkflowsTest {
         // Wrong package metadata.
         assertThrows(WorkflowException.class, () -> validator.validate("test/foo", Map.of("README.md", readme), readmeMeta, "blah"));
     }
+
+    @Test
+    @DisabledOnOs({OS.WINDOWS})
+    public void testCachedWorkflowConfig(@TempDir Path dir) throws Exception {
+        Registry registry = new Registry(new LocalPhysicalKey(dir));
+        assertNull(registry.getWorkflowConfig());
+
+        Path configPath = dir.resolve(".quilt/workflows/config.yml");
+        Files.createDirectories(configPath.getParent());
+        Files.writeString(configPath, "version: \"1\"\nworkflows:\n  alpha:\n    name: Alpha\n");
+
+        WorkflowConfig config = registry.getWorkflowConfig();
+        assertNotNull(config);
+        assertSame(config, registry.getWorkflowConfig());
+        WorkflowValidator validator = config.getWorkflowValidator("alpha");
+        assertSame(validator, registry.getWorkflowConfig().getWorkflowValidator("alpha"));
+
+        // A changed config is parsed again.
+        Files.writeString(configPath, "version: \"1\"\nworkflows:\n  beta:\n    name: Beta\n");
+        WorkflowConfig changed = registry.getWorkflowConfig();
+        assertNotSame(config, changed);
+        assertThrows(WorkflowException.class, () -> changed.getWorkflowValidator("alpha"));
+
+        Files.delete(configPath);
+        assertNull(registry.getWorkflowConfig());
+    }
+
+    @Test
+    @DisabledOnOs({OS.WINDOWS})
+    public void testEditedSchemaOnPush() throws Exception {
+        String bucket = "quilt-test-workflows";
+        InMemoryObjectStore store = InMemoryObjectStore.builder().build();
+        store.createBucket(bucket);
+        ObjectStores.register(bucket, store);
+        try {
+            store.putBytes(bucket, ".quilt/workflows/config.yml", ("version: \"1\"\nworkflows:\n  alpha:\n    name: Alpha\n"
+                + "    metadata_schema: meta\nschemas:\n  meta:\n    url: s3://" + bucket + "/.quilt/workflows/meta.json\n")
+                .getBytes(StandardCharsets.UTF_8));
+            store.putBytes(bucket, ".quilt/workflows/meta.json", "{\"type\": \"object\"}".getBytes(StandardCharsets.UTF_8));
+
+            Namespace n = Registry.CreateNamespaceAtUri("test/pkg", "s3://" + bucket);
+            Path dir = Path.of("src", "test", "resources", "dir").toAbsolutePath();
+            Manifest m = Manifest.BuildFromDir(dir, Map.of("tags", "a"), ".*\\.txt");
+            m.push(n, "message", "alpha");
+
+            // The schema at its unversioned URL changes, but config.yml doesn't.
+            store.putBytes(bucket, ".quilt/workflows/meta.json",
+                "{\"type\": \"object\", \"required\": [\"owner\"]}".getBytes(StandardCharsets.UTF_8));
+            assertThrows(WorkflowException.class, () -> m.push(n, "message", "alpha"));
+
+            Manifest fixed = Manifest.BuildFromDir(dir, Map.of("tags", "a", "owner", "me"), ".*\\.txt");
+            fixed.push(n, "message", "alpha");
+        } finally {
+            ObjectStores.register(bucket, null);
+        }
+    }
+
+    @Test
+    @DisabledOnOs({OS.WINDOWS})
+    public void testSchemaValidatorCache(@TempDir Path dir) throws Exception {
+        SchemaValidatorCache cache = SchemaValidatorCache.builder().setMaxEntries(2).build();
+        Path schemaPath = dir.resolve("schema.json");
+        PhysicalKey schemaKey = new LocalPhysicalKey(schemaPath);
+        Files.writeString(schemaPath, "{\"type\": \"object\"}");
+
+        SchemaValidatorCache.CompiledSchema schema = cache.get(schemaKey);
+        assertEquals(schemaKey.toString(), schema.getPhysicalKey().toString());
+        assertSame(schema, cache.get(schemaKey));
+        assertSame(schema, SchemaValidatorCache.join(cache.getAsync(schemaKey)));
+        assertTrue(schema.getValidator().validate(Map.of()).getValid());
+
+        // A changed schema is compiled again.
+        Files.writeString(schemaPath, "{\"type\": \"array\"}");
+        SchemaValidatorCache.CompiledSchema changed = cache.get(schemaKey);
+        assertNotSame(schema, changed);
+        assertFalse(changed.getValidator().validate(Map.of()).getValid());
+
+        // Only the two most recently used validators are kept.
+        Path otherPath = dir.resolve("other.json");
+        Files.writeString(otherPath, "{}");
+        cache.get(new LocalPhysicalKey(otherPath));
+        assertEquals(2, cache.size());
+
+        Files.writeString(schemaPath, "not json");
+        assertThrows(ConfigurationException.class, () -> cache.get(schemaKey));
+    }
+
+    @Test
+    @DisabledOnOs({OS.WINDOWS})
+    public void testItemWiseEntriesValidation(@TempDir Path dir) throws Exception {
+        Path schemaPath = dir.resolve("entries.json");
+        Files.writeString(schemaPath, "{\"type\": \"array\", \"minItems\": 1, \"items\": {\"$ref\": \"#/definitions/entry\"},"
+            + " \"definitions\": {\"entry\": {\"type\": \"object\", \"properties\": {\"size\": {\"maximum\": 100}}}}}");
+        Path configPath = dir.resolve(".quilt/workflows/config.yml");
+        Files.createDirectories(configPath.getParent());
+        Files.writeString(configPath, "version: \"1\"\nworkflows:\n  alpha:\n    name: Alpha\n    entries_schema: entries\n"
+            + "schemas:\n  entries:\n    url: " + schemaPath.toUri() + "\n");
+
+        WorkflowConfig config = new Registry(new LocalPhysicalKey(dir)).getWorkflowConfig();
+        WorkflowValidator validator = config.getWorkflowValidator("alpha");
+        ObjectNode pkgMeta = JsonNodeFactory.instance.objectNode();
+
+        Map<String, Entry> entries = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.put(String.format("file%04d.txt", i), new Entry(null, i % 2 == 0 ? 10 : 1000, null, JsonNodeFactory.instance.objectNode()));
+        }
+        WorkflowException e = assertThrows(WorkflowException.class, () -> validator.validate("test/foo", entries, pkgMeta, null));
+        assertEquals(WorkflowValidator.MAX_REPORTED_FAILURES, e.getFailedLogicalKeys().size());
+        assertEquals("file0001.txt", e.getFailedLogicalKeys().get(0));
+        assertEquals("file0019.txt", e.getFailedLogicalKeys().get(WorkflowValidator.MAX_REPORTED_FAILURES - 1));
+
+        entries.values().removeIf(entry -> entry.getSize() > 100);
+        validator.validate("test/foo", entries, pkgMeta, null);
+
+        // minItems is checked without validating the entries.
+        assertThrows(WorkflowException.class, () -> validator.validate("test/foo", Map.of(), pkgMeta, null));
+
+        // Schemas constraining the array as a whole are validated as a whole.
+        ObjectMapper mapper = new ObjectMapper();
+        assertNull(ItemsSchema.of(mapper.readTree("{\"type\": \"array\", \"uniqueItems\": true}"), null));
+        assertNull(ItemsSchema.of(mapper.readTree("{\"type\": \"object\"}"), null));
+    }
+
+    @Test
+    @DisabledOnOs({OS.WINDOWS})
+    public void testNestedMetadataValidation(@TempDir Path dir) throws Exception {
+        Path schemaPath = dir.resolve("meta.json");
+        Files.writeString(schemaPath, "{\"type\": \"object\", \"required\": [\"tags\"], \"properties\": {"
+            + "\"tags\": {\"type\": \"array\", \"items\": {\"type\": \"string\"}, \"minItems\": 1},"
+            + "\"run\": {\"type\": \"object\", \"properties\": {\"id\": {\"type\": \"integer\"}, \"score\": {\"type\": \"number\"},"
+            + " \"ok\": {\"type\": \"boolean\"}, \"note\": {\"type\": [\"string\", \"null\"]}}}}}");
+        Path configPath = dir.resolve(".quilt/workflows/config.yml");
+        Files.createDirectories(configPath.getParent());
+        Files.writeString(configPath, "version: \"1\"\nworkflows:\n  alpha:\n    name: Alpha\n    metadata_schema: meta\n"
+            + "schemas:\n  meta:\n    url: " + schemaPath.toUri() + "\n");
+
+        WorkflowValidator validator = new Registry(new LocalPhysicalKey(dir)).getWorkflowConfig().getWorkflowValidator("alpha");
+        ObjectMapper mapper = new ObjectMapper();
+
+        ObjectNode good = (ObjectNode) mapper.readTree(
+            "{\"user_meta\": {\"tags\": [\"a\", \"b\"], \"run\": {\"id\": 12345678901, \"score\": 0.5, \"ok\": true, \"note\": null}}}"
+        );
+        validator.validate("test/foo", Map.of(), good, null);
+
+        for (String bad : new String[] {
+            "{\"user_meta\": {\"tags\": []}}",
+            "{\"user_meta\": {\"tags\": [1]}}",
+            "{\"user_meta\": {\"tags\": [\"a\"], \"run\": {\"id\": 1.5}}}",
+            "{\"user_meta\": {\"tags\": [\"a\"], \"run\": {\"ok\": \"yes\"}}}",
+            "{\"user_meta\": {}}",
+            "{}",
+        }) {
+            ObjectNode meta = (ObjectNode) mapper.readTree(bad);
+            assertThrows(WorkflowException.class, () -> validator.validate("test/foo", Map.of(), meta, null), bad);
+        }
+    }
 }
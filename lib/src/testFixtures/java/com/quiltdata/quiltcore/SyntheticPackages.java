@@ -0,0 +1,377 @@
+package com.quiltdata.quiltcore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.quiltdata.quiltcore.key.PhysicalKey;
+
+/**
+ * Generates synthetic packages for benchmarks and load tests.
+ *
+ * <p>
+ * Packages are deterministic for a given seed. Logical keys are spread over a directory tree of the
+ * configured depth, with about {@value #FILES_PER_DIRECTORY} files per directory. Sizes follow a
+ * configurable {@link SizeDistribution}. Packages can be generated as manifests, whose entries point to
+ * versioned S3 objects and carry metadata with a mix of strings, numbers, booleans, arrays and nested objects,
+ * or as directory trees of files with random contents.
+ * </p>
+ *
+ * <h2>Usage Example:</h2>
+ * <pre>{@code
+ * Manifest manifest = SyntheticPackages.builder()
+ *     .setEntryCount(100_000)
+ *     .setKeyDepth(4)
+ *     .build()
+ *     .buildManifest();
+ * }</pre>
+ */
+public class SyntheticPackages {
+    /**
+     * The approximate number of files per directory of the generated trees.
+     */
+    public static final int FILES_PER_DIRECTORY = 100;
+
+    private static final String[] EXTENSIONS = { ".csv", ".parquet", ".json", ".png", ".txt" };
+
+    /**
+     * The distribution of the sizes of generated entries.
+     */
+    public interface SizeDistribution {
+        /**
+         * Samples a size.
+         *
+         * @param random The random generator.
+         * @return The size in bytes.
+         */
+        long sample(Random random);
+
+        /**
+         * Returns a distribution where all entries have the same size.
+         *
+         * @param size The size in bytes.
+         * @return The distribution.
+         */
+        static SizeDistribution fixed(long size) {
+            return random -> size;
+        }
+
+        /**
+         * Returns a uniform distribution.
+         *
+         * @param min The minimum size in bytes.
+         * @param max The maximum size in bytes.
+         * @return The distribution.
+         */
+        static SizeDistribution uniform(long min, long max) {
+            return random -> min + (long) (random.nextDouble() * (max - min + 1));
+        }
+
+        /**
+         * Returns a log-uniform distribution, where each order of magnitude is equally likely:
+         * many small files and a few large ones, as in most real packages.
+         *
+         * @param min The minimum size in bytes; at least 1.
+         * @param max The maximum size in bytes.
+         * @return The distribution.
+         */
+        static SizeDistribution logUniform(long min, long max) {
+            double logMin = Math.log(min);
+            double logMax = Math.log(max);
+            return random -> Math.min(max, (long) Math.exp(logMin + random.nextDouble() * (logMax - logMin)));
+        }
+
+        /**
+         * Parses a distribution: {@code fixed:SIZE}, {@code uniform:MIN:MAX} or {@code logUniform:MIN:MAX}.
+         *
+         * @param spec The specification.
+         * @return The distribution.
+         * @throws IllegalArgumentException If the specification is invalid.
+         */
+        static SizeDistribution parse(String spec) {
+            String[] parts = spec.split(":");
+            try {
+                if (parts[0].equals("fixed") && parts.length == 2) {
+                    return fixed(Long.parseLong(parts[1]));
+                } else if (parts[0].equals("uniform") && parts.length == 3) {
+                    return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                } else if (parts[0].equals("logUniform") && parts.length == 3) {
+                    return logUniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid size distribution: " + spec, e);
+            }
+            throw new IllegalArgumentException("Invalid size distribution: " + spec);
+        }
+    }
+
+    /**
+     * Represents a builder for creating a {@link SyntheticPackages} object.
+     */
+    public static class Builder {
+        private int entryCount = 1000;
+        private int keyDepth = 3;
+        private int metadataFields = 4;
+        private long seed = 0;
+        private String bucket = "quilt-synthetic";
+        private SizeDistribution sizes = SizeDistribution.logUniform(1, 64 * 1024);
+
+        /**
+         * Sets the number of entries of the package.
+         *
+         * @param entryCount The number of entries.
+         * @return This builder.
+         */
+        public Builder setEntryCount(int entryCount) {
+            this.entryCount = entryCount;
+            return this;
+        }
+
+        /**
+         * Sets the number of directories above each file.
+         *
+         * @param keyDepth The depth of logical keys.
+         * @return This builder.
+         */
+        public Builder setKeyDepth(int keyDepth) {
+            this.keyDepth = keyDepth;
+            return this;
+        }
+
+        /**
+         * Sets the number of top-level fields of each entry's metadata; 0 for empty metadata.
+         *
+         * @param metadataFields The number of fields.
+         * @return This builder.
+         */
+        public Builder setMetadataFields(int metadataFields) {
+            this.metadataFields = metadataFields;
+            return this;
+        }
+
+        /**
+         * Sets the seed of the random generator.
+         *
+         * @param seed The seed.
+         * @return This builder.
+         */
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets the bucket the physical keys of the entries point to.
+         *
+         * @param bucket The bucket name.
+         * @return This builder.
+         */
+        public Builder setBucket(String bucket) {
+            this.bucket = bucket;
+            return this;
+        }
+
+        /**
+         * Sets the distribution of entry sizes. Defaults to log-uniform between 1 byte and 64 KiB, so that
+         * the default package can be written as a directory tree in moments.
+         *
+         * @param sizes The distribution.
+         * @return This builder.
+         */
+        public Builder setSizeDistribution(SizeDistribution sizes) {
+            this.sizes = sizes;
+            return this;
+        }
+
+        /**
+         * Builds a {@link SyntheticPackages} object.
+         *
+         * @return The built {@link SyntheticPackages} object.
+         */
+        public SyntheticPackages build() {
+            if (entryCount < 0) {
+                throw new IllegalArgumentException("Entry count must not be negative");
+            }
+            if (keyDepth < 0) {
+                throw new IllegalArgumentException("Key depth must not be negative");
+            }
+            if (metadataFields < 0) {
+                throw new IllegalArgumentException("Metadata fields must not be negative");
+            }
+            if (bucket == null) {
+                throw new IllegalArgumentException("Bucket is required");
+            }
+            if (sizes == null) {
+                throw new IllegalArgumentException("Size distribution is required");
+            }
+            return new SyntheticPackages(this);
+        }
+    }
+
+    private final int entryCount;
+    private final int keyDepth;
+    private final int metadataFields;
+    private final long seed;
+    private final String bucket;
+    private final SizeDistribution sizes;
+    private final int fanout;
+
+    private SyntheticPackages(Builder builder) {
+        entryCount = builder.entryCount;
+        keyDepth = builder.keyDepth;
+        metadataFields = builder.metadataFields;
+        seed = builder.seed;
+        bucket = builder.bucket;
+        sizes = builder.sizes;
+
+        double directories = Math.max(1.0, (double) entryCount / FILES_PER_DIRECTORY);
+        fanout = keyDepth == 0 ? 1 : Math.max(1, (int) Math.ceil(Math.pow(directories, 1.0 / keyDepth)));
+    }
+
+    /**
+     * Returns a {@link Builder} for creating instances of the SyntheticPackages class.
+     *
+     * @return A new instance of the {@link Builder} class.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the number of entries of the generated packages.
+     *
+     * @return The number of entries.
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns the logical key of the i-th entry.
+     *
+     * @param i The index of the entry.
+     * @return The logical key.
+     */
+    public String logicalKey(int i) {
+        StringBuilder sb = new StringBuilder();
+        long dir = i / FILES_PER_DIRECTORY;
+        for (int level = 0; level < keyDepth; level++) {
+            sb.append("dir").append(level).append('-').append(dir % fanout).append('/');
+            dir /= fanout;
+        }
+        return sb.append("file-").append(i).append(EXTENSIONS[i % EXTENSIONS.length]).toString();
+    }
+
+    /**
+     * Generates the package as an in-memory manifest with hashes.
+     *
+     * @return The manifest.
+     */
+    public Manifest buildManifest() {
+        Random random = new Random(seed);
+        Manifest.Builder builder = Manifest.builder();
+        builder.setMetadata(JsonNodeFactory.instance.objectNode()
+            .put("version", Manifest.VERSION)
+            .put("message", "Synthetic package with " + entryCount + " entries")
+            .set("user_meta", metadata(random)));
+
+        for (int i = 0; i < entryCount; i++) {
+            String logicalKey = logicalKey(i);
+            // Parsed from a URI, like the keys of a manifest read from a file.
+            PhysicalKey physicalKey = PhysicalKey.fromUri(URI.create(physicalKeyUri(logicalKey, random)));
+            long size = sizes.sample(random);
+            builder.addEntry(logicalKey, new Entry(physicalKey, size, hash(random), metadata(random)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Generates the package and writes its manifest to a file.
+     *
+     * @param file The manifest file.
+     * @return The generated manifest.
+     * @throws IOException If the file can't be written.
+     */
+    public Manifest writeManifest(Path file) throws IOException {
+        Manifest manifest = buildManifest();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            manifest.serializeToOutputStream(out);
+        }
+        return manifest;
+    }
+
+    /**
+     * Generates the package as a directory tree of files with random contents.
+     *
+     * @param root The directory to write the files to; it is created if needed.
+     * @return The total size of the files in bytes.
+     * @throws IOException If the files can't be written.
+     */
+    public long writeDirectory(Path root) throws IOException {
+        Random random = new Random(seed);
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        for (int i = 0; i < entryCount; i++) {
+            Path file = root.resolve(logicalKey(i));
+            Files.createDirectories(file.getParent());
+            long size = sizes.sample(random);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                for (long written = 0; written < size; written += buffer.length) {
+                    random.nextBytes(buffer);
+                    out.write(buffer, 0, (int) Math.min(buffer.length, size - written));
+                }
+            }
+            total += size;
+        }
+        return total;
+    }
+
+    private ObjectNode metadata(Random random) {
+        ObjectNode meta = JsonNodeFactory.instance.objectNode();
+        for (int f = 0; f < metadataFields; f++) {
+            String name = "field" + f;
+            switch (f % 5) {
+                case 0:
+                    meta.put(name, "value-" + random.nextInt(1000));
+                    break;
+                case 1:
+                    meta.put(name, random.nextInt());
+                    break;
+                case 2:
+                    meta.put(name, random.nextDouble() * 1000);
+                    break;
+                case 3:
+                    meta.putArray(name).add("tag-" + random.nextInt(10)).add("tag-" + random.nextInt(10));
+                    break;
+                default:
+                    meta.putObject(name)
+                        .put("owner", "user" + random.nextInt(100))
+                        .put("validated", random.nextBoolean())
+                        .put("score", random.nextDouble());
+                    break;
+            }
+        }
+        return meta;
+    }
+
+    private String physicalKeyUri(String logicalKey, Random random) {
+        return "s3://" + bucket + "/data/" + logicalKey + "?versionId=" + randomHex(random, 16);
+    }
+
+    private static Entry.Hash hash(Random random) {
+        return new Entry.Hash(Entry.HashType.SHA256, randomHex(random, 32));
+    }
+
+    private static String randomHex(Random random, int bytes) {
+        StringBuilder sb = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i++) {
+            sb.append(Character.forDigit(random.nextInt(16), 16)).append(Character.forDigit(random.nextInt(16), 16));
+        }
+        return sb.toString();
+    }
+}